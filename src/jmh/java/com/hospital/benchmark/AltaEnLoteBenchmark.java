@@ -0,0 +1,114 @@
+package com.hospital.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+
+import com.hospital.dto.ResultadoLote;
+import com.hospital.services.IngresoServiceImpl;
+
+/**
+ *  Ingresos dados de alta por segundo: uno a uno (crearIngreso, lo que hace POST /api/ingreso/{mascotaId})
+ *  frente a un lote (crearIngresosEnLote, POST /api/ingreso/batch) con los mismos INGRESOS elementos.
+ *  Ambos benchmarks cuentan una operación por ingreso, así que los ops/s se comparan directamente.
+ *
+ *  Con H2 en memoria una sentencia SQL apenas cuesta nada, así que latenciaJdbcMs retrasa cada
+ *  sentencia (InspectorLatencia) para medir también con una base de datos remota, que es donde el
+ *  lote ahorra: una consulta de mascotas y un INSERT por batch JDBC en lugar de varias sentencias por ingreso.
+ *
+ *    -Djmh.filtro=AltaEnLoteBenchmark -Djmh.mascotas=10000 -Djmh.ingresosPorMascota=1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AltaEnLoteBenchmark {
+
+    private static final int INGRESOS = 500;
+
+    @Param("1000")
+    public int mascotas;
+
+    @Param("5")
+    public int ingresosPorMascota;
+
+    @Param({"0", "1"})
+    public int latenciaJdbcMs;
+
+    private final DatosBenchmark datos = new DatosBenchmark();
+    private IngresoServiceImpl ingresoService;
+    private int[] posiciones = new int[INGRESOS];
+    private LocalDate[] fechas = new LocalDate[INGRESOS];
+    private byte[] lote;
+
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        System.setProperty(InspectorLatencia.PROPIEDAD, String.valueOf(latenciaJdbcMs));
+        datos.mascotas = mascotas;
+        datos.ingresosPorMascota = ingresosPorMascota;
+        datos.arrancar(WebApplicationType.NONE,
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + InspectorLatencia.class.getName());
+        // La siembra ya está hecha: a partir de aquí se retrasa cada sentencia
+        InspectorLatencia.retrasarFueraDePeticion = true;
+        ingresoService = datos.bean(IngresoServiceImpl.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        InspectorLatencia.retrasarFueraDePeticion = false;
+        datos.parar();
+    }
+
+    // Las mismas solicitudes para los dos caminos; el JSON se genera fuera de la medición
+    @Setup(Level.Invocation)
+    public void generarSolicitudes() {
+        StringBuilder json = new StringBuilder(INGRESOS * 80).append('[');
+        for (int i = 0; i < INGRESOS; i++) {
+            posiciones[i] = datos.posicionMascotaAleatoria();
+            fechas[i] = datos.fechaAleatoria();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"mascotaId\":").append(datos.idsMascota[posiciones[i]])
+                .append(",\"fechaAlta\":\"").append(fechas[i])
+                .append("\",\"dniRegistrador\":\"").append(datos.dnisMascota[posiciones[i]]).append("\"}");
+        }
+        lote = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INGRESOS)
+    public void altaIndividual(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < INGRESOS; i++) {
+            blackhole.consume(ingresoService.crearIngreso(datos.idsMascota[posiciones[i]], fechas[i], datos.dnisMascota[posiciones[i]]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INGRESOS)
+    public ResultadoLote altaEnLote() throws Exception {
+        return ingresoService.crearIngresosEnLote(new ByteArrayInputStream(lote));
+    }
+
+}
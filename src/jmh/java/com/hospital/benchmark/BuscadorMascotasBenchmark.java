@@ -0,0 +1,115 @@
+package com.hospital.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.indice.IndiceEspecieRaza;
+
+/**
+ *  Búsqueda de mascotas por prefijo de especie y raza (IndiceEspecieRaza): una página de 50 IDs desde
+ *  un cursor aleatorio y el total, frente a recorrer todas las mascotas comparando los prefijos con los
+ *  valores ya normalizados (lo que haría la base de datos con LIKE sin índice). Sin Spring ni base de
+ *  datos.
+ *
+ *  Con un millón de mascotas: -Djmh.mascotas=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BuscadorMascotasBenchmark {
+
+    private static final int PAGINA = 50;
+    
+    // Especies con su número de razas: unas 200 combinaciones, como en una clínica real
+    private static final String[] ESPECIES = { "Perro", "Gato", "Conejo", "Hurón", "Pájaro", "Reptil" };
+    private static final int[] RAZAS = { 120, 45, 15, 5, 10, 5 };
+    
+    @Param("1000")
+    public int mascotas;
+    
+    private final SplittableRandom aleatorio = new SplittableRandom(42);
+    
+    private IndiceEspecieRaza indice;
+    private String[] especies;
+    private String[] razas;
+    
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        SplittableRandom datos = new SplittableRandom(7);
+        indice = new IndiceEspecieRaza();
+        especies = new String[mascotas + 1];
+        razas = new String[mascotas + 1];
+        for (int id = 1; id <= mascotas; id++) {
+            // La mitad de las mascotas son perros y una cuarta parte gatos
+            int especie = datos.nextInt(4) < 2 ? 0 : datos.nextInt(4) < 2 ? 1 : 2 + datos.nextInt(ESPECIES.length - 2);
+            especies[id] = ESPECIES[especie];
+            razas[id] = "Raza " + datos.nextInt(RAZAS[especie]);
+            indice.anadir(id, especies[id], razas[id]);
+            especies[id] = IndiceEspecieRaza.normalizar(especies[id]);
+            razas[id] = IndiceEspecieRaza.normalizar(razas[id]);
+        }
+        especies[0] = razas[0] = "";
+        System.out.printf("%n%d mascotas en %d combinaciones de especie y raza%n", indice.getMascotas(),
+                indice.getCombinaciones());
+    }
+    
+    // Unas 500.000 mascotas en 120 combinaciones
+    @Benchmark
+    public long buscarPorEspecie() {
+        return buscar("per", null);
+    }
+    
+    // Las razas "Raza 1", "Raza 1x" y "Raza 1xx" de los perros (algo menos de la décima parte)
+    @Benchmark
+    public long buscarPorEspecieYRaza() {
+        return buscar("perro", "raza 1");
+    }
+    
+    // Todas las mascotas: se mezclan las 200 combinaciones
+    @Benchmark
+    public long buscarSinFiltro() {
+        return buscar(null, null);
+    }
+    
+    @Benchmark
+    public long recorrerPorEspecieYRaza() {
+        long cursor = aleatorio.nextInt(mascotas);
+        String prefijoEspecie = IndiceEspecieRaza.normalizar("perro");
+        String prefijoRaza = IndiceEspecieRaza.normalizar("raza 1");
+        long[] pagina = new long[PAGINA];
+        int encontrados = 0;
+        long total = 0;
+        for (int id = 1; id <= mascotas; id++) {
+            if (especies[id].startsWith(prefijoEspecie) && razas[id].startsWith(prefijoRaza)) {
+                total++;
+                if (id > cursor && encontrados < PAGINA) {
+                    pagina[encontrados++] = id;
+                }
+            }
+        }
+        return total + pagina[0];
+    }
+    
+    private long buscar(String especie, String raza) {
+        long[] pagina = indice.buscar(especie, raza, aleatorio.nextInt(mascotas), PAGINA);
+        return indice.contar(especie, raza) + (pagina.length > 0 ? pagina[0] : 0);
+    }
+    
+}
@@ -0,0 +1,123 @@
+package com.hospital.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.boot.WebApplicationType;
+
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+import com.hospital.services.IngresoServiceImpl;
+import com.hospital.services.MascotaServiceImpl;
+
+/**
+ *  Camino de un ingreso con y sin la caché de mascotas: durante una hospitalización se consultan
+ *  una y otra vez las mismas mascotas, así que cada operación elige una de MASCOTAS_HOSPITALIZADAS.
+ *  Con cache=desactivada la caché tiene tamaño 0 y cada findById va a base de datos.
+ *
+ *  Además del tiempo, al terminar cada benchmark se imprimen las sentencias SQL por operación
+ *  (estadísticas de Hibernate, solo de las iteraciones de medición).
+ *
+ *    -Djmh.filtro=CacheMascotasBenchmark -Djmh.mascotas=10000 -Djmh.ingresosPorMascota=1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheMascotasBenchmark {
+
+    private static final int MASCOTAS_HOSPITALIZADAS = 200;
+
+    @Param("1000")
+    public int mascotas;
+
+    @Param("5")
+    public int ingresosPorMascota;
+
+    @Param({"activa", "desactivada"})
+    public String cache;
+
+    private final DatosBenchmark datos = new DatosBenchmark();
+    private IngresoServiceImpl ingresoService;
+    private MascotaServiceImpl mascotaService;
+    private Statistics estadisticas;
+    private long operaciones;
+    private long sentenciasAlEmpezar;
+    private long operacionesMedidas;
+    private long sentenciasMedidas;
+
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        datos.mascotas = mascotas;
+        datos.ingresosPorMascota = ingresosPorMascota;
+        datos.arrancar(WebApplicationType.NONE, "spring.jpa.properties.hibernate.generate_statistics=true",
+                "activa".equals(cache) ? "hospital.cache.mascotas=maximumSize=10000,expireAfterWrite=10m,recordStats"
+                        : "hospital.cache.mascotas=maximumSize=0,recordStats");
+        ingresoService = datos.bean(IngresoServiceImpl.class);
+        mascotaService = datos.bean(MascotaServiceImpl.class);
+        estadisticas = datos.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void parar(BenchmarkParams parametros) {
+        System.out.printf("%n%s (cache=%s): %.2f sentencias SQL por operación%n", parametros.getBenchmark(), cache,
+                (double) sentenciasMedidas / Math.max(1, operacionesMedidas));
+        datos.parar();
+    }
+
+    @Setup(Level.Iteration)
+    public void empezarIteracion() {
+        operaciones = 0;
+        sentenciasAlEmpezar = estadisticas.getPrepareStatementCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void terminarIteracion(IterationParams iteracion) {
+        if (iteracion.getType() == IterationType.MEASUREMENT) {
+            operacionesMedidas += operaciones;
+            sentenciasMedidas += estadisticas.getPrepareStatementCount() - sentenciasAlEmpezar;
+        }
+    }
+
+    // Alta de un ingreso: comprueba la mascota (findById) antes de insertar
+    @Benchmark
+    public Ingreso crearIngreso() throws Exception {
+        operaciones++;
+        int mascota = posicionHospitalizada();
+        return ingresoService.crearIngreso(datos.idsMascota[mascota], datos.fechaAleatoria(), datos.dnisMascota[mascota]);
+    }
+
+    // Consulta de la ficha de la mascota, lo más repetido durante la hospitalización
+    @Benchmark
+    public Mascota obtenerMascota() {
+        operaciones++;
+        return mascotaService.obtenerMascotaPorId(datos.idsMascota[posicionHospitalizada()]).orElse(null);
+    }
+
+    private int posicionHospitalizada() {
+        return datos.posicionMascotaAleatoria() % Math.min(MASCOTAS_HOSPITALIZADAS, mascotas);
+    }
+
+}
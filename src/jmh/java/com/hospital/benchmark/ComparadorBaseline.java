@@ -0,0 +1,102 @@
+package com.hospital.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *  Compara un resultado de JMH (JSON) con el baseline guardado.
+ *
+ *  Uso: ComparadorBaseline resultado.json baseline.json [umbral]
+ *
+ *  Cada benchmark se identifica por su nombre y sus parámetros. Un benchmark es una regresión si
+ *  empeora más que el umbral (por defecto 0.10, un 10 %) respecto al baseline: más tiempo por
+ *  operación en los modos de tiempo, o menos operaciones por segundo en el de throughput. Si hay
+ *  alguna regresión termina con código 1. Si el baseline no existe, se guarda el resultado como baseline.
+ */
+public class ComparadorBaseline {
+
+    private static final double UMBRAL_POR_DEFECTO = 0.10;
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: ComparadorBaseline resultado.json baseline.json [umbral]");
+            System.exit(2);
+        }
+        File resultado = new File(args[0]);
+        File baseline = new File(args[1]);
+        double umbral = args.length > 2 ? Double.parseDouble(args[2]) : UMBRAL_POR_DEFECTO;
+
+        if (!baseline.exists()) {
+            Files.createDirectories(baseline.getAbsoluteFile().toPath().getParent());
+            Files.copy(resultado.toPath(), baseline.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No había baseline: se ha guardado " + resultado + " como " + baseline);
+            return;
+        }
+
+        int regresiones = comparar(leer(resultado), leer(baseline), umbral);
+        if (regresiones > 0) {
+            System.out.println(regresiones + " benchmark(s) por encima del umbral de " + Math.round(umbral * 100) + " %");
+            System.exit(1);
+        }
+    }
+
+    static int comparar(Map<String, JsonNode> actuales, Map<String, JsonNode> anteriores, double umbral) {
+        int regresiones = 0;
+        for (Map.Entry<String, JsonNode> actual : actuales.entrySet()) {
+            JsonNode anterior = anteriores.get(actual.getKey());
+            if (anterior == null) {
+                System.out.printf("%-90s %12.3f %-8s (nuevo)%n", actual.getKey(), puntuacion(actual.getValue()),
+                        unidad(actual.getValue()));
+                continue;
+            }
+
+            // Cambio relativo, positivo cuando el benchmark empeora
+            double cambio = (puntuacion(actual.getValue()) - puntuacion(anterior)) / puntuacion(anterior);
+            if ("thrpt".equals(actual.getValue().path("mode").asText())) {
+                cambio = -cambio;
+            }
+            boolean regresion = cambio > umbral;
+            if (regresion) {
+                regresiones++;
+            }
+            System.out.printf("%-90s %12.3f %-8s baseline %12.3f  %+6.1f %%%s%n", actual.getKey(),
+                    puntuacion(actual.getValue()), unidad(actual.getValue()), puntuacion(anterior),
+                    cambio * 100, regresion ? "  REGRESIÓN" : "");
+        }
+        return regresiones;
+    }
+
+    static Map<String, JsonNode> leer(File fichero) throws IOException {
+        Map<String, JsonNode> benchmarks = new LinkedHashMap<>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(fichero)) {
+            benchmarks.put(clave(benchmark), benchmark);
+        }
+        return benchmarks;
+    }
+
+    // Nombre del benchmark y sus parámetros (ordenados), p. ej. IngresoServiceBenchmark.crearIngreso{mascotas=1000}
+    private static String clave(JsonNode benchmark) {
+        String nombre = benchmark.path("benchmark").asText().replace("com.hospital.benchmark.", "");
+        Map<String, String> parametros = new TreeMap<>();
+        benchmark.path("params").fields().forEachRemaining(p -> parametros.put(p.getKey(), p.getValue().asText()));
+        return parametros.isEmpty() ? nombre : nombre + parametros;
+    }
+
+    private static double puntuacion(JsonNode benchmark) {
+        return benchmark.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static String unidad(JsonNode benchmark) {
+        return benchmark.path("primaryMetric").path("scoreUnit").asText();
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.hospital.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.hospital.HospitalVeterinarioApplication;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.MascotaRepository;
+
+/**
+ *  Aplicación arrancada (sin servidor web) sobre una base de datos H2 en memoria propia, con
+ *  mascotas mascotas y ingresosPorMascota ingresos de cada una.
+ *  
+ *  Las especies, estados, fechas y DNIs se reparten de forma fija para que las búsquedas por
+ *  criterios devuelvan siempre la misma proporción de filas.
+ */
+@State(Scope.Benchmark)
+public class DatosBenchmark {
+
+    static final String[] ESPECIES = {"Perro", "Gato", "Conejo", "Hurón"};
+    static final String[] DNIS = {"12345678A", "87654321B", "11223344C", "44332211D", "55667788E"};
+    static final LocalDate PRIMERA_FECHA = LocalDate.of(2024, 1, 1);
+    
+    private static final int TAMANO_BLOQUE = 1000;
+    
+    @Param("1000")
+    public int mascotas;
+    
+    @Param("5")
+    public int ingresosPorMascota;
+    
+    ConfigurableApplicationContext contexto;
+    long[] idsMascota;
+    String[] dnisMascota;
+    long[] idsIngreso;
+    
+    private final SplittableRandom aleatorio = new SplittableRandom(42);
+    // El código es único: las mascotas sembradas tienen los códigos 0..mascotas-1 y las que se crean
+    // durante la medida, los siguientes
+    private int creadas;
+    
+    
+    @Setup(Level.Trial)
+    public void arrancar() {
+        arrancar(WebApplicationType.NONE);
+    }
+    
+    // Con WebApplicationType.SERVLET se levanta también el servidor web (p. ej. con server.port=0).
+    // Las propiedades se pasan como argumentos (--clave=valor) para que prevalezcan sobre application.properties
+    void arrancar(WebApplicationType tipo, String... propiedades) {
+        List<String> argumentos = new ArrayList<>();
+        argumentos.add("--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID());
+        argumentos.add("--hospital.auditoria.directorio=" + System.getProperty("java.io.tmpdir") + "/hospital-auditoria/" + UUID.randomUUID());
+        argumentos.add("--spring.main.banner-mode=off");
+        argumentos.add("--logging.level.root=WARN");
+        argumentos.add("--hospital.ocupacion.reconciliacion-ms=3600000");
+        for (String propiedad : propiedades) {
+            argumentos.add("--" + propiedad);
+        }
+        contexto = new SpringApplicationBuilder(HospitalVeterinarioApplication.class)
+                .web(tipo)
+                .run(argumentos.toArray(new String[0]));
+        sembrar();
+    }
+    
+    @TearDown(Level.Trial)
+    public void parar() {
+        contexto.close();
+    }
+    
+    private void sembrar() {
+        MascotaRepository mascotaRepository = contexto.getBean(MascotaRepository.class);
+        IngresoRepository ingresoRepository = contexto.getBean(IngresoRepository.class);
+
+        idsMascota = new long[mascotas];
+        dnisMascota = new String[mascotas];
+        idsIngreso = new long[mascotas * ingresosPorMascota];
+        int siguienteIngreso = 0;
+
+        for (int desde = 0; desde < mascotas; desde += TAMANO_BLOQUE) {
+            List<Mascota> bloque = new ArrayList<>(TAMANO_BLOQUE);
+            for (int i = desde; i < Math.min(desde + TAMANO_BLOQUE, mascotas); i++) {
+                Mascota mascota = new Mascota();
+                mascota.setEspecie(ESPECIES[i % ESPECIES.length]);
+                mascota.setRaza("Raza " + (i % 50));
+                mascota.setEdad(1 + i % 15);
+                mascota.setCodigo(i);
+                mascota.setDniResponsable(DNIS[i % DNIS.length]);
+                bloque.add(mascota);
+            }
+
+            List<Ingreso> ingresos = new ArrayList<>(bloque.size() * ingresosPorMascota);
+            for (Mascota mascota : mascotaRepository.saveAll(bloque)) {
+                int i = mascota.getCodigo();
+                idsMascota[i] = mascota.getId();
+                dnisMascota[i] = mascota.getDniResponsable();
+                for (int j = 0; j < ingresosPorMascota; j++) {
+                    Ingreso ingreso = new Ingreso();
+                    ingreso.setMascota(mascota);
+                    ingreso.setDniRegistrador(mascota.getDniResponsable());
+                    ingreso.setFechaAlta(PRIMERA_FECHA.plusDays((i + j) % 365));
+                    ingreso.setEstado(Estado.values()[(i + j) % Estado.values().length]);
+                    if (ingreso.getEstado() == Estado.FINALIZADO) {
+                        ingreso.setFechaFinalizacion(ingreso.getFechaAlta().plusDays(7));
+                    }
+                    ingresos.add(ingreso);
+                }
+            }
+            for (Ingreso ingreso : ingresoRepository.saveAll(ingresos)) {
+                idsIngreso[siguienteIngreso++] = ingreso.getId();
+            }
+        }
+    }
+    
+    
+    public <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+    
+    int posicionMascotaAleatoria() {
+        return aleatorio.nextInt(idsMascota.length);
+    }
+    
+    long idIngresoAleatorio() {
+        return idsIngreso[aleatorio.nextInt(idsIngreso.length)];
+    }
+    
+    LocalDate fechaAleatoria() {
+        return PRIMERA_FECHA.plusDays(aleatorio.nextInt(365));
+    }
+    
+    Estado estadoAleatorio() {
+        return Estado.values()[aleatorio.nextInt(Estado.values().length)];
+    }
+    
+    String especieAleatoria() {
+        return ESPECIES[aleatorio.nextInt(ESPECIES.length)];
+    }
+    
+    String dniAleatorio() {
+        return DNIS[aleatorio.nextInt(DNIS.length)];
+    }
+    
+    int codigoNuevo() {
+        return mascotas + creadas++;
+    }
+    
+}
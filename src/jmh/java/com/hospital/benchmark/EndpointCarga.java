@@ -0,0 +1,114 @@
+package com.hospital.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+
+/**
+ *  Endpoints de /api/mascota y /api/ingreso que lanza el GeneradorCarga, con su peso por defecto
+ *  en la mezcla. Los IDs, DNIs y fechas se eligen al azar entre los datos sembrados por DatosBenchmark.
+ *
+ *  Las versiones reactivas de las lecturas (/api/reactivo) no entran en la mezcla por defecto: con
+ *  lectura=reactiva reciben el peso de su equivalente (ver equivalenteReactivo).
+ */
+enum EndpointCarga {
+
+    OBTENER_MASCOTA(25) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return get(base, "/api/mascota/" + datos.idsMascota[datos.posicionMascotaAleatoria()]);
+        }
+    },
+    HISTORIAL_MASCOTA(20) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return get(base, "/api/mascota/" + datos.idsMascota[datos.posicionMascotaAleatoria()] + "/ingreso");
+        }
+    },
+    CREAR_MASCOTA(5) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return json(base, "/api/mascota", "POST", "{\"especie\":\"" + datos.especieAleatoria()
+                    + "\",\"raza\":\"Carga\",\"edad\":3,\"codigo\":" + datos.codigoNuevo()
+                    + ",\"dniResponsable\":\"" + datos.dniAleatorio() + "\",\"activa\":true}");
+        }
+    },
+    BAJA_MASCOTA(1) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return HttpRequest.newBuilder(base.resolve("/api/mascota/" + datos.idsMascota[datos.posicionMascotaAleatoria()]))
+                    .DELETE();
+        }
+    },
+    LISTAR_INGRESOS(15) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return get(base, "/api/ingreso?limite=20&cursor=" + datos.idIngresoAleatorio());
+        }
+    },
+    CREAR_INGRESO(15) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            int posicion = datos.posicionMascotaAleatoria();
+            return json(base, "/api/ingreso/" + datos.idsMascota[posicion], "POST", "{\"fechaAlta\":\""
+                    + datos.fechaAleatoria() + "\",\"dniRegistrador\":\"" + datos.dnisMascota[posicion] + "\"}");
+        }
+    },
+    ACTUALIZAR_INGRESO(15) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return json(base, "/api/ingreso/" + datos.idsMascota[datos.posicionMascotaAleatoria()] + "/"
+                    + datos.idIngresoAleatorio(), "PUT", "{\"estado\":\"HOSPITALIZACION\"}");
+        }
+    },
+    ANULAR_INGRESO(4) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return HttpRequest.newBuilder(base.resolve("/api/ingreso/" + datos.idIngresoAleatorio())).DELETE();
+        }
+    },
+    REACTIVO_HISTORIAL_MASCOTA(0) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return get(base, "/api/reactivo/mascota/" + datos.idsMascota[datos.posicionMascotaAleatoria()] + "/ingreso");
+        }
+    },
+    REACTIVO_LISTAR_INGRESOS(0) {
+        @Override
+        HttpRequest.Builder peticion(URI base, DatosBenchmark datos) {
+            return get(base, "/api/reactivo/ingreso?limite=20&cursor=" + datos.idIngresoAleatorio());
+        }
+    };
+
+    final int pesoPorDefecto;
+
+
+    EndpointCarga(int pesoPorDefecto) {
+        this.pesoPorDefecto = pesoPorDefecto;
+    }
+
+    abstract HttpRequest.Builder peticion(URI base, DatosBenchmark datos);
+
+    // El mismo endpoint en /api/reactivo, o él mismo si no tiene versión reactiva
+    EndpointCarga equivalenteReactivo() {
+        switch (this) {
+            case HISTORIAL_MASCOTA:
+                return REACTIVO_HISTORIAL_MASCOTA;
+            case LISTAR_INGRESOS:
+                return REACTIVO_LISTAR_INGRESOS;
+            default:
+                return this;
+        }
+    }
+
+    private static HttpRequest.Builder get(URI base, String ruta) {
+        return HttpRequest.newBuilder(base.resolve(ruta)).GET();
+    }
+
+    private static HttpRequest.Builder json(URI base, String ruta, String metodo, String cuerpo) {
+        return HttpRequest.newBuilder(base.resolve(ruta))
+                .header("Content-Type", "application/json")
+                .method(metodo, BodyPublishers.ofString(cuerpo));
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.hospital.benchmark;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import com.hospital.services.IngresoServiceImpl;
+
+/**
+ *  Exportación NDJSON de todos los ingresos (exportarIngresos, GET /api/ingreso/export) a una salida
+ *  que descarta los bytes. Cada iteración es una exportación completa.
+ *
+ *  Además del tiempo, se imprime cuánto crece la memoria viva durante la exportación (MonitorHeap):
+ *  si no depende del número de ingresos, debe salir parecida con 100.000 y con 1.000.000.
+ *
+ *    -Djmh.filtro=ExportacionBenchmark -Djmh.mascotas=100000 -Djmh.ingresosPorMascota=1,10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportacionBenchmark {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private static final OutputStream DESCARTAR = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private IngresoServiceImpl ingresoService;
+    private final MonitorHeap monitor = new MonitorHeap();
+    private long base;
+    private long maximo;
+    private int recolecciones;
+    private long exportados;
+
+
+    @Setup(Level.Trial)
+    public void preparar(DatosBenchmark datos) {
+        ingresoService = datos.bean(IngresoServiceImpl.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void informar() {
+        System.out.printf("%n%d ingresos exportados: memoria viva antes %.1f MB, máxima durante la exportación %.1f MB "
+                + "(crece %.1f MB; %d recolecciones en la medida)%n", exportados, base / MB, maximo / MB,
+                Math.max(0, maximo - base) / MB, recolecciones);
+    }
+
+    @Setup(Level.Iteration)
+    public void empezarIteracion() {
+        monitor.empezar();
+    }
+
+    @TearDown(Level.Iteration)
+    public void terminarIteracion(IterationParams iteracion) {
+        monitor.terminar();
+        if (iteracion.getType() == IterationType.MEASUREMENT) {
+            if (monitor.crecimientoMaximoBytes() >= maximo - base) {
+                base = monitor.baseBytes();
+                maximo = monitor.maximoBytes();
+            }
+            recolecciones += monitor.getRecolecciones();
+        }
+    }
+
+    @Benchmark
+    public long exportarIngresos() throws Exception {
+        exportados = ingresoService.exportarIngresos(DESCARTAR);
+        return exportados;
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.hospital.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ *  Generador de carga HTTP en bucle abierto.
+ *
+ *  Uso: GeneradorCarga [clave=valor ...]
+ *    mascotas, ingresosPorMascota   tamaño de los datos sembrados (1000, 5)
+ *    tasa                           peticiones por segundo (200)
+ *    duracion, calentamiento        segundos de medida y de calentamiento previo (60, 10)
+ *    mezcla                         pesos de los endpoints, p. ej. OBTENER_MASCOTA=50,BAJA_MASCOTA=0
+ *                                   (los no indicados mantienen su peso de EndpointCarga)
+ *    resultado                      fichero JSON donde guardar el informe (opcional)
+ *    hilos                          plataforma, virtuales (hospital.hilos-virtuales) o ambos para ejecutar
+ *                                   la misma prueba en los dos modos y compararlos (plataforma)
+ *    hilosTomcat, conexiones        hilos de plataforma de Tomcat y conexiones del pool JDBC (200, 10)
+ *    latenciaJdbcMs                 retraso de cada sentencia SQL de una petición (0), ver InspectorLatencia
+ *                                   (solo JDBC: las lecturas reactivas no pasan por Hibernate)
+ *    lectura                        mvc, reactiva (el peso de HISTORIAL_MASCOTA y LISTAR_INGRESOS pasa a sus
+ *                                   versiones de /api/reactivo) o ambas para comparar las dos (mvc)
+ *
+ *  Arranca la aplicación en un puerto aleatorio sobre H2 en memoria con los datos de DatosBenchmark y
+ *  lanza las peticiones según un calendario fijo: la i-ésima sale en inicio + i / tasa, sin esperar a que
+ *  respondan las anteriores. La latencia se mide desde ese instante previsto y no desde el envío real, así
+ *  que si el servidor (o el propio generador) se retrasa, el retraso cuenta en los percentiles en lugar de
+ *  desaparecer de la medida (omisión coordinada).
+ *
+ *  Durante la medida también se registran el máximo de hilos vivos y de heap ocupado en la JVM, que
+ *  incluyen los del propio generador (los mismos en todos los modos).
+ */
+public class GeneradorCarga {
+
+    private static final long ESPERA_FINAL_MS = 30000;
+
+    private final DatosBenchmark datos;
+    private final URI base;
+    private final HttpClient cliente;
+    private final ExecutorService hilos;
+    private final EndpointCarga[] endpoints;
+    private final int[] pesosAcumulados;
+    private final SplittableRandom aleatorio = new SplittableRandom(7);
+
+    private final Map<EndpointCarga, Histogram> latencias = new EnumMap<>(EndpointCarga.class);
+    private final Map<EndpointCarga, LongAdder> errores = new EnumMap<>(EndpointCarga.class);
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final AtomicLong heapMaximo = new AtomicLong();
+
+
+    GeneradorCarga(DatosBenchmark datos, URI base, Map<EndpointCarga, Integer> mezcla) {
+        this.datos = datos;
+        this.base = base;
+        this.hilos = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(hilos)
+                .build();
+
+        List<EndpointCarga> activos = new ArrayList<>();
+        List<Integer> acumulados = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<EndpointCarga, Integer> peso : mezcla.entrySet()) {
+            if (peso.getValue() > 0) {
+                total += peso.getValue();
+                activos.add(peso.getKey());
+                acumulados.add(total);
+                latencias.put(peso.getKey(), new ConcurrentHistogram(3));
+                errores.put(peso.getKey(), new LongAdder());
+            }
+        }
+        if (activos.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla no incluye ningún endpoint");
+        }
+        this.endpoints = activos.toArray(new EndpointCarga[0]);
+        this.pesosAcumulados = acumulados.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = leerOpciones(args);
+        String hilos = opciones.getOrDefault("hilos", "plataforma");
+        List<String> modos = "ambos".equals(hilos) ? Arrays.asList("plataforma", "virtuales") : Collections.singletonList(hilos);
+        String lectura = opciones.getOrDefault("lectura", "mvc");
+        List<String> lecturas = "ambas".equals(lectura) ? Arrays.asList("mvc", "reactiva") : Collections.singletonList(lectura);
+
+        Map<String, List<Map<String, Object>>> informes = new LinkedHashMap<>();
+        for (String modo : modos) {
+            for (String modoLectura : lecturas) {
+                String nombre = lecturas.size() > 1 || !"mvc".equals(modoLectura) ? modo + "/" + modoLectura : modo;
+                informes.put(nombre, ejecutarModo(modo, modoLectura, opciones));
+            }
+        }
+        if (informes.size() > 1) {
+            comparar(informes);
+        }
+
+        String resultado = opciones.get("resultado");
+        if (resultado != null && !resultado.isEmpty()) {
+            Object informe = informes.size() > 1 ? informes : informes.values().iterator().next();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(resultado), informe);
+        }
+        System.exit(0);
+    }
+
+    // Cada modo con su propia instancia de la aplicación y los mismos datos
+    private static List<Map<String, Object>> ejecutarModo(String modo, String lectura, Map<String, String> opciones) throws Exception {
+        if (!"plataforma".equals(modo) && !"virtuales".equals(modo)) {
+            throw new IllegalArgumentException("Modo de hilos no válido (plataforma, virtuales o ambos): " + modo);
+        }
+        if (!"mvc".equals(lectura) && !"reactiva".equals(lectura)) {
+            throw new IllegalArgumentException("Modo de lectura no válido (mvc, reactiva o ambas): " + lectura);
+        }
+        Map<EndpointCarga, Integer> mezcla = leerMezcla(opciones.getOrDefault("mezcla", ""));
+        if ("reactiva".equals(lectura)) {
+            mezcla = aLecturaReactiva(mezcla);
+        }
+        String latenciaJdbcMs = opciones.getOrDefault("latenciaJdbcMs", "0");
+        System.setProperty(InspectorLatencia.PROPIEDAD, latenciaJdbcMs);
+
+        DatosBenchmark datos = new DatosBenchmark();
+        datos.mascotas = Integer.parseInt(opciones.getOrDefault("mascotas", "1000"));
+        datos.ingresosPorMascota = Integer.parseInt(opciones.getOrDefault("ingresosPorMascota", "5"));
+        datos.arrancar(WebApplicationType.SERVLET, "server.port=0",
+                "hospital.hilos-virtuales=" + "virtuales".equals(modo),
+                "server.tomcat.threads.max=" + opciones.getOrDefault("hilosTomcat", "200"),
+                "spring.datasource.hikari.maximum-pool-size=" + opciones.getOrDefault("conexiones", "10"),
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + InspectorLatencia.class.getName());
+
+        try {
+            URI base = URI.create("http://localhost:" + datos.contexto.getEnvironment().getProperty("local.server.port"));
+            GeneradorCarga generador = new GeneradorCarga(datos, base, mezcla);
+
+            double tasa = Double.parseDouble(opciones.getOrDefault("tasa", "200"));
+            long calentamiento = Long.parseLong(opciones.getOrDefault("calentamiento", "10"));
+            long duracion = Long.parseLong(opciones.getOrDefault("duracion", "60"));
+            System.out.printf("%nHilos %s, lectura %s; %d mascotas, %d ingresos por mascota; %.0f peticiones/s durante %d s "
+                    + "(+%d s de calentamiento); %s ms por sentencia SQL%n",
+                    modo, lectura, datos.mascotas, datos.ingresosPorMascota, tasa, duracion, calentamiento, latenciaJdbcMs);
+
+            return generador.ejecutar(tasa, calentamiento, duracion);
+        } finally {
+            datos.parar();
+        }
+    }
+
+    // Totales de cada modo, uno debajo de otro
+    private static void comparar(Map<String, List<Map<String, Object>>> informes) {
+        System.out.printf("%n%-20s %10s %8s %9s %10s %10s %10s %10s %10s %8s%n",
+                "Modo", "Peticiones", "Errores", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "Hilos JVM", "Heap MB");
+        for (Map.Entry<String, List<Map<String, Object>>> informe : informes.entrySet()) {
+            Map<String, Object> total = informe.getValue().get(informe.getValue().size() - 1);
+            System.out.printf("%-20s %10d %8d %9.1f %10.2f %10.2f %10.2f %10.2f %10d %8d%n", informe.getKey(), total.get("peticiones"),
+                    total.get("errores"), total.get("throughput"), total.get("p50"), total.get("p99"), total.get("p999"), total.get("max"),
+                    total.get("hilosMax"), total.get("heapMaxMb"));
+        }
+    }
+
+    List<Map<String, Object>> ejecutar(double tasa, long segundosCalentamiento, long segundosMedida) throws InterruptedException {
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / tasa);
+        long inicio = System.nanoTime();
+        long inicioMedida = inicio + TimeUnit.SECONDS.toNanos(segundosCalentamiento);
+        long fin = inicioMedida + TimeUnit.SECONDS.toNanos(segundosMedida);
+
+        // Hilos y heap de la JVM desde el inicio de la medida hasta la última respuesta
+        ThreadMXBean hilosJvm = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoriaJvm = ManagementFactory.getMemoryMXBean();
+        ScheduledExecutorService muestreo = Executors.newSingleThreadScheduledExecutor();
+        muestreo.schedule(hilosJvm::resetPeakThreadCount, segundosCalentamiento, TimeUnit.SECONDS);
+        muestreo.scheduleAtFixedRate(() -> heapMaximo.accumulateAndGet(memoriaJvm.getHeapMemoryUsage().getUsed(), Math::max),
+                TimeUnit.SECONDS.toMillis(segundosCalentamiento), 100, TimeUnit.MILLISECONDS);
+
+        for (long i = 0; ; i++) {
+            long previsto = inicio + i * intervalo;
+            if (previsto >= fin) {
+                break;
+            }
+            // Se espera al instante previsto; si ya ha pasado, la petición sale en el acto
+            long espera;
+            while ((espera = previsto - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            lanzar(elegirEndpoint(), previsto, previsto >= inicioMedida);
+        }
+
+        long limite = System.currentTimeMillis() + ESPERA_FINAL_MS;
+        while (enVuelo.get() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        if (enVuelo.get() > 0) {
+            System.out.println(enVuelo.get() + " peticiones sin respuesta tras " + ESPERA_FINAL_MS / 1000 + " s");
+        }
+        muestreo.shutdownNow();
+        hilos.shutdownNow();
+
+        return informar(segundosMedida, hilosJvm.getPeakThreadCount());
+    }
+
+    private void lanzar(EndpointCarga endpoint, long previsto, boolean medir) {
+        enVuelo.incrementAndGet();
+        cliente.sendAsync(endpoint.peticion(base, datos).timeout(Duration.ofSeconds(30)).build(), BodyHandlers.discarding())
+                .whenComplete((respuesta, error) -> {
+                    long latencia = System.nanoTime() - previsto;
+                    if (medir) {
+                        latencias.get(endpoint).recordValue(TimeUnit.NANOSECONDS.toMicros(latencia));
+                        if (error != null || respuesta.statusCode() >= 400) {
+                            errores.get(endpoint).increment();
+                        }
+                    }
+                    enVuelo.decrementAndGet();
+                });
+    }
+
+    private EndpointCarga elegirEndpoint() {
+        int valor = aleatorio.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        int i = 0;
+        while (valor >= pesosAcumulados[i]) {
+            i++;
+        }
+        return endpoints[i];
+    }
+
+    private List<Map<String, Object>> informar(long segundosMedida, int hilosMaximo) {
+        List<Map<String, Object>> informe = new ArrayList<>();
+        Histogram total = new Histogram(3);
+        long erroresTotales = 0;
+
+        System.out.printf("%n%-26s %10s %8s %9s %10s %10s %10s %10s%n",
+                "Endpoint", "Peticiones", "Errores", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointCarga endpoint : endpoints) {
+            Histogram histograma = latencias.get(endpoint);
+            long numErrores = errores.get(endpoint).sum();
+            total.add(histograma);
+            erroresTotales += numErrores;
+            informe.add(linea(endpoint.name(), histograma, numErrores, segundosMedida));
+        }
+        Map<String, Object> totales = linea("TOTAL", total, erroresTotales, segundosMedida);
+        totales.put("hilosMax", hilosMaximo);
+        totales.put("heapMaxMb", heapMaximo.get() / (1024 * 1024));
+        informe.add(totales);
+        System.out.printf("JVM: %d hilos vivos y %d MB de heap ocupado como máximo%n", hilosMaximo, totales.get("heapMaxMb"));
+        return informe;
+    }
+
+    private static Map<String, Object> linea(String nombre, Histogram histograma, long numErrores, long segundosMedida) {
+        Map<String, Object> linea = new LinkedHashMap<>();
+        linea.put("endpoint", nombre);
+        linea.put("peticiones", histograma.getTotalCount());
+        linea.put("errores", numErrores);
+        linea.put("throughput", (double) histograma.getTotalCount() / segundosMedida);
+        linea.put("p50", milisegundos(histograma.getValueAtPercentile(50)));
+        linea.put("p99", milisegundos(histograma.getValueAtPercentile(99)));
+        linea.put("p999", milisegundos(histograma.getValueAtPercentile(99.9)));
+        linea.put("max", milisegundos(histograma.getMaxValue()));
+
+        System.out.printf("%-26s %10d %8d %9.1f %10.2f %10.2f %10.2f %10.2f%n", nombre, linea.get("peticiones"),
+                numErrores, linea.get("throughput"), linea.get("p50"), linea.get("p99"), linea.get("p999"), linea.get("max"));
+        return linea;
+    }
+
+    private static double milisegundos(long microsegundos) {
+        return microsegundos / 1000.0;
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual < 0) {
+                throw new IllegalArgumentException("Opción no válida (se espera clave=valor): " + arg);
+            }
+            opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        return opciones;
+    }
+
+    // "OBTENER_MASCOTA=50,BAJA_MASCOTA=0" sobre los pesos por defecto
+    static Map<EndpointCarga, Integer> leerMezcla(String mezcla) {
+        Map<EndpointCarga, Integer> pesos = new EnumMap<>(EndpointCarga.class);
+        for (EndpointCarga endpoint : EndpointCarga.values()) {
+            pesos.put(endpoint, endpoint.pesoPorDefecto);
+        }
+        for (String peso : mezcla.split(",")) {
+            if (!peso.trim().isEmpty()) {
+                String[] partes = peso.split("=");
+                pesos.put(EndpointCarga.valueOf(partes[0].trim()), Integer.parseInt(partes[1].trim()));
+            }
+        }
+        return pesos;
+    }
+
+    // Las lecturas con versión reactiva se lanzan contra /api/reactivo, con el mismo peso
+    static Map<EndpointCarga, Integer> aLecturaReactiva(Map<EndpointCarga, Integer> mezcla) {
+        Map<EndpointCarga, Integer> pesos = new EnumMap<>(EndpointCarga.class);
+        for (Map.Entry<EndpointCarga, Integer> peso : mezcla.entrySet()) {
+            pesos.merge(peso.getKey().equivalenteReactivo(), peso.getValue(), Integer::sum);
+        }
+        return pesos;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.hospital.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.entity.Estado;
+import com.hospital.indice.IndiceIngresosMascota;
+
+/**
+ *  Índice de ingresos por mascota (IndiceIngresosMascota, en el heap y fuera de él) frente a un
+ *  HashMap<Long, List<EstadoIngreso>>: memoria ocupada (se escribe al preparar los datos) y tiempo de
+ *  consulta de los ingresos de una mascota y de si está hospitalizada. Sin Spring ni base de datos.
+ *
+ *  Con 10 millones de ingresos: -Djmh.mascotas=1000000 -Djmh.ingresosPorMascota=10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g", "-XX:MaxDirectMemorySize=1g" })
+public class IndiceIngresosBenchmark {
+
+    @Param("1000")
+    public int mascotas;
+    
+    @Param("5")
+    public int ingresosPorMascota;
+    
+    @Param({ "INDICE", "INDICE_FUERA_DEL_HEAP", "HASH_MAP" })
+    public String estructura;
+    
+    private final SplittableRandom aleatorio = new SplittableRandom(42);
+    
+    private IndiceIngresosMascota indice;
+    private Map<Long, List<EstadoIngreso>> mapa;
+    
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        long heapInicial = heapUsado();
+        long fueraDelHeapInicial = fueraDelHeapUsado();
+        long ingresos = (long) mascotas * ingresosPorMascota;
+        SplittableRandom estados = new SplittableRandom(7);
+
+        // Los ingresos de cada mascota intercalados con los del resto, como llegan en la realidad
+        if ("HASH_MAP".equals(estructura)) {
+            mapa = new HashMap<>();
+            for (long idIngreso = 1; idIngreso <= ingresos; idIngreso++) {
+                Long idMascota = idIngreso % mascotas + 1;
+                mapa.computeIfAbsent(idMascota, id -> new ArrayList<>())
+                        .add(new EstadoIngreso(idIngreso, estado(estados), null, idMascota, 0L));
+            }
+        } else {
+            indice = new IndiceIngresosMascota(mascotas, (int) ingresos, "INDICE_FUERA_DEL_HEAP".equals(estructura));
+            for (long idIngreso = 1; idIngreso <= ingresos; idIngreso++) {
+                indice.registrar(idIngreso % mascotas + 1, idIngreso, estado(estados), 0L);
+            }
+            indice.compactar();
+        }
+
+        System.out.printf("%n%s: %d mascotas, %d ingresos, %d MB en el heap, %d MB fuera del heap%n", estructura,
+                mascotas, ingresos, (heapUsado() - heapInicial) >> 20, (fueraDelHeapUsado() - fueraDelHeapInicial) >> 20);
+    }
+    
+    @Benchmark
+    public long[] obtenerIngresos() {
+        long idMascota = aleatorio.nextInt(mascotas) + 1;
+        if (indice != null) {
+            return indice.obtenerIngresos(idMascota);
+        }
+        List<EstadoIngreso> ingresos = mapa.getOrDefault(idMascota, List.of());
+        long[] ids = new long[ingresos.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ingresos.get(i).getId();
+        }
+        return ids;
+    }
+    
+    @Benchmark
+    public boolean estaHospitalizada() {
+        long idMascota = aleatorio.nextInt(mascotas) + 1;
+        if (indice != null) {
+            return indice.tieneIngresoEn(idMascota, Estado.HOSPITALIZACION);
+        }
+        for (EstadoIngreso ingreso : mapa.getOrDefault(idMascota, List.of())) {
+            if (ingreso.getEstado() == Estado.HOSPITALIZACION) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    
+    // La mayoría de los ingresos están finalizados; uno de cada 16 sigue hospitalizado
+    private static Estado estado(SplittableRandom estados) {
+        int i = estados.nextInt(16);
+        return i == 0 ? Estado.HOSPITALIZACION : i == 1 ? Estado.ALTA : i == 2 ? Estado.ANULADO : Estado.FINALIZADO;
+    }
+    
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private static long fueraDelHeapUsado() {
+        long total = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                total += pool.getMemoryUsed();
+            }
+        }
+        return total;
+    }
+    
+}
@@ -0,0 +1,102 @@
+package com.hospital.benchmark;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ *  Latencia de las consultas que cubren los índices de las migraciones (V2, V4, V8) según el tamaño
+ *  de las tablas, con los índices (indices=con) y sin ellos (indices=sin: se borran después de sembrar,
+ *  como estaba el esquema con ddl-auto=update; solo queda el índice que H2 crea para la clave foránea).
+ *
+ *  Las consultas van por JDBC para medir solo la base de datos, sin las cachés de los repositorios.
+ *
+ *    -Djmh.filtro=IndicesBenchmark -Djmh.mascotas=1000,10000,100000 -Djmh.ingresosPorMascota=5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndicesBenchmark {
+
+    @Param("1000")
+    public int mascotas;
+
+    @Param("5")
+    public int ingresosPorMascota;
+
+    @Param({"con", "sin"})
+    public String indices;
+
+    private final DatosBenchmark datos = new DatosBenchmark();
+    private JdbcTemplate jdbc;
+
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        datos.mascotas = mascotas;
+        datos.ingresosPorMascota = ingresosPorMascota;
+        datos.arrancar(WebApplicationType.NONE);
+        jdbc = datos.bean(JdbcTemplate.class);
+        if ("sin".equals(indices)) {
+            for (String indice : jdbc.queryForList("select index_name from information_schema.indexes "
+                    + "where table_name in ('INGRESOS', 'MASCOTAS') and index_name like 'IDX\\_%' escape '\\'", String.class)) {
+                jdbc.execute("drop index " + indice);
+            }
+        }
+        jdbc.execute("analyze");
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        datos.parar();
+    }
+
+    // Historial de una mascota en orden de id (idx_ingresos_mascota_id)
+    @Benchmark
+    public List<Map<String, Object>> historialMascota() {
+        return jdbc.queryForList("select id, fecha_alta, estado from ingresos where mascota_id = ? order by id",
+                datos.idsMascota[datos.posicionMascotaAleatoria()]);
+    }
+
+    // Ingresos abiertos de una mascota (idx_ingresos_mascota_estado)
+    @Benchmark
+    public List<Map<String, Object>> ingresosAbiertosMascota() {
+        return jdbc.queryForList("select id from ingresos where mascota_id = ? and estado in ('ALTA', 'HOSPITALIZACION')",
+                datos.idsMascota[datos.posicionMascotaAleatoria()]);
+    }
+
+    // Ingresos de un estado dados de alta un día concreto (idx_ingresos_estado_fecha_alta)
+    @Benchmark
+    public List<Map<String, Object>> porEstadoYFechaAlta() {
+        return jdbc.queryForList("select id from ingresos where estado = ? and fecha_alta = ?",
+                datos.estadoAleatorio().name(), Date.valueOf(datos.fechaAleatoria()));
+    }
+
+    // Primera página de las mascotas activas de un responsable (idx_mascotas_dni_responsable_activa_id)
+    @Benchmark
+    public List<Map<String, Object>> mascotasResponsable() {
+        return jdbc.queryForList("select id from mascotas where dni_responsable = ? and activa = true "
+                + "order by dni_responsable, activa, id limit 20", datos.dniAleatorio());
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.hospital.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.PaginaIngresos;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.services.IngresoServiceImpl;
+
+/**
+ *  Alta, actualización y búsqueda por criterios de ingresos (IngresoServiceImpl) contra H2.
+ *  Las búsquedas cubren los filtros habituales, cada uno resuelto con su índice (V2/V4).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngresoServiceBenchmark {
+
+    private IngresoServiceImpl ingresoService;
+    
+    
+    @Setup(Level.Trial)
+    public void preparar(DatosBenchmark datos) {
+        ingresoService = datos.bean(IngresoServiceImpl.class);
+    }
+    
+    @Benchmark
+    public Ingreso crearIngreso(DatosBenchmark datos) throws Exception {
+        int mascota = datos.posicionMascotaAleatoria();
+        return ingresoService.crearIngreso(datos.idsMascota[mascota], datos.fechaAleatoria(), datos.dnisMascota[mascota]);
+    }
+    
+    @Benchmark
+    public Ingreso actualizarIngreso(DatosBenchmark datos) throws Exception {
+        Ingreso detalles = new Ingreso();
+        detalles.setEstado(Estado.FINALIZADO);
+        detalles.setFechaFinalizacion(datos.fechaAleatoria());
+        return ingresoService.actualizarIngreso(null, datos.idIngresoAleatorio(), detalles);
+    }
+    
+    @Benchmark
+    public PaginaIngresos buscarPorEstado(DatosBenchmark datos) {
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setEstado(datos.estadoAleatorio());
+        return ingresoService.buscarIngresos(filtro, null, null);
+    }
+    
+    @Benchmark
+    public PaginaIngresos buscarPorEstadoYFechaAlta(DatosBenchmark datos) {
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setEstado(datos.estadoAleatorio());
+        filtro.setFechaAltaDesde(datos.fechaAleatoria());
+        filtro.setFechaAltaHasta(filtro.getFechaAltaDesde().plusDays(30));
+        return ingresoService.buscarIngresos(filtro, null, null);
+    }
+    
+    @Benchmark
+    public PaginaIngresos buscarPorFechaFinalizacion(DatosBenchmark datos) {
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setFechaFinalizacionDesde(datos.fechaAleatoria());
+        filtro.setFechaFinalizacionHasta(filtro.getFechaFinalizacionDesde().plusDays(30));
+        return ingresoService.buscarIngresos(filtro, null, null);
+    }
+    
+    @Benchmark
+    public PaginaIngresos buscarPorEspecie(DatosBenchmark datos) {
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setEspecie(datos.especieAleatoria());
+        return ingresoService.buscarIngresos(filtro, null, null);
+    }
+    
+    @Benchmark
+    public PaginaIngresos buscarPorDniRegistrador(DatosBenchmark datos) {
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setDniRegistrador(datos.dniAleatorio());
+        return ingresoService.buscarIngresos(filtro, null, null);
+    }
+    
+}
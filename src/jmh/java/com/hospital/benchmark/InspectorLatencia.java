@@ -0,0 +1,37 @@
+package com.hospital.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.hospital.repository.InspectorSql;
+
+/**
+ *  InspectorSql que además retrasa cada sentencia de una petición HTTP el tiempo indicado en la
+ *  propiedad de sistema PROPIEDAD, para simular una base de datos lenta en las pruebas de carga (con
+ *  H2 en memoria las peticiones apenas esperan). La conexión JDBC queda ocupada durante la espera,
+ *  igual que con una base de datos remota. Las sentencias de fuera de una petición (la siembra de
+ *  datos) no se retrasan, salvo que se active retrasarFueraDePeticion (benchmarks sin servidor web,
+ *  una vez sembrados los datos).
+ */
+public class InspectorLatencia extends InspectorSql {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String PROPIEDAD = "carga.latenciaJdbcMs";
+
+    static volatile boolean retrasarFueraDePeticion;
+
+    private final long latenciaNs = TimeUnit.MILLISECONDS.toNanos(Long.getLong(PROPIEDAD, 0));
+
+
+    @Override
+    public String inspect(String sql) {
+        if (latenciaNs > 0 && (retrasarFueraDePeticion || RequestContextHolder.getRequestAttributes() != null)) {
+            LockSupport.parkNanos(latenciaNs);
+        }
+        return super.inspect(sql);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.hospital.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.services.MascotaServiceImpl;
+
+/**
+ *  Historial de ingresos de una mascota (MascotaServiceImpl) contra H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MascotaServiceBenchmark {
+
+    private MascotaServiceImpl mascotaService;
+    
+    
+    @Setup(Level.Trial)
+    public void preparar(DatosBenchmark datos) {
+        mascotaService = datos.bean(MascotaServiceImpl.class);
+    }
+    
+    @Benchmark
+    public List<IngresoResumen> buscarIngresosPorMascotaId(DatosBenchmark datos) {
+        return mascotaService.buscarIngresosPorMascotaId(datos.idsMascota[datos.posicionMascotaAleatoria()]);
+    }
+    
+}
@@ -0,0 +1,101 @@
+package com.hospital.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ *  Heap ocupado después de cada recolección mientras está activo: lo que queda tras una GC es
+ *  (casi todo) memoria viva, así que el máximo indica cuánta memoria retiene la operación medida,
+ *  a diferencia del heap usado en un instante cualquiera, que incluye la basura aún no recogida.
+ *
+ *  empezar() hace una GC para tomar la línea base (los datos ya cargados, la propia H2 en memoria)
+ *  y crecimientoMaximoBytes() devuelve el máximo por encima de ella.
+ */
+class MonitorHeap implements NotificationListener {
+
+    private final AtomicLong maximo = new AtomicLong();
+    private final AtomicInteger recolecciones = new AtomicInteger();
+    private final List<NotificationEmitter> emisores = new ArrayList<>();
+    private final Set<String> zonasHeap = new HashSet<>();
+    private long base;
+
+
+    void empezar() {
+        System.gc();
+        base = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        maximo.set(base);
+        recolecciones.set(0);
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                zonasHeap.add(zona.getName());
+            }
+        }
+        for (GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            NotificationEmitter emisor = (NotificationEmitter) recolector;
+            emisor.addNotificationListener(this, null, null);
+            emisores.add(emisor);
+        }
+    }
+
+    void terminar() {
+        for (NotificationEmitter emisor : emisores) {
+            try {
+                emisor.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // Ya no estaba registrado
+            }
+        }
+        emisores.clear();
+    }
+
+    long baseBytes() {
+        return base;
+    }
+
+    long maximoBytes() {
+        return maximo.get();
+    }
+
+    long crecimientoMaximoBytes() {
+        return Math.max(0, maximo.get() - base);
+    }
+
+    int getRecolecciones() {
+        return recolecciones.get();
+    }
+
+    @Override
+    public void handleNotification(Notification notificacion, Object contexto) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notificacion.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notificacion.getUserData());
+        long ocupado = 0;
+        // Solo las zonas del heap: el mapa incluye también metaspace y la caché de código
+        for (Map.Entry<String, MemoryUsage> zona : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (zonasHeap.contains(zona.getKey())) {
+                ocupado += zona.getValue().getUsed();
+            }
+        }
+        recolecciones.incrementAndGet();
+        maximo.accumulateAndGet(ocupado, Math::max);
+    }
+}
@@ -0,0 +1,81 @@
+package com.hospital.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+
+/**
+ *  Serialización a JSON de Ingreso (con su mascota) y de Mascota, con la misma configuración de
+ *  Jackson que usa Spring Boot en las respuestas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    private ObjectWriter escritorIngreso;
+    private ObjectWriter escritorMascota;
+    private Ingreso ingreso;
+    private Mascota mascota;
+    
+    
+    @Setup
+    public void preparar() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        escritorIngreso = objectMapper.writerFor(Ingreso.class);
+        escritorMascota = objectMapper.writerFor(Mascota.class);
+
+        mascota = new Mascota();
+        mascota.setId(1L);
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Labrador");
+        mascota.setEdad(3);
+        mascota.setCodigo(1001);
+        mascota.setDniResponsable("12345678A");
+        mascota.setVersion(0L);
+
+        ingreso = new Ingreso();
+        ingreso.setId(1L);
+        ingreso.setFechaAlta(LocalDate.of(2024, 7, 10));
+        ingreso.setFechaFinalizacion(LocalDate.of(2024, 7, 15));
+        ingreso.setEstado(Estado.FINALIZADO);
+        ingreso.setDniRegistrador("12345678A");
+        ingreso.setMascota(mascota);
+        ingreso.setVersion(0L);
+    }
+    
+    @Benchmark
+    public byte[] serializarIngreso() throws JsonProcessingException {
+        return escritorIngreso.writeValueAsBytes(ingreso);
+    }
+    
+    @Benchmark
+    public byte[] serializarMascota() throws JsonProcessingException {
+        return escritorMascota.writeValueAsBytes(mascota);
+    }
+    
+}
@@ -0,0 +1,90 @@
+package com.hospital.auditoria;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ *  Cola circular acotada sin bloqueos para varios productores y un único consumidor.
+ *
+ *  Cada hueco tiene un número de secuencia que indica de quién es el turno: si vale la posición
+ *  del productor, el hueco está libre para esa vuelta; si vale posición + 1, tiene un elemento
+ *  listo para el consumidor. Los productores se reparten las posiciones con un compareAndSet sobre
+ *  la cola, así que nunca se bloquean entre sí.
+ *
+ *  El buffer no bloquea ni descarta: si está lleno, ofrecer() devuelve false y es quien lo usa el que
+ *  decide. AuditoriaServiceImpl reintenta hasta que el consumidor libera hueco, así que con el buffer
+ *  lleno los productores quedan frenados al ritmo al que el consumidor escribe en disco.
+ */
+public class BufferAnillo<T> {
+
+	private final int mascara;
+	private final AtomicReferenceArray<T> elementos;
+	private final AtomicLongArray secuencias;
+	private final AtomicLong cola = new AtomicLong();
+
+	// Solo la usa el consumidor
+	private long cabeza;
+
+
+	// La capacidad se redondea a la siguiente potencia de 2
+	public BufferAnillo(int capacidad) {
+		int tamano = capacidad <= 2 ? 2 : Integer.highestOneBit(capacidad - 1) << 1;
+		this.mascara = tamano - 1;
+		this.elementos = new AtomicReferenceArray<>(tamano);
+		this.secuencias = new AtomicLongArray(tamano);
+		for (int i = 0; i < tamano; i++) {
+			secuencias.set(i, i);
+		}
+	}
+
+	public boolean ofrecer(T elemento) {
+		long posicion;
+		int hueco;
+		while (true) {
+			posicion = cola.get();
+			hueco = (int) (posicion & mascara);
+			long diferencia = secuencias.get(hueco) - posicion;
+			if (diferencia == 0) {
+				if (cola.compareAndSet(posicion, posicion + 1)) {
+					break;
+				}
+			} else if (diferencia < 0) {
+				// El consumidor aún no ha liberado el hueco de la vuelta anterior
+				return false;
+			}
+		}
+		elementos.lazySet(hueco, elemento);
+		secuencias.set(hueco, posicion + 1);
+		return true;
+	}
+
+	// Entrega al consumidor hasta maximo elementos, en orden; devuelve cuántos ha entregado
+	public int drenar(Consumer<T> consumidor, int maximo) {
+		int entregados = 0;
+		while (entregados < maximo) {
+			int hueco = (int) (cabeza & mascara);
+			if (secuencias.get(hueco) != cabeza + 1) {
+				break;
+			}
+			T elemento = elementos.get(hueco);
+			elementos.lazySet(hueco, null);
+			secuencias.set(hueco, cabeza + mascara + 1);
+			cabeza++;
+			entregados++;
+			consumidor.accept(elemento);
+		}
+		return entregados;
+	}
+
+	// Solo para el consumidor: true si no hay ningún elemento listo para drenar
+	public boolean estaVacio() {
+		return secuencias.get((int) (cabeza & mascara)) != cabeza + 1;
+	}
+
+	public int capacidad() {
+		return mascara + 1;
+	}
+
+}
@@ -0,0 +1,339 @@
+package com.hospital.auditoria;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Log de auditoría en disco: solo se añaden registros al final, nunca se modifican.
+ *
+ *  Se guarda en segmentos de tamaño fijo (auditoria-<primera secuencia>.log) proyectados en memoria.
+ *  Cada segmento empieza con una cabecera con el identificador de la base de datos auditada, seguida
+ *  de los registros: [longitud][CRC32][secuencia, instante, ingreso, tipo, estados, DNI]; el resto del
+ *  segmento está a ceros. Lo escrito no es duradero hasta que se llama a forzar().
+ *
+ *  Las secuencias e IDs de los registros solo tienen sentido con la base de datos de la que salieron.
+ *  Si al abrir algún segmento es de otra (o no tiene cabecera), todos se apartan a un subdirectorio
+ *  anterior-<instante> y el log empieza de nuevo.
+ *
+ *  Al abrir, se recorren todos los segmentos comprobando el CRC de cada registro. En el último, el
+ *  primer registro incompleto o corrupto (una escritura cortada por una caída) marca el final: desde
+ *  ahí se pone a ceros el resto del segmento y se sigue escribiendo.
+ *
+ *  Escribe un único hilo (anadir, forzar y cerrar); leer() se puede llamar desde cualquiera.
+ *  Un fichero de bloqueo impide que dos procesos usen el mismo directorio.
+ */
+public class LogSegmentado implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(LogSegmentado.class);
+
+	private static final String PREFIJO = "auditoria-";
+	private static final String EXTENSION = ".log";
+	private static final String PREFIJO_APARTADOS = "anterior-";
+	// Cabecera de cada segmento: [MAGICO][longitud][identificador de la base de datos], a ceros hasta 64 bytes
+	private static final int MAGICO = 0x41554431;
+	private static final int CABECERA_SEGMENTO = 64;
+	private static final int MAX_INSTANCIA = CABECERA_SEGMENTO - 6;
+	private static final int CABECERA = 8;
+	private static final int DATOS_FIJOS = 29;
+	private static final int MAX_DNI = 255;
+	private static final byte SIN_ESTADO = -1;
+	private static final short SIN_DNI = -1;
+
+	public interface Visitante {
+		void registro(RegistroAuditoria registro, long posicion);
+	}
+
+	private final Path directorio;
+	private final int tamanoSegmento;
+	private final byte[] instancia;
+	private final FileChannel canalBloqueo;
+	private final FileLock bloqueo;
+
+	private final List<MappedByteBuffer> segmentos = new CopyOnWriteArrayList<>();
+	private MappedByteBuffer actual;
+	private int posicion;
+	private long siguienteSecuencia = 1;
+
+	private final CRC32 crc = new CRC32();
+	private final ByteBuffer datos = ByteBuffer.allocate(DATOS_FIJOS + MAX_DNI);
+
+
+	private LogSegmentado(Path directorio, int tamanoSegmento, String instancia) throws IOException {
+		this.instancia = instancia.getBytes(StandardCharsets.UTF_8);
+		if (this.instancia.length == 0 || this.instancia.length > MAX_INSTANCIA) {
+			throw new IllegalArgumentException("Identificador de base de datos no válido: '" + instancia + "'");
+		}
+		this.directorio = directorio;
+		this.tamanoSegmento = tamanoSegmento;
+		Files.createDirectories(directorio);
+		this.canalBloqueo = FileChannel.open(directorio.resolve("auditoria.lock"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.bloqueo = canalBloqueo.tryLock();
+		if (bloqueo == null) {
+			canalBloqueo.close();
+			throw new IOException("El log de auditoría " + directorio + " está en uso por otro proceso");
+		}
+	}
+
+	// Abre (o crea) el log de la base de datos instancia en el directorio y pasa cada registro recuperado
+	// al visitante
+	public static LogSegmentado abrir(Path directorio, int tamanoSegmento, String instancia, Visitante visitante) throws IOException {
+		LogSegmentado logSegmentado = new LogSegmentado(directorio, tamanoSegmento, instancia);
+		try {
+			logSegmentado.recuperar(visitante);
+		} catch (IOException | RuntimeException e) {
+			logSegmentado.close();
+			throw e;
+		}
+		return logSegmentado;
+	}
+
+	private void recuperar(Visitante visitante) throws IOException {
+		List<Path> ficheros;
+		try (Stream<Path> listado = Files.list(directorio)) {
+			ficheros = listado
+					.filter(f -> f.getFileName().toString().startsWith(PREFIJO) && f.getFileName().toString().endsWith(EXTENSION))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+		if (!ficheros.isEmpty() && !sonDeEstaInstancia(ficheros)) {
+			apartar(ficheros);
+			ficheros.clear();
+		}
+		if (ficheros.isEmpty()) {
+			nuevoSegmento();
+			return;
+		}
+
+		for (int i = 0; i < ficheros.size(); i++) {
+			boolean ultimo = i == ficheros.size() - 1;
+			MappedByteBuffer segmento;
+			try (FileChannel canal = FileChannel.open(ficheros.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				segmento = canal.map(ultimo ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			}
+			segmentos.add(segmento);
+
+			int fin = recorrer(segmentos.size() - 1, segmento, visitante);
+			if (ultimo) {
+				for (int j = fin; j < segmento.capacity(); j++) {
+					if (segmento.get(j) != 0) {
+						log.warn("Log de auditoría {}: descartado el final incompleto desde la posición {}", ficheros.get(i), fin);
+						ponerACeros(segmento, fin);
+						break;
+					}
+				}
+				actual = segmento;
+				posicion = fin;
+			}
+		}
+	}
+
+	private boolean sonDeEstaInstancia(List<Path> ficheros) throws IOException {
+		ByteBuffer esperada = cabecera();
+		for (Path fichero : ficheros) {
+			byte[] leida;
+			try (InputStream entrada = Files.newInputStream(fichero)) {
+				leida = entrada.readNBytes(CABECERA_SEGMENTO);
+			}
+			if (!ByteBuffer.wrap(leida).equals(esperada)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void apartar(List<Path> ficheros) throws IOException {
+		Path destino = directorio.resolve(PREFIJO_APARTADOS + System.currentTimeMillis());
+		Files.createDirectories(destino);
+		for (Path fichero : ficheros) {
+			Files.move(fichero, destino.resolve(fichero.getFileName()));
+		}
+		sincronizarDirectorio();
+		log.warn("El log de auditoría de {} es de otra base de datos: se aparta a {} y se empieza uno nuevo", directorio, destino);
+	}
+
+	private ByteBuffer cabecera() {
+		ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_SEGMENTO);
+		cabecera.putInt(MAGICO);
+		cabecera.putShort((short) instancia.length);
+		cabecera.put(instancia);
+		cabecera.clear();
+		return cabecera;
+	}
+
+	// Recorre los registros válidos del segmento; devuelve dónde termina el último
+	private int recorrer(int indice, MappedByteBuffer segmento, Visitante visitante) {
+		int inicio = CABECERA_SEGMENTO;
+		while (true) {
+			RegistroAuditoria registro = leer(segmento, inicio);
+			if (registro == null) {
+				return inicio;
+			}
+			siguienteSecuencia = registro.getSecuencia() + 1;
+			visitante.registro(registro, posicion(indice, inicio));
+			inicio += CABECERA + segmento.getInt(inicio);
+		}
+	}
+
+	private static void ponerACeros(MappedByteBuffer segmento, int desde) {
+		for (int j = desde; j < segmento.capacity(); j++) {
+			segmento.put(j, (byte) 0);
+		}
+		segmento.force();
+	}
+
+	private void nuevoSegmento() throws IOException {
+		Path fichero = directorio.resolve(String.format("%s%020d%s", PREFIJO, siguienteSecuencia, EXTENSION));
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			actual = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+		}
+		actual.put(cabecera());
+		actual.force();
+		sincronizarDirectorio();
+		segmentos.add(actual);
+		posicion = CABECERA_SEGMENTO;
+	}
+
+	// Para que el fichero nuevo sobreviva a una caída (no está soportado en todos los sistemas)
+	private void sincronizarDirectorio() {
+		try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+			canal.force(true);
+		} catch (IOException e) {
+			log.debug("No se ha podido sincronizar el directorio {}: {}", directorio, e.getMessage());
+		}
+	}
+
+
+	/**
+	 *  Añade el registro (con la siguiente secuencia) y devuelve su posición para leer().
+	 */
+	public long anadir(RegistroAuditoria registro) throws IOException {
+		datos.clear();
+		datos.putLong(siguienteSecuencia);
+		datos.putLong(registro.getInstante().toEpochMilli());
+		datos.putLong(registro.getIngresoId());
+		datos.put((byte) registro.getTipo().ordinal());
+		datos.put(codigo(registro.getEstadoAnterior()));
+		datos.put(codigo(registro.getEstadoNuevo()));
+		// Un DNI nulo se guarda con longitud SIN_DNI, para distinguirlo de uno vacío
+		if (registro.getDni() == null) {
+			datos.putShort(SIN_DNI);
+		} else {
+			byte[] dni = registro.getDni().getBytes(StandardCharsets.UTF_8);
+			int longitudDni = Math.min(dni.length, MAX_DNI);
+			datos.putShort((short) longitudDni);
+			datos.put(dni, 0, longitudDni);
+		}
+		datos.flip();
+
+		int longitud = datos.remaining();
+		if (posicion + CABECERA + longitud > actual.capacity()) {
+			forzar();
+			nuevoSegmento();
+		}
+		crc.reset();
+		crc.update(datos.array(), 0, longitud);
+
+		int inicio = posicion;
+		actual.position(inicio + CABECERA);
+		actual.put(datos);
+		actual.putInt(inicio + 4, (int) crc.getValue());
+		// La longitud se escribe la última: hasta entonces el registro no existe para recorrer()
+		actual.putInt(inicio, longitud);
+		posicion = inicio + CABECERA + longitud;
+		siguienteSecuencia++;
+		return posicion(segmentos.size() - 1, inicio);
+	}
+
+	// Hace duradero todo lo escrito en el segmento actual (los anteriores se forzaron al cerrarlos)
+	public void forzar() {
+		actual.force();
+	}
+
+	public RegistroAuditoria leer(long posicion) {
+		return leer(segmentos.get((int) (posicion >>> 32)), (int) posicion);
+	}
+
+	// Lee con accesos absolutos, sin tocar la posición del buffer compartido
+	private RegistroAuditoria leer(MappedByteBuffer segmento, int inicio) {
+		if (inicio + CABECERA > segmento.capacity()) {
+			return null;
+		}
+		int longitud = segmento.getInt(inicio);
+		if (longitud < DATOS_FIJOS || inicio + CABECERA + longitud > segmento.capacity()) {
+			return null;
+		}
+		byte[] bytes = new byte[longitud];
+		for (int i = 0; i < longitud; i++) {
+			bytes[i] = segmento.get(inicio + CABECERA + i);
+		}
+		CRC32 comprobacion = new CRC32();
+		comprobacion.update(bytes);
+		if ((int) comprobacion.getValue() != segmento.getInt(inicio + 4)) {
+			return null;
+		}
+
+		ByteBuffer registro = ByteBuffer.wrap(bytes);
+		long secuencia = registro.getLong();
+		Instant instante = Instant.ofEpochMilli(registro.getLong());
+		long ingresoId = registro.getLong();
+		RegistroAuditoria.Tipo tipo = RegistroAuditoria.Tipo.values()[registro.get()];
+		Estado anterior = estado(registro.get());
+		Estado nuevo = estado(registro.get());
+		short longitudDni = registro.getShort();
+		String dni = null;
+		if (longitudDni != SIN_DNI) {
+			byte[] bytesDni = new byte[longitudDni];
+			registro.get(bytesDni);
+			dni = new String(bytesDni, StandardCharsets.UTF_8);
+		}
+		return new RegistroAuditoria(secuencia, instante, ingresoId, tipo, anterior, nuevo, dni);
+	}
+
+	private static long posicion(int segmento, int inicio) {
+		return ((long) segmento << 32) | inicio;
+	}
+
+	// Los estados se guardan por su ordinal: no se deben reordenar los valores de Estado
+	private static byte codigo(Estado estado) {
+		return estado == null ? SIN_ESTADO : (byte) estado.ordinal();
+	}
+
+	private static Estado estado(byte codigo) {
+		return codigo == SIN_ESTADO ? null : Estado.values()[codigo];
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (actual != null) {
+			forzar();
+		}
+		try {
+			bloqueo.release();
+		} finally {
+			canalBloqueo.close();
+		}
+	}
+
+}
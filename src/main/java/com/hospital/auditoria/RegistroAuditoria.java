@@ -0,0 +1,70 @@
+package com.hospital.auditoria;
+
+import java.time.Instant;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Un cambio de un ingreso en el log de auditoría: quién (DNI), cuándo y de qué estado a cuál.
+ *  La secuencia la asigna el log al escribirlo (0 mientras está pendiente).
+ */
+public class RegistroAuditoria {
+
+	public enum Tipo {
+		ALTA, CAMBIO_ESTADO, ANULACION
+	}
+
+	private final long secuencia;
+	private final Instant instante;
+	private final long ingresoId;
+	private final Tipo tipo;
+	private final Estado estadoAnterior;
+	private final Estado estadoNuevo;
+	private final String dni;
+
+
+	public RegistroAuditoria(long secuencia, Instant instante, long ingresoId, Tipo tipo, Estado estadoAnterior,
+			Estado estadoNuevo, String dni) {
+		this.secuencia = secuencia;
+		this.instante = instante;
+		this.ingresoId = ingresoId;
+		this.tipo = tipo;
+		this.estadoAnterior = estadoAnterior;
+		this.estadoNuevo = estadoNuevo;
+		this.dni = dni;
+	}
+
+	RegistroAuditoria conSecuencia(long secuencia) {
+		return new RegistroAuditoria(secuencia, instante, ingresoId, tipo, estadoAnterior, estadoNuevo, dni);
+	}
+
+
+	public long getSecuencia() {
+		return secuencia;
+	}
+
+	public Instant getInstante() {
+		return instante;
+	}
+
+	public long getIngresoId() {
+		return ingresoId;
+	}
+
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	public Estado getEstadoAnterior() {
+		return estadoAnterior;
+	}
+
+	public Estado getEstadoNuevo() {
+		return estadoNuevo;
+	}
+
+	public String getDni() {
+		return dni;
+	}
+
+}
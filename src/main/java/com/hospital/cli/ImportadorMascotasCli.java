@@ -0,0 +1,67 @@
+package com.hospital.cli;
+
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.hospital.dto.LineaRechazada;
+import com.hospital.dto.ResultadoImportacion;
+import com.hospital.services.MascotaServiceImpl;
+
+/**
+ *  Importación de mascotas al arrancar la aplicación:
+ *  
+ *  	java -jar HospitalVeterinario.jar --importar-mascotas=mascotas.csv [--tamano-lote=1000]
+ *  
+ *  El fichero se lee en streaming desde un FileChannel. Al terminar la aplicación sigue
+ *  arrancada con los datos cargados.
+ */
+@Component
+public class ImportadorMascotasCli implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(ImportadorMascotasCli.class);
+	
+	@Autowired
+	private MascotaServiceImpl mascotaService;
+	
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		List<String> rutas = args.getOptionValues("importar-mascotas");
+		if (rutas == null || rutas.isEmpty()) {
+			return;
+		}
+
+		Integer tamanoLote = null;
+		List<String> tamanos = args.getOptionValues("tamano-lote");
+		if (tamanos != null && !tamanos.isEmpty()) {
+			tamanoLote = Integer.valueOf(tamanos.get(0));
+		}
+
+		for (String ruta : rutas) {
+			Path fichero = Paths.get(ruta);
+			log.info("Importando mascotas desde {}", fichero.toAbsolutePath());
+
+			try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ);
+					Reader lector = Channels.newReader(canal, StandardCharsets.UTF_8.newDecoder(), 64 * 1024)) {
+				ResultadoImportacion resultado = mascotaService.importarMascotas(lector, tamanoLote);
+				for (LineaRechazada rechazada : resultado.getDetalleRechazadas()) {
+					log.warn("{}:{} rechazada: {}", ruta, rechazada.getNumeroLinea(), rechazada.getMotivo());
+				}
+			}
+		}
+	}
+	
+}
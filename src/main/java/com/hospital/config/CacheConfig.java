@@ -0,0 +1,67 @@
+package com.hospital.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hospital.entity.Mascota;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String MASCOTAS = "mascotas";
+    public static final String HISTORIAL_INGRESOS = "historialIngresos";
+    public static final String VERSIONES_HISTORIAL = "versionesHistorial";
+    
+    /**
+     *  Cachés en memoria acotadas por tamaño y tiempo (Caffeine). La especificación de cada
+     *  caché se configura en application.properties y debe incluir recordStats para
+     *  poder consultar aciertos, fallos y expulsiones.
+     *  
+     *  El historial de ingresos de cada mascota y su versión (para el ETag) usan la misma especificación.
+     *  
+     *  Las mascotas son entidades que los servicios modifican antes de guardarlas, por lo que su caché
+     *  guarda copias (CaffeineCachePorValor) en lugar de la instancia que devuelve el repositorio.
+     *  
+     *  Todas cargan fuera de Caffeine (CaffeineCacheCargaCompartida) para no fijar los hilos virtuales
+     *  (hospital.hilos-virtuales) a su portador mientras esperan a la base de datos.
+     */
+    @Bean
+    CacheManager cacheManager(@Value("${hospital.cache.mascotas}") String especificacionMascotas,
+            @Value("${hospital.cache.historial-ingresos}") String especificacionHistorial) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String nombre, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (MASCOTAS.equals(nombre)) {
+                    return new CaffeineCachePorValor(nombre, cache, mascota -> copiarMascota((Mascota) mascota));
+                }
+                return new CaffeineCacheCargaCompartida(nombre, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(MASCOTAS, Caffeine.from(especificacionMascotas).build());
+        cacheManager.registerCustomCache(HISTORIAL_INGRESOS, Caffeine.from(especificacionHistorial).build());
+        cacheManager.registerCustomCache(VERSIONES_HISTORIAL, Caffeine.from(especificacionHistorial).build());
+        return cacheManager;
+    }
+    
+    // Copia desligada del contexto de persistencia, con la versión para que el control optimista siga funcionando
+    static Mascota copiarMascota(Mascota mascota) {
+        Mascota copia = new Mascota();
+        copia.setId(mascota.getId());
+        copia.setEspecie(mascota.getEspecie());
+        copia.setRaza(mascota.getRaza());
+        copia.setEdad(mascota.getEdad());
+        copia.setCodigo(mascota.getCodigo());
+        copia.setDniResponsable(mascota.getDniResponsable());
+        copia.setActiva(mascota.isActiva());
+        copia.setVersion(mascota.getVersion());
+        return copia;
+    }
+}
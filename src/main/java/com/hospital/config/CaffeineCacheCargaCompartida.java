@@ -0,0 +1,119 @@
+package com.hospital.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ *  Caché Caffeine en la que las lecturas con carga (@Cacheable(sync = true)) de una misma clave
+ *  esperan a una única carga, como en CaffeineCache, pero la carga no se ejecuta dentro de
+ *  Cache.get: Caffeine la ejecutaría en un compute del ConcurrentHashMap, con el monitor del
+ *  bucket tomado mientras se espera a la base de datos. Un hilo virtual no puede soltar su hilo
+ *  portador mientras tiene un monitor, así que con pocos portadores bastan unas cuantas cargas
+ *  esperando una conexión del pool para que no avancen las peticiones que tienen las conexiones.
+ *
+ *  Una invalidación durante la carga (evict o clear) la descarta: el valor se devuelve a quienes
+ *  lo esperaban pero no se guarda, igual que no quedaría en la caché si la invalidación hubiera
+ *  esperado a que terminase la carga.
+ */
+public class CaffeineCacheCargaCompartida extends CaffeineCache {
+
+    // Carga en curso de cada clave; la de una clave se quita al guardarla o al invalidarla
+    private final ConcurrentMap<Object, CompletableFuture<Object>> cargas = new ConcurrentHashMap<>();
+
+
+    public CaffeineCacheCargaCompartida(String nombre, Cache<Object, Object> cache, boolean permitirNulos) {
+        super(nombre, cache, permitirNulos);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper guardado = get(key);
+        if (guardado != null) {
+            return (T) guardado.get();
+        }
+        CompletableFuture<Object> propia = new CompletableFuture<>();
+        CompletableFuture<Object> enCurso = cargas.putIfAbsent(key, propia);
+        if (enCurso != null) {
+            return (T) esperar(enCurso);
+        }
+        // Otra carga pudo guardar el valor entre la consulta y el putIfAbsent (asMap no cuenta otro fallo)
+        Object existente = getNativeCache().asMap().get(key);
+        if (existente != null) {
+            Object valor = fromStoreValue(existente);
+            cargas.remove(key, propia);
+            propia.complete(valor);
+            return (T) valor;
+        }
+        return (T) cargar(key, valueLoader, propia);
+    }
+
+    @Override
+    public void evict(Object key) {
+        cargas.compute(key, (clave, carga) -> {
+            super.evict(clave);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean[] presente = new boolean[1];
+        cargas.compute(key, (clave, carga) -> {
+            presente[0] = super.evictIfPresent(clave);
+            return null;
+        });
+        return presente[0];
+    }
+
+    @Override
+    public void clear() {
+        cargas.clear();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        cargas.clear();
+        return super.invalidate();
+    }
+
+    private Object cargar(Object key, Callable<?> valueLoader, CompletableFuture<Object> propia) {
+        Object valor;
+        try {
+            valor = valueLoader.call();
+        } catch (Throwable e) {
+            cargas.remove(key, propia);
+            ValueRetrievalException error = new ValueRetrievalException(key, valueLoader, e);
+            propia.completeExceptionally(error);
+            throw error;
+        }
+        // Se guarda solo si ninguna invalidación ha quitado la carga mientras tanto (null no se guarda, como en Caffeine)
+        cargas.computeIfPresent(key, (clave, carga) -> {
+            if (carga != propia) {
+                return carga;
+            }
+            if (valor != null || isAllowNullValues()) {
+                put(clave, valor);
+            }
+            return null;
+        });
+        propia.complete(valor);
+        return valor;
+    }
+
+    private static Object esperar(CompletableFuture<Object> carga) {
+        try {
+            return carga.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+}
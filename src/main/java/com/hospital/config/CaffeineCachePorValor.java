@@ -0,0 +1,70 @@
+package com.hospital.config;
+
+import java.util.concurrent.Callable;
+import java.util.function.UnaryOperator;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ *  Caché Caffeine que guarda y devuelve copias de los valores: quien lee una entrada puede
+ *  modificarla (p. ej. una entidad antes de guardarla) sin que lo vean los demás hilos ni
+ *  quede en la caché si la escritura falla.
+ *
+ *  evict invalida la entrada en el momento y, si hay una transacción en curso, otra vez al
+ *  terminarla: así no queda en la caché un valor leído por otro hilo antes del commit.
+ *
+ *  Sigue siendo una CaffeineCache, así que las estadísticas y las métricas no cambian.
+ *  Las cargas se comparten como en CaffeineCacheCargaCompartida.
+ */
+public class CaffeineCachePorValor extends CaffeineCacheCargaCompartida {
+
+    private final UnaryOperator<Object> copiar;
+
+
+    public CaffeineCachePorValor(String nombre, Cache<Object, Object> cache, UnaryOperator<Object> copiar) {
+        super(nombre, cache, false);
+        this.copiar = copiar;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return copiar(super.lookup(key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) copiar(super.get(key, () -> copiar(valueLoader.call())));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, copiar(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existente = super.putIfAbsent(key, copiar(value));
+        return existente == null ? null : toValueWrapper(copiar(existente.get()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    CaffeineCachePorValor.super.evict(key);
+                }
+            });
+        }
+    }
+
+    private Object copiar(Object valor) {
+        return valor == null ? null : copiar.apply(valor);
+    }
+}
@@ -0,0 +1,54 @@
+package com.hospital.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *  Modo opcional (hospital.hilos-virtuales=true) en el que Tomcat atiende cada petición en un hilo
+ *  virtual nuevo en lugar de en su pool de hilos de plataforma (server.tomcat.threads.max).
+ *
+ *  Los controladores y los repositorios no cambian: las llamadas JDBC siguen siendo bloqueantes, pero
+ *  mientras esperan a la base de datos el hilo virtual libera su hilo de plataforma, así que un pico de
+ *  latencia deja de agotar el pool y encolar el resto de peticiones. El límite pasa a ser el pool de
+ *  conexiones (spring.datasource.hikari.maximum-pool-size), que conviene dimensionar junto con este modo.
+ *
+ *  El ejecutor solo se entrega al conector de Tomcat: no se publica como bean Executor, porque si lo
+ *  encuentra Spring Boot no crea su applicationTaskExecutor y lo usarían también @Async y las
+ *  respuestas asíncronas (StreamingResponseBody).
+ */
+@Configuration
+@ConditionalOnProperty(name = "hospital.hilos-virtuales", havingValue = "true")
+public class HilosVirtualesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(HilosVirtualesConfig.class);
+
+    private ExecutorService ejecutor;
+
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> ejecutorTomcatHilosVirtuales() {
+        return protocolHandler -> {
+            ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+            protocolHandler.setExecutor(ejecutor);
+            log.info("Peticiones HTTP atendidas en hilos virtuales");
+        };
+    }
+
+    // Tomcat no cierra un ejecutor que no ha creado él; a estas alturas el servidor ya está parado
+    @PreDestroy
+    void cerrar() {
+        if (ejecutor != null) {
+            ejecutor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.hospital.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ *  Métricas expuestas en /actuator/prometheus.
+ *
+ *  Además de las que registra Spring Boot (http.server.requests por endpoint, pool de conexiones
+ *  Hikari, estadísticas de Hibernate y de las cachés), cada método público de los servicios
+ *  anotados con @Timed(TIMER_SERVICIO) se mide con un timer etiquetado con su clase y método.
+ *  Comparándolo con http.server.requests del endpoint se separa el tiempo del servicio (base de
+ *  datos incluida) del de serialización y el resto de la petición.
+ */
+@Configuration
+public class MetricasConfig {
+
+    public static final String TIMER_SERVICIO = "hospital.servicio";
+    
+    @Bean
+    TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
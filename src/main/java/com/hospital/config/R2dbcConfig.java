@@ -0,0 +1,81 @@
+package com.hospital.config;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ *  Acceso reactivo (R2DBC) a la misma base de datos que usa JPA, solo para las lecturas de
+ *  IngresoReactivoRepository.
+ *
+ *  El pool R2DBC no se publica como bean ConnectionFactory porque, si lo encuentra, Spring Boot no
+ *  crea el DataSource JDBC. Por la misma razón se excluye R2dbcAutoConfiguration (ver
+ *  HospitalVeterinarioApplication). Solo se publica el DatabaseClient.
+ *
+ *  Si no se indica hospital.r2dbc.url, se deriva de spring.datasource.url (H2 en memoria o en fichero).
+ */
+@Configuration
+public class R2dbcConfig {
+
+    @Value("${hospital.r2dbc.url:}")
+    private String url;
+
+    @Value("${spring.datasource.url}")
+    private String urlJdbc;
+
+    @Value("${spring.datasource.username:}")
+    private String usuario;
+
+    @Value("${spring.datasource.password:}")
+    private String contrasena;
+
+    @Value("${hospital.r2dbc.max-conexiones}")
+    private int maxConexiones;
+
+    private ConnectionPool pool;
+
+
+    @Bean
+    DatabaseClient databaseClientReactivo() {
+        ConnectionFactoryOptions opciones = ConnectionFactoryOptions.parse(url.isEmpty() ? derivarUrl(urlJdbc) : url)
+                .mutate()
+                .option(USER, usuario)
+                .option(PASSWORD, contrasena)
+                .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(opciones))
+                .initialSize(0)
+                .maxSize(maxConexiones)
+                .build());
+        return DatabaseClient.create(pool);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+
+    // jdbc:h2:mem:hospitaldb -> r2dbc:h2:mem:///hospitaldb
+    static String derivarUrl(String urlJdbc) {
+        for (String modo : new String[] {"mem:", "file:"}) {
+            String prefijo = "jdbc:h2:" + modo;
+            if (urlJdbc.startsWith(prefijo)) {
+                return "r2dbc:h2:" + modo + "///" + urlJdbc.substring(prefijo.length());
+            }
+        }
+        throw new IllegalStateException("No se puede derivar la URL R2DBC de " + urlJdbc + ": indique hospital.r2dbc.url");
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.hospital.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ *  Tareas periódicas (@Scheduled), como la reconciliación de los contadores de ocupación.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
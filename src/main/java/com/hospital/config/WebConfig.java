@@ -0,0 +1,25 @@
+package com.hospital.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.hospital.controller.EtagMascotaInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private EtagMascotaInterceptor etagMascotaInterceptor;
+    
+    /**
+     *  ETags de los datos de una mascota y de su historial de ingresos
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(etagMascotaInterceptor)
+                .addPathPatterns("/api/mascota/{idMascota}", "/api/mascota/{idMascota}/ingreso")
+                .excludePathPatterns("/api/mascota/cache");
+    }
+}
@@ -0,0 +1,66 @@
+package com.hospital.controller;
+
+import java.util.Map;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.hospital.services.MascotaServiceImpl;
+
+/**
+ *  GET condicional de una mascota (/api/mascota/{idMascota}) y de su historial de ingresos
+ *  (/api/mascota/{idMascota}/ingreso).
+ *  
+ *  Antes de llegar al controlador se calcula el ETag a partir de las versiones: si coincide con el
+ *  If-None-Match de la petición se responde 304 sin cargar ni serializar los datos; si no, la
+ *  respuesta normal lleva el ETag para la siguiente petición.
+ */
+@Component
+public class EtagMascotaInterceptor implements HandlerInterceptor {
+
+    private static final String ID_MASCOTA = "idMascota";
+    
+    @Autowired
+    private MascotaServiceImpl mascotaService;
+    
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        Long idMascota = leerIdMascota(request);
+        if (idMascota == null) {
+            return true;
+        }
+
+        Optional<String> etag = request.getRequestURI().endsWith("/ingreso")
+                ? mascotaService.obtenerEtagIngresos(idMascota)
+                : mascotaService.obtenerEtagMascota(idMascota);
+
+        // checkNotModified añade la cabecera ETag y, si no hay cambios, deja la respuesta en 304
+        return !(etag.isPresent() && new ServletWebRequest(request, response).checkNotModified(etag.get()));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Long leerIdMascota(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get(ID_MASCOTA) == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(variables.get(ID_MASCOTA));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+}
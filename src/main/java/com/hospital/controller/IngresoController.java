@@ -1,26 +1,51 @@
 package com.hospital.controller;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+import org.springdoc.api.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.hospital.auditoria.RegistroAuditoria;
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.PaginaIngresos;
+import com.hospital.dto.ResultadoLote;
+import com.hospital.dto.ResultadoTransicion;
+import com.hospital.dto.TransicionIngresos;
+import com.hospital.entity.Estado;
+import com.hospital.entity.EventoIngreso;
 import com.hospital.entity.Ingreso;
 import com.hospital.exception.FechaFinalizacionRequeridaException;
 import com.hospital.exception.FechaFormatoInvalidoException;
 import com.hospital.exception.IngresoNoEncontradoException;
 import com.hospital.exception.MascotaException;
 import com.hospital.exception.RegistradorNoAutorizadoException;
+import com.hospital.services.AuditoriaServiceImpl;
+import com.hospital.services.HistorialIngresoServiceImpl;
 import com.hospital.services.IngresoServiceImpl;
+import com.hospital.services.OcupacionServiceImpl;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -32,16 +57,106 @@ public class IngresoController {
     @Autowired
     private IngresoServiceImpl ingresoService;
     
+    @Autowired
+    private OcupacionServiceImpl ocupacionService;
+    
+    @Autowired
+    private AuditoriaServiceImpl auditoriaService;
+    
+    @Autowired
+    private HistorialIngresoServiceImpl historialService;
+    
 	/**
 	 *  Peticion 1
 	 * 
-	 *  Listado de todos los ingresos que tiene registrados el Hospital Clínico Veterinario.
+	 *  Listado paginado de los ingresos que tiene registrados el Hospital Clínico Veterinario.
+	 *  Para pedir la página siguiente se envía como cursor el siguienteCursor de la respuesta.
 	 */
 	
     @GetMapping("/ingreso")
-    @Operation(summary = "Listado de todos los ingresos")
-    public List<Ingreso> obtenerTodosIngresos() {
-        return ingresoService.obtenerTodosIngresos();
+    @Operation(summary = "Listado paginado de los ingresos")
+    public PaginaIngresos obtenerIngresos(
+    		@Parameter(description="ID del último ingreso de la página anterior")
+    		@RequestParam(required = false) Long cursor,
+    		@Parameter(description="Número máximo de ingresos por página (máximo 500)")
+    		@RequestParam(required = false) Integer limite) {
+        return ingresoService.obtenerIngresos(cursor, limite);
+    }
+    
+	/**
+	 *  Búsqueda
+	 *  
+	 *  Usando una petición HTTP GET con cualquier combinación de estado, rango de fechas de alta,
+	 *  rango de fechas de finalización (yyyy-MM-dd), especie de la mascota y DNI del registrador:
+	 *  Devuelve una página de los ingresos que cumplen todos los criterios, paginada igual que el listado
+	 */
+	
+    @GetMapping("/ingreso/buscar")
+    @Operation(summary = "Búsqueda paginada de ingresos por criterios")
+    public PaginaIngresos buscarIngresos(
+    		@ParameterObject FiltroIngresos filtro,
+    		@Parameter(description="ID del último ingreso de la página anterior")
+    		@RequestParam(required = false) Long cursor,
+    		@Parameter(description="Número máximo de ingresos por página (máximo 500)")
+    		@RequestParam(required = false) Integer limite) {
+        return ingresoService.buscarIngresos(filtro, cursor, limite);
+    }
+    
+	/**
+	 *  Ocupación
+	 *  
+	 *  Usando una petición HTTP GET:
+	 *  Devuelve el número de ingresos en cada estado, desde los contadores en memoria (sin consultar la base de datos)
+	 */
+	
+    @GetMapping("/ingreso/ocupacion")
+    @Operation(summary = "Número de ingresos por estado")
+    public Map<Estado, Long> obtenerOcupacion() {
+        return ocupacionService.obtenerOcupacion();
+    }
+    
+	/**
+	 *  Auditoría
+	 *  
+	 *  Usando una petición HTTP GET + el ID del ingreso:
+	 *  Devuelve el historial de cambios del ingreso (alta, cambios de estado y anulación) con quién
+	 *  y cuándo los hizo, leído del log de auditoría. 404 si el ingreso no existe
+	 */
+	
+    @GetMapping("/ingreso/{ingresoId}/auditoria")
+    @Operation(summary = "Historial de cambios de un ingreso")
+    public List<RegistroAuditoria> obtenerAuditoria(@Parameter(description="ID del ingreso") @PathVariable Long ingresoId)
+    		throws IngresoNoEncontradoException {
+        return auditoriaService.obtenerHistorial(ingresoId);
+    }
+    
+	/**
+	 *  Eventos
+	 *  
+	 *  Usando una petición HTTP GET + el ID del ingreso:
+	 *  Devuelve los eventos del ingreso (su estado completo tras el alta y tras cada cambio), por versión
+	 */
+	
+    @GetMapping("/ingreso/{ingresoId}/eventos")
+    @Operation(summary = "Eventos de un ingreso")
+    public List<EventoIngreso> obtenerEventos(@Parameter(description="ID del ingreso") @PathVariable Long ingresoId) {
+        return historialService.obtenerEventos(ingresoId);
+    }
+    
+	/**
+	 *  Consulta a fecha
+	 *  
+	 *  Usando una petición HTTP GET + un estado y una fecha (yyyy-MM-dd):
+	 *  Devuelve los ingresos que estaban en ese estado al terminar ese día (p. ej. quién estaba
+	 *  hospitalizado), reconstruidos a partir de la última instantánea y los eventos posteriores
+	 */
+	
+    @GetMapping("/ingreso/historico")
+    @Operation(summary = "Ingresos que estaban en un estado en una fecha")
+    public List<IngresoResumen> obtenerIngresosEnFecha(
+    		@Parameter(description="Estado de los ingresos") @RequestParam Estado estado,
+    		@Parameter(description="Fecha (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate fecha) {
+        return historialService.obtenerIngresosEnEstado(estado, fecha);
     }
     
 	/**
@@ -67,6 +182,20 @@ public class IngresoController {
         }
     }
     
+	/**
+	 *  Alta en lote
+	 *  
+	 *  Usando una petición HTTP POST + un array JSON de {mascotaId, fechaAlta, dniRegistrador}:
+	 *  Crea los ingresos válidos en estado “ALTA” y devuelve el resultado de cada elemento
+	 *  (ID del ingreso creado o motivo del rechazo).
+	 */
+	
+    @PostMapping(value = "/ingreso/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Insertar ingresos en lote")
+    public ResponseEntity<ResultadoLote> crearIngresosEnLote(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(ingresoService.crearIngresosEnLote(cuerpo));
+    }
+    
 	/**
 	 *  Peticion 3
 	 *  
@@ -102,6 +231,42 @@ public class IngresoController {
         ingresoService.anularIngreso(ingresoId);
         return ResponseEntity.noContent().build();
     }
+    
+	/**
+	 *  Cambio de estado masivo
+	 *  
+	 *  Usando una petición HTTP PATCH + un JSON con los IDs de los ingresos y el estado destino
+	 *  (y la fecha de finalización si el estado es “FINALIZADO”):
+	 *  Cambia el estado de todos ellos y devuelve cuántos se han actualizado
+	 */
+	
+    @PatchMapping("/ingreso/estado")
+    @Operation(summary = "Cambiar el estado de varios ingresos")
+    public ResponseEntity<ResultadoTransicion> transicionarIngresos(@RequestBody TransicionIngresos transicion) 
+            throws FechaFinalizacionRequeridaException, FechaFormatoInvalidoException {
+        return ResponseEntity.ok(ingresoService.transicionarIngresos(transicion));
+    }
+    
+	/**
+	 *  Exportación
+	 *  
+	 *  Usando una petición HTTP GET:
+	 *  Devuelve todos los ingresos en formato NDJSON (un JSON por línea), escribiéndolos
+	 *  a medida que se leen de base de datos en lugar de cargarlos todos en memoria.
+	 */
+	
+    @GetMapping(value = "/ingreso/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exportar todos los ingresos en formato NDJSON")
+    public ResponseEntity<StreamingResponseBody> exportarIngresos() {
+        StreamingResponseBody cuerpo = salida -> {
+            OutputStream buffer = new BufferedOutputStream(salida, 64 * 1024);
+            ingresoService.exportarIngresos(buffer);
+            buffer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
+    }
 	
 	
 	
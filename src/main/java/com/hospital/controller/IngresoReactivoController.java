@@ -0,0 +1,72 @@
+package com.hospital.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.exception.MascotaNoEncontradaException;
+import com.hospital.services.IngresoReactivoServiceImpl;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import reactor.core.publisher.Flux;
+
+/**
+ *  Lecturas reactivas de los ingresos (R2DBC, ver IngresoReactivoRepository), como alternativa a las
+ *  peticiones 1 y 2 para lecturas con mucha concurrencia.
+ *
+ *  Se responde un ingreso por línea (application/x-ndjson). Spring MVC se suscribe al Flux en modo
+ *  asíncrono y pide los ingresos de uno en uno, conforme los escribe en la respuesta: el hilo de la
+ *  petición queda libre en cuanto empieza la consulta y un cliente lento frena la lectura en lugar de
+ *  acumular los resultados en memoria.
+ */
+@RestController
+@RequestMapping("/api/reactivo")
+public class IngresoReactivoController {
+
+    @Autowired
+    private IngresoReactivoServiceImpl ingresoReactivoService;
+
+	/**
+	 *  Peticion 1 (reactiva)
+	 *
+	 *  Los ingresos de una página del listado, ordenados por ID. Para pedir la página siguiente se
+	 *  envía como cursor el ID del último ingreso recibido.
+	 */
+
+    @GetMapping(value = "/ingreso", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Listado paginado de los ingresos (reactivo)")
+    public Flux<IngresoResumen> obtenerIngresos(
+    		@Parameter(description="ID del último ingreso de la página anterior")
+    		@RequestParam(required = false) Long cursor,
+    		@Parameter(description="Número máximo de ingresos por página (máximo 500)")
+    		@RequestParam(required = false) Integer limite) {
+        return ingresoReactivoService.obtenerIngresos(cursor, limite);
+    }
+
+	/**
+	 *  Peticion 2 (reactiva)
+	 *
+	 *  Todos los ingresos que ha tenido la mascota con {ID idMascota}, o 404 si no tiene ninguno.
+	 */
+
+    @GetMapping(value = "/mascota/{idMascota}/ingreso", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Listado de los ingresos de una mascota por su ID (reactivo)")
+    public Flux<IngresoResumen> obtenerIngresosPorMascotaId(@Parameter(description="ID de la mascota") @PathVariable Long idMascota) {
+        return ingresoReactivoService.buscarIngresosPorMascotaId(idMascota);
+    }
+
+    @ExceptionHandler(MascotaNoEncontradaException.class)
+    public ResponseEntity<String> mascotaNoEncontrada(MascotaNoEncontradaException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+
+}
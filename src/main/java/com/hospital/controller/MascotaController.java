@@ -1,10 +1,15 @@
 package com.hospital.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.ResponseEntity.BodyBuilder;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,11 +18,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.hospital.entity.Ingreso;
+import com.hospital.config.CacheConfig;
+import com.hospital.dto.EstadisticasCache;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.IngresosMascota;
+import com.hospital.dto.PaginaMascotas;
+import com.hospital.dto.PaginaMascotasResponsable;
+import com.hospital.dto.ResultadoImportacion;
 import com.hospital.entity.Mascota;
+import com.hospital.exception.CodigoMascotaEnUsoException;
 import com.hospital.exception.MascotaNoEncontradaException;
+import com.hospital.services.BuscadorMascotasServiceImpl;
+import com.hospital.services.IndiceIngresosServiceImpl;
 import com.hospital.services.MascotaServiceImpl;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,6 +45,12 @@ public class MascotaController {
 	@Autowired
 	private MascotaServiceImpl mascotaService;
 	
+	@Autowired
+	private IndiceIngresosServiceImpl indiceIngresosService;
+	
+	@Autowired
+	private BuscadorMascotasServiceImpl buscadorMascotasService;
+	
 
 	/**
 	 *  Peticion 1
@@ -49,6 +70,36 @@ public class MascotaController {
         }
     }
     
+	/**
+	 *  Usando una petición HTTP GET + el código (microchip) de la mascota:
+	 *  Se devolverán los datos de la mascota con ese código, activa o dada de baja (el código es único)
+	 */
+	
+    @GetMapping("/mascota/codigo/{codigo}")
+    @Operation(summary = "Datos de una mascota por su código (microchip)")
+    public ResponseEntity<?> obtenerMascotaPorCodigo(@Parameter(description="Código de la mascota") @PathVariable int codigo) {
+        Optional<Mascota> mascota = mascotaService.obtenerMascotaPorCodigo(codigo);
+        if (mascota.isPresent()) {
+            return ResponseEntity.ok(mascota.get());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No se encontró la mascota con código: " + codigo);
+    }
+    
+	/**
+	 *  Usando una petición HTTP GET + el DNI del responsable:
+	 *  Devuelve una página con sus mascotas activas y los ingresos abiertos de cada una. Para pedir la
+	 *  página siguiente se envía como cursor el siguienteCursor recibido.
+	 */
+    
+    @GetMapping("/responsable/{dniResponsable}/mascota")
+    @Operation(summary = "Mascotas activas de un responsable con sus ingresos abiertos")
+    public ResponseEntity<PaginaMascotasResponsable> buscarMascotasPorResponsable(
+    		@Parameter(description="DNI del responsable") @PathVariable String dniResponsable,
+    		@Parameter(description="ID de la última mascota de la página anterior") @RequestParam(required = false) Long cursor,
+    		@Parameter(description="Número máximo de mascotas por página (máximo 500)") @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(mascotaService.buscarMascotasPorResponsable(dniResponsable, cursor, limite));
+    }
+    
 	/**
 	 *  Peticion 2
 	 *  
@@ -60,19 +111,31 @@ public class MascotaController {
     @Operation(summary = "Listado de los ingresos de una mascota por su ID")
     public ResponseEntity<?> obtenerIngresosPorMascotaId(@Parameter(description="ID de la mascota a obtener") @PathVariable Long idMascota) {
         try {
-            List<Ingreso> ingresos = mascotaService.buscarIngresosPorMascotaId(idMascota);
+            List<IngresoResumen> ingresos = mascotaService.buscarIngresosPorMascotaId(idMascota);
             return ResponseEntity.ok(ingresos);
         } catch (MascotaNoEncontradaException e) {
         	return ((BodyBuilder) ResponseEntity.notFound()).body(e.getMessage());
         }
     }
 	
+	/**
+	 *  Usando una petición HTTP GET + el ID de la mascota:
+	 *  Devuelve los IDs de los ingresos de la mascota y de los que están en hospitalización, desde el
+	 *  índice en memoria (sin consultar la base de datos)
+	 */
+    
+    @GetMapping("/mascota/{idMascota}/hospitalizacion")
+    @Operation(summary = "IDs de los ingresos de una mascota y si está hospitalizada")
+    public ResponseEntity<IngresosMascota> obtenerHospitalizacion(@Parameter(description="ID de la mascota") @PathVariable Long idMascota) {
+        return ResponseEntity.ok(indiceIngresosService.obtenerIngresosMascota(idMascota));
+    }
+	
 	/**
 	 *  Peticion 3
 	 *  
 	 *  Usando una petición HTTP POST + un JSON con los datos de una mascota:
 	 *  Se guardará en base de datos dicha mascota y se devolverá un JSON con toda la información guardada
-	 *  (que debe incluir el ID de esa mascota en el sistema).
+	 *  (que debe incluir el ID de esa mascota en el sistema). Si otra mascota ya tiene su código se devuelve 409.
 	 */
     
     @PostMapping("/mascota")
@@ -81,12 +144,72 @@ public class MascotaController {
         try {
             Mascota mascotaCreada = mascotaService.crearMascota(mascota);
             return ResponseEntity.status(HttpStatus.CREATED).body(mascotaCreada);
+        } catch (CodigoMascotaEnUsoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al crear la mascota: " + e.getMessage());
         }
     }
 
     
+	/**
+	 *  Usando una petición HTTP GET + opcionalmente el nombre de la caché:
+	 *  Devuelve las estadísticas de la caché de mascotas, o de la indicada (historialIngresos,
+	 *  versionesHistorial): aciertos, fallos y expulsiones
+	 */
+    
+    @GetMapping("/mascota/cache")
+    @Operation(summary = "Estadísticas de la caché de mascotas o de historiales de ingresos")
+    public ResponseEntity<?> obtenerEstadisticasCache(
+    		@Parameter(description="Nombre de la caché") @RequestParam(defaultValue = CacheConfig.MASCOTAS) String nombre) {
+        Optional<EstadisticasCache> estadisticas = mascotaService.obtenerEstadisticasCache(nombre);
+        if (estadisticas.isPresent()) {
+            return ResponseEntity.ok(estadisticas.get());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No existe la caché: " + nombre);
+    }
+    
+	/**
+	 *  Búsqueda
+	 *  
+	 *  Usando una petición HTTP GET + opcionalmente el principio de la especie y de la raza:
+	 *  Devuelve una página con los IDs de las mascotas activas que coinciden, sin distinguir mayúsculas
+	 *  ni tildes. Para pedir la página siguiente se envía como cursor el siguienteCursor recibido.
+	 */
+    
+    @GetMapping("/mascota/buscar")
+    @Operation(summary = "Búsqueda de mascotas activas por especie y raza")
+    public ResponseEntity<?> buscarMascotas(
+    		@Parameter(description="Principio de la especie") @RequestParam(required = false) String especie,
+    		@Parameter(description="Principio de la raza") @RequestParam(required = false) String raza,
+    		@Parameter(description="Último ID de la página anterior") @RequestParam(required = false) Long cursor,
+    		@Parameter(description="Número máximo de mascotas por página (máximo 500)") @RequestParam(required = false) Integer limite) {
+        Optional<PaginaMascotas> pagina = buscadorMascotasService.buscarMascotas(especie, raza, cursor, limite);
+        if (pagina.isPresent()) {
+            return ResponseEntity.ok(pagina.get());
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("El índice de búsqueda de mascotas se está cargando");
+    }
+    
+	/**
+	 *  Importación
+	 *  
+	 *  Usando una petición HTTP POST + un CSV (especie,raza,edad,codigo,dniResponsable[,activa]):
+	 *  Carga las mascotas en lotes y devuelve cuántas se han importado y qué líneas se han rechazado.
+	 */
+    
+    @PostMapping(value = "/mascota/importar", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "Importar mascotas desde un fichero CSV")
+    public ResponseEntity<ResultadoImportacion> importarMascotas(
+    		@Parameter(description="Número de mascotas insertadas por lote")
+    		@RequestParam(required = false) Integer tamanoLote,
+    		InputStream cuerpo) throws IOException {
+        ResultadoImportacion resultado = mascotaService.importarMascotas(
+                new InputStreamReader(cuerpo, StandardCharsets.UTF_8), tamanoLote);
+        return ResponseEntity.ok(resultado);
+    }
+
+    
 	/**
 	 *  Peticion 4
 	 *  
@@ -0,0 +1,139 @@
+package com.hospital.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.hospital.repository.ContadorSql;
+
+/**
+ *  Cuenta las sentencias SQL y el tiempo JDBC de cada petición (ContadorSql) y los devuelve en la
+ *  cabecera Server-Timing, p. ej. Server-Timing: db;desc="3 sentencias SQL";dur=1.742
+ *
+ *  La cabecera se añade justo antes de empezar a escribir la respuesta, así que no incluye las
+ *  sentencias que se lancen después (durante la serialización o en una respuesta en streaming).
+ *
+ *  Si al terminar la petición se ha superado el presupuesto de sentencias (típico de un N+1), se
+ *  registra un aviso con la sentencia más repetida. Para no saturar el log con un endpoint que lo
+ *  supera siempre, solo se registra una fracción de los avisos (hospital.sql.muestreo-avisos).
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    public static final String CABECERA = "Server-Timing";
+
+    @Value("${hospital.sql.presupuesto-sentencias}")
+    private int presupuestoSentencias;
+
+    @Value("${hospital.sql.muestreo-avisos}")
+    private double muestreoAvisos;
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorSql contador = ContadorSql.iniciar();
+        RespuestaConServerTiming respuesta = new RespuestaConServerTiming(response, contador);
+        try {
+            filterChain.doFilter(request, respuesta);
+            // Respuestas sin cuerpo (p. ej. 304)
+            if (!response.isCommitted()) {
+                respuesta.anadirCabecera();
+            }
+        } finally {
+            ContadorSql.terminar();
+            comprobarPresupuesto(request, response, contador);
+        }
+    }
+
+    private void comprobarPresupuesto(HttpServletRequest request, HttpServletResponse response, ContadorSql contador) {
+        if (contador.getSentencias() <= presupuestoSentencias || ThreadLocalRandom.current().nextDouble() >= muestreoAvisos) {
+            return;
+        }
+        Map.Entry<String, Integer> masRepetida = contador.getSentenciaMasRepetida();
+        log.warn("presupuesto_sql_excedido metodo={} uri={} estado={} sentencias={} presupuesto={} tiempo_jdbc_ms={} "
+                + "repeticiones={} sentencia=\"{}\"",
+                request.getMethod(), request.getRequestURI(), response.getStatus(), contador.getSentencias(),
+                presupuestoSentencias, String.format(Locale.ROOT, "%.3f", contador.getMilisegundosJdbc()),
+                masRepetida.getValue(), masRepetida.getKey());
+    }
+
+    static String valorCabecera(ContadorSql contador) {
+        return String.format(Locale.ROOT, "db;desc=\"%d sentencias SQL\";dur=%.3f",
+                contador.getSentencias(), contador.getMilisegundosJdbc());
+    }
+
+
+    // Añade la cabecera la primera vez que se va a escribir algo en la respuesta
+    private static class RespuestaConServerTiming extends HttpServletResponseWrapper {
+
+        private final ContadorSql contador;
+        private boolean anadida;
+
+        RespuestaConServerTiming(HttpServletResponse response, ContadorSql contador) {
+            super(response);
+            this.contador = contador;
+        }
+
+        void anadirCabecera() {
+            if (!anadida) {
+                anadida = true;
+                addHeader(CABECERA, valorCabecera(contador));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            anadirCabecera();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            anadirCabecera();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            anadirCabecera();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            anadirCabecera();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            anadirCabecera();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            anadirCabecera();
+            super.sendRedirect(location);
+        }
+    }
+
+}
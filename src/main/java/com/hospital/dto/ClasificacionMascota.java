@@ -0,0 +1,38 @@
+package com.hospital.dto;
+
+/**
+ *  Especie, raza y si está activa una mascota, sin cargar la entidad (índice de búsqueda de mascotas).
+ */
+public class ClasificacionMascota {
+
+	private Long id;
+	private String especie;
+	private String raza;
+	private boolean activa;
+	
+	
+	public ClasificacionMascota(Long id, String especie, String raza, boolean activa) {
+		this.id = id;
+		this.especie = especie;
+		this.raza = raza;
+		this.activa = activa;
+	}
+	
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getEspecie() {
+		return especie;
+	}
+
+	public String getRaza() {
+		return raza;
+	}
+
+	public boolean isActiva() {
+		return activa;
+	}
+
+}
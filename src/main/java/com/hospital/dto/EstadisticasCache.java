@@ -0,0 +1,53 @@
+package com.hospital.dto;
+
+/**
+ *  Estadísticas acumuladas de una caché desde el arranque.
+ */
+public class EstadisticasCache {
+
+	private String nombre;
+	private long tamano;
+	private long aciertos;
+	private long fallos;
+	private double tasaAciertos;
+	private long expulsiones;
+	
+	
+	public EstadisticasCache() {
+	}
+	
+	public EstadisticasCache(String nombre, long tamano, long aciertos, long fallos, double tasaAciertos, long expulsiones) {
+		this.nombre = nombre;
+		this.tamano = tamano;
+		this.aciertos = aciertos;
+		this.fallos = fallos;
+		this.tasaAciertos = tasaAciertos;
+		this.expulsiones = expulsiones;
+	}
+	
+
+	public String getNombre() {
+		return nombre;
+	}
+
+	public long getTamano() {
+		return tamano;
+	}
+
+	public long getAciertos() {
+		return aciertos;
+	}
+
+	public long getFallos() {
+		return fallos;
+	}
+
+	public double getTasaAciertos() {
+		return tasaAciertos;
+	}
+
+	public long getExpulsiones() {
+		return expulsiones;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.hospital.dto;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Estado, registrador y mascota de un ingreso, sin cargar la entidad (cambios de estado masivos).
+ *  version es la de la fila con ese estado (@Version de Ingreso): permite descartar un cambio que llega
+ *  después de otro más reciente del mismo ingreso.
+ */
+public class EstadoIngreso {
+
+	private Long id;
+	private Estado estado;
+	private String dniRegistrador;
+	private Long mascotaId;
+	private Long version;
+	
+	
+	public EstadoIngreso(Long id, Estado estado, String dniRegistrador, Long mascotaId, Long version) {
+		this.id = id;
+		this.estado = estado;
+		this.dniRegistrador = dniRegistrador;
+		this.mascotaId = mascotaId;
+		this.version = version;
+	}
+	
+
+	public Long getId() {
+		return id;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+}
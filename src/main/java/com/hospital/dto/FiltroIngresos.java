@@ -0,0 +1,94 @@
+package com.hospital.dto;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Criterios de búsqueda de ingresos. Los criterios a null no filtran;
+ *  los rangos de fechas incluyen ambos extremos.
+ */
+public class FiltroIngresos {
+
+	private Estado estado;
+	
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate fechaAltaDesde;
+	
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate fechaAltaHasta;
+	
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate fechaFinalizacionDesde;
+	
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate fechaFinalizacionHasta;
+	
+	private String especie;
+	private String dniRegistrador;
+	
+	
+	public FiltroIngresos() {
+	}
+	
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public void setEstado(Estado estado) {
+		this.estado = estado;
+	}
+
+	public LocalDate getFechaAltaDesde() {
+		return fechaAltaDesde;
+	}
+
+	public void setFechaAltaDesde(LocalDate fechaAltaDesde) {
+		this.fechaAltaDesde = fechaAltaDesde;
+	}
+
+	public LocalDate getFechaAltaHasta() {
+		return fechaAltaHasta;
+	}
+
+	public void setFechaAltaHasta(LocalDate fechaAltaHasta) {
+		this.fechaAltaHasta = fechaAltaHasta;
+	}
+
+	public LocalDate getFechaFinalizacionDesde() {
+		return fechaFinalizacionDesde;
+	}
+
+	public void setFechaFinalizacionDesde(LocalDate fechaFinalizacionDesde) {
+		this.fechaFinalizacionDesde = fechaFinalizacionDesde;
+	}
+
+	public LocalDate getFechaFinalizacionHasta() {
+		return fechaFinalizacionHasta;
+	}
+
+	public void setFechaFinalizacionHasta(LocalDate fechaFinalizacionHasta) {
+		this.fechaFinalizacionHasta = fechaFinalizacionHasta;
+	}
+
+	public String getEspecie() {
+		return especie;
+	}
+
+	public void setEspecie(String especie) {
+		this.especie = especie;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+	public void setDniRegistrador(String dniRegistrador) {
+		this.dniRegistrador = dniRegistrador;
+	}
+
+}
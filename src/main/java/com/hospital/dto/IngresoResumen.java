@@ -0,0 +1,92 @@
+package com.hospital.dto;
+
+import java.time.LocalDate;
+
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+
+/**
+ *  Proyección de un ingreso para los listados.
+ *  
+ *  Solo lleva el ID de la mascota, de modo que se obtiene en una única consulta sobre
+ *  la tabla de ingresos sin cargar ni serializar la mascota completa en cada fila.
+ */
+public class IngresoResumen {
+
+	private Long id;
+	private LocalDate fechaAlta;
+	private LocalDate fechaFinalizacion;
+	private Estado estado;
+	private String dniRegistrador;
+	private Long mascotaId;
+	
+	
+	public IngresoResumen() {
+	}
+	
+	public IngresoResumen(Long id, LocalDate fechaAlta, LocalDate fechaFinalizacion, Estado estado,
+			String dniRegistrador, Long mascotaId) {
+		this.id = id;
+		this.fechaAlta = fechaAlta;
+		this.fechaFinalizacion = fechaFinalizacion;
+		this.estado = estado;
+		this.dniRegistrador = dniRegistrador;
+		this.mascotaId = mascotaId;
+	}
+	
+	public static IngresoResumen de(Ingreso ingreso) {
+		return new IngresoResumen(ingreso.getId(), ingreso.getFechaAlta(), ingreso.getFechaFinalizacion(),
+				ingreso.getEstado(), ingreso.getDniRegistrador(),
+				ingreso.getMascota() != null ? ingreso.getMascota().getId() : null);
+	}
+	
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public LocalDate getFechaAlta() {
+		return fechaAlta;
+	}
+
+	public void setFechaAlta(LocalDate fechaAlta) {
+		this.fechaAlta = fechaAlta;
+	}
+
+	public LocalDate getFechaFinalizacion() {
+		return fechaFinalizacion;
+	}
+
+	public void setFechaFinalizacion(LocalDate fechaFinalizacion) {
+		this.fechaFinalizacion = fechaFinalizacion;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public void setEstado(Estado estado) {
+		this.estado = estado;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+	public void setDniRegistrador(String dniRegistrador) {
+		this.dniRegistrador = dniRegistrador;
+	}
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public void setMascotaId(Long mascotaId) {
+		this.mascotaId = mascotaId;
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.hospital.dto;
+
+/**
+ *  IDs de los ingresos de una mascota, en el orden en que se crearon, y de los que están en
+ *  hospitalización (ver IndiceIngresosServiceImpl).
+ */
+public class IngresosMascota {
+
+	private Long idMascota;
+	private long[] ingresos;
+	private long[] hospitalizaciones;
+	
+	
+	public IngresosMascota(Long idMascota, long[] ingresos, long[] hospitalizaciones) {
+		this.idMascota = idMascota;
+		this.ingresos = ingresos;
+		this.hospitalizaciones = hospitalizaciones;
+	}
+	
+
+	public Long getIdMascota() {
+		return idMascota;
+	}
+
+	public long[] getIngresos() {
+		return ingresos;
+	}
+
+	public long[] getHospitalizaciones() {
+		return hospitalizaciones;
+	}
+
+	public boolean isHospitalizada() {
+		return hospitalizaciones.length > 0;
+	}
+
+}
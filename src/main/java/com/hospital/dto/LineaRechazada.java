@@ -0,0 +1,37 @@
+package com.hospital.dto;
+
+/**
+ *  Línea de un fichero de importación que no se ha podido cargar y el motivo.
+ */
+public class LineaRechazada {
+
+	private long numeroLinea;
+	private String motivo;
+	
+	
+	public LineaRechazada() {
+	}
+	
+	public LineaRechazada(long numeroLinea, String motivo) {
+		this.numeroLinea = numeroLinea;
+		this.motivo = motivo;
+	}
+	
+
+	public long getNumeroLinea() {
+		return numeroLinea;
+	}
+
+	public void setNumeroLinea(long numeroLinea) {
+		this.numeroLinea = numeroLinea;
+	}
+
+	public String getMotivo() {
+		return motivo;
+	}
+
+	public void setMotivo(String motivo) {
+		this.motivo = motivo;
+	}
+
+}
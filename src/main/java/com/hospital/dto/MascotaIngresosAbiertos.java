@@ -0,0 +1,30 @@
+package com.hospital.dto;
+
+import java.util.List;
+
+import com.hospital.entity.Mascota;
+
+/**
+ *  Una mascota con sus ingresos abiertos (ALTA u HOSPITALIZACION), ordenados por ID.
+ */
+public class MascotaIngresosAbiertos {
+
+	private Mascota mascota;
+	private List<IngresoResumen> ingresosAbiertos;
+	
+	
+	public MascotaIngresosAbiertos(Mascota mascota, List<IngresoResumen> ingresosAbiertos) {
+		this.mascota = mascota;
+		this.ingresosAbiertos = ingresosAbiertos;
+	}
+	
+
+	public Mascota getMascota() {
+		return mascota;
+	}
+
+	public List<IngresoResumen> getIngresosAbiertos() {
+		return ingresosAbiertos;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.hospital.dto;
+
+import java.util.List;
+
+/**
+ *  Página de ingresos paginada por cursor.
+ *  
+ *  siguienteCursor es el ID del último ingreso de la página, o null si no quedan más ingresos.
+ */
+public class PaginaIngresos {
+
+	private List<IngresoResumen> ingresos;
+	private Long siguienteCursor;
+	
+	
+	public PaginaIngresos() {
+	}
+	
+	public PaginaIngresos(List<IngresoResumen> ingresos, Long siguienteCursor) {
+		this.ingresos = ingresos;
+		this.siguienteCursor = siguienteCursor;
+	}
+	
+	/**
+	 *  Construye la página a partir de una consulta que ha pedido limite + 1 filas:
+	 *  si ha llegado la fila extra, hay más ingresos y se descarta.
+	 */
+	public static PaginaIngresos de(List<IngresoResumen> filas, int limite) {
+		if (filas.size() <= limite) {
+			return new PaginaIngresos(filas, null);
+		}
+		List<IngresoResumen> pagina = filas.subList(0, limite);
+		return new PaginaIngresos(pagina, pagina.get(limite - 1).getId());
+	}
+	
+
+	public List<IngresoResumen> getIngresos() {
+		return ingresos;
+	}
+
+	public void setIngresos(List<IngresoResumen> ingresos) {
+		this.ingresos = ingresos;
+	}
+
+	public Long getSiguienteCursor() {
+		return siguienteCursor;
+	}
+
+	public void setSiguienteCursor(Long siguienteCursor) {
+		this.siguienteCursor = siguienteCursor;
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.hospital.dto;
+
+import java.util.Arrays;
+
+/**
+ *  Página de IDs de mascotas paginada por cursor, con el total de mascotas que cumplen la búsqueda.
+ *  
+ *  siguienteCursor es el último ID de la página, o null si no quedan más mascotas.
+ */
+public class PaginaMascotas {
+
+	private long[] ids;
+	private long total;
+	private Long siguienteCursor;
+	
+	
+	public PaginaMascotas(long[] ids, long total, Long siguienteCursor) {
+		this.ids = ids;
+		this.total = total;
+		this.siguienteCursor = siguienteCursor;
+	}
+	
+	/**
+	 *  Construye la página a partir de una búsqueda que ha pedido limite + 1 IDs:
+	 *  si ha llegado el ID extra, hay más mascotas y se descarta.
+	 */
+	public static PaginaMascotas de(long[] ids, long total, int limite) {
+		if (ids.length <= limite) {
+			return new PaginaMascotas(ids, total, null);
+		}
+		return new PaginaMascotas(Arrays.copyOf(ids, limite), total, ids[limite - 1]);
+	}
+	
+
+	public long[] getIds() {
+		return ids;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public Long getSiguienteCursor() {
+		return siguienteCursor;
+	}
+
+}
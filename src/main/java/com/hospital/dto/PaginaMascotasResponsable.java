@@ -0,0 +1,42 @@
+package com.hospital.dto;
+
+import java.util.List;
+
+/**
+ *  Página de las mascotas activas de un responsable, paginada por cursor.
+ *  
+ *  siguienteCursor es el ID de la última mascota de la página, o null si no quedan más mascotas.
+ */
+public class PaginaMascotasResponsable {
+
+	private List<MascotaIngresosAbiertos> mascotas;
+	private Long siguienteCursor;
+	
+	
+	public PaginaMascotasResponsable(List<MascotaIngresosAbiertos> mascotas, Long siguienteCursor) {
+		this.mascotas = mascotas;
+		this.siguienteCursor = siguienteCursor;
+	}
+	
+	/**
+	 *  Construye la página a partir de una consulta que ha pedido limite + 1 mascotas:
+	 *  si ha llegado la mascota extra, hay más mascotas y se descarta.
+	 */
+	public static PaginaMascotasResponsable de(List<MascotaIngresosAbiertos> filas, int limite) {
+		if (filas.size() <= limite) {
+			return new PaginaMascotasResponsable(filas, null);
+		}
+		List<MascotaIngresosAbiertos> pagina = filas.subList(0, limite);
+		return new PaginaMascotasResponsable(pagina, pagina.get(limite - 1).getMascota().getId());
+	}
+	
+
+	public List<MascotaIngresosAbiertos> getMascotas() {
+		return mascotas;
+	}
+
+	public Long getSiguienteCursor() {
+		return siguienteCursor;
+	}
+
+}
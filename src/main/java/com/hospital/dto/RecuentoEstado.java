@@ -0,0 +1,28 @@
+package com.hospital.dto;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Número de ingresos en un estado (resultado de un group by estado).
+ */
+public class RecuentoEstado {
+
+	private Estado estado;
+	private long total;
+	
+	
+	public RecuentoEstado(Estado estado, Long total) {
+		this.estado = estado;
+		this.total = total;
+	}
+	
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.hospital.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Resumen de una importación de mascotas.
+ *  
+ *  Solo se guarda el detalle de las primeras MAXIMO_DETALLE líneas rechazadas para que
+ *  el resultado no crezca con el tamaño del fichero; el total está en rechazadas.
+ */
+public class ResultadoImportacion {
+
+	public static final int MAXIMO_DETALLE = 100;
+	
+	private long lineasLeidas;
+	private long importadas;
+	private long rechazadas;
+	private List<LineaRechazada> detalleRechazadas = new ArrayList<>();
+	
+	
+	public void sumarLeida() {
+		lineasLeidas++;
+	}
+	
+	public void sumarImportadas(int cantidad) {
+		importadas += cantidad;
+	}
+	
+	public void rechazar(long numeroLinea, String motivo) {
+		rechazadas++;
+		if (detalleRechazadas.size() < MAXIMO_DETALLE) {
+			detalleRechazadas.add(new LineaRechazada(numeroLinea, motivo));
+		}
+	}
+	
+
+	public long getLineasLeidas() {
+		return lineasLeidas;
+	}
+
+	public long getImportadas() {
+		return importadas;
+	}
+
+	public long getRechazadas() {
+		return rechazadas;
+	}
+
+	public List<LineaRechazada> getDetalleRechazadas() {
+		return detalleRechazadas;
+	}
+
+}
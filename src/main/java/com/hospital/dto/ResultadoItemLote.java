@@ -0,0 +1,71 @@
+package com.hospital.dto;
+
+/**
+ *  Resultado de un elemento de un lote: el ingreso creado o el motivo del rechazo.
+ *  indice es la posición del elemento en el array recibido.
+ */
+public class ResultadoItemLote {
+
+	private int indice;
+	private Long mascotaId;
+	private Long ingresoId;
+	private String error;
+	
+	
+	public ResultadoItemLote() {
+	}
+	
+	public static ResultadoItemLote creado(int indice, Long mascotaId, Long ingresoId) {
+		ResultadoItemLote resultado = new ResultadoItemLote();
+		resultado.indice = indice;
+		resultado.mascotaId = mascotaId;
+		resultado.ingresoId = ingresoId;
+		return resultado;
+	}
+	
+	public static ResultadoItemLote rechazado(int indice, Long mascotaId, String error) {
+		ResultadoItemLote resultado = new ResultadoItemLote();
+		resultado.indice = indice;
+		resultado.mascotaId = mascotaId;
+		resultado.error = error;
+		return resultado;
+	}
+	
+	public boolean isCreado() {
+		return error == null;
+	}
+	
+
+	public int getIndice() {
+		return indice;
+	}
+
+	public void setIndice(int indice) {
+		this.indice = indice;
+	}
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public void setMascotaId(Long mascotaId) {
+		this.mascotaId = mascotaId;
+	}
+
+	public Long getIngresoId() {
+		return ingresoId;
+	}
+
+	public void setIngresoId(Long ingresoId) {
+		this.ingresoId = ingresoId;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.hospital.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Resumen de un alta de ingresos en lote, con el resultado de cada elemento en el orden recibido.
+ *  error solo se informa si el lote se interrumpió por JSON mal formado: los elementos
+ *  de resultados ya están procesados y los posteriores no.
+ */
+public class ResultadoLote {
+
+	private int creados;
+	private int rechazados;
+	private List<ResultadoItemLote> resultados = new ArrayList<>();
+	private String error;
+	
+	
+	public void agregar(ResultadoItemLote resultado) {
+		resultados.add(resultado);
+		if (resultado.isCreado()) {
+			creados++;
+		} else {
+			rechazados++;
+		}
+	}
+	
+
+	public int getCreados() {
+		return creados;
+	}
+
+	public int getRechazados() {
+		return rechazados;
+	}
+
+	public List<ResultadoItemLote> getResultados() {
+		return resultados;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.hospital.dto;
+
+/**
+ *  Resultado de un cambio de estado masivo: IDs distintos solicitados y filas actualizadas.
+ *  Si actualizados es menor que solicitados, alguno de los IDs no existe.
+ */
+public class ResultadoTransicion {
+
+	private int solicitados;
+	private int actualizados;
+	
+	
+	public ResultadoTransicion() {
+	}
+	
+	public ResultadoTransicion(int solicitados, int actualizados) {
+		this.solicitados = solicitados;
+		this.actualizados = actualizados;
+	}
+	
+
+	public int getSolicitados() {
+		return solicitados;
+	}
+
+	public int getActualizados() {
+		return actualizados;
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.hospital.dto;
+
+import java.time.LocalDate;
+
+/**
+ *  Elemento de una petición de alta de ingresos en lote.
+ */
+public class SolicitudIngreso {
+
+	private Long mascotaId;
+	private LocalDate fechaAlta;
+	private String dniRegistrador;
+	
+	
+	public SolicitudIngreso() {
+	}
+	
+	public SolicitudIngreso(Long mascotaId, LocalDate fechaAlta, String dniRegistrador) {
+		this.mascotaId = mascotaId;
+		this.fechaAlta = fechaAlta;
+		this.dniRegistrador = dniRegistrador;
+	}
+	
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public void setMascotaId(Long mascotaId) {
+		this.mascotaId = mascotaId;
+	}
+
+	public LocalDate getFechaAlta() {
+		return fechaAlta;
+	}
+
+	public void setFechaAlta(LocalDate fechaAlta) {
+		this.fechaAlta = fechaAlta;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+	public void setDniRegistrador(String dniRegistrador) {
+		this.dniRegistrador = dniRegistrador;
+	}
+
+}
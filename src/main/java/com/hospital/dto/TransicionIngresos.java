@@ -0,0 +1,53 @@
+package com.hospital.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Cambio de estado de varios ingresos a la vez.
+ *  fechaFinalizacion solo se usa (y es obligatoria) cuando el estado destino es FINALIZADO.
+ */
+public class TransicionIngresos {
+
+	private List<Long> ids;
+	private Estado estado;
+	private LocalDate fechaFinalizacion;
+	
+	
+	public TransicionIngresos() {
+	}
+	
+	public TransicionIngresos(List<Long> ids, Estado estado, LocalDate fechaFinalizacion) {
+		this.ids = ids;
+		this.estado = estado;
+		this.fechaFinalizacion = fechaFinalizacion;
+	}
+	
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public void setEstado(Estado estado) {
+		this.estado = estado;
+	}
+
+	public LocalDate getFechaFinalizacion() {
+		return fechaFinalizacion;
+	}
+
+	public void setFechaFinalizacion(LocalDate fechaFinalizacion) {
+		this.fechaFinalizacion = fechaFinalizacion;
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.hospital.dto;
+
+/**
+ *  Versión del historial de ingresos de una mascota: número de ingresos y suma de sus versiones.
+ *  
+ *  Los ingresos no se borran y cada modificación incrementa su versión, así que cualquier alta o
+ *  cambio en el historial cambia al menos uno de los dos valores.
+ */
+public class VersionHistorial {
+
+	private long total;
+	private long sumaVersiones;
+	
+	
+	public VersionHistorial(Long total, Long sumaVersiones) {
+		this.total = total;
+		this.sumaVersiones = sumaVersiones == null ? 0 : sumaVersiones;
+	}
+	
+
+	public long getTotal() {
+		return total;
+	}
+
+	public long getSumaVersiones() {
+		return sumaVersiones;
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.hospital.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+/**
+ *  Estado de un ingreso en una instantánea. Las filas se insertan en bloque con SQL
+ *  (InstantaneaIngresosRepository) y solo se leen desde las consultas a fecha.
+ */
+@Entity
+@Immutable
+@Table(name = "estados_instantanea")
+@IdClass(EstadoInstantanea.Clave.class)
+public class EstadoInstantanea {
+
+	@Id
+	private Long instantaneaId;
+	@Id
+	private Long ingresoId;
+
+	private Long version;
+	private Long mascotaId;
+	private LocalDate fechaAlta;
+
+	@Enumerated(EnumType.STRING)
+	private Estado estado;
+	private LocalDate fechaFinalizacion;
+	private String dniRegistrador;
+
+
+	public Long getInstantaneaId() {
+		return instantaneaId;
+	}
+
+	public Long getIngresoId() {
+		return ingresoId;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public LocalDate getFechaAlta() {
+		return fechaAlta;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public LocalDate getFechaFinalizacion() {
+		return fechaFinalizacion;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+
+	public static class Clave implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long instantaneaId;
+		private Long ingresoId;
+
+
+		public Clave() {
+		}
+
+		public Clave(Long instantaneaId, Long ingresoId) {
+			this.instantaneaId = instantaneaId;
+			this.ingresoId = ingresoId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Clave)) {
+				return false;
+			}
+			Clave otra = (Clave) o;
+			return Objects.equals(instantaneaId, otra.instantaneaId) && Objects.equals(ingresoId, otra.ingresoId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(instantaneaId, ingresoId);
+		}
+	}
+
+}
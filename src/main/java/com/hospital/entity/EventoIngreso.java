@@ -0,0 +1,153 @@
+package com.hospital.entity;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ *  Evento de un ingreso: su estado completo tras el alta o un cambio. Los eventos no se modifican
+ *  nunca; el ingreso actual es el último evento de cada ingreso.
+ *
+ *  La clave es (ingreso, versión): como la versión la incrementa el bloqueo optimista en cada cambio,
+ *  no hace falta secuencia y dos eventos del mismo ingreso no pueden tener la misma versión.
+ */
+@Entity
+@Immutable
+@Table(name = "eventos_ingreso")
+@IdClass(EventoIngreso.Clave.class)
+public class EventoIngreso implements Persistable<EventoIngreso.Clave> {
+
+	@Id
+	private Long ingresoId;
+	@Id
+	private Long version;
+
+	private Instant instante;
+	private Long mascotaId;
+	private LocalDate fechaAlta;
+
+	@Enumerated(EnumType.STRING)
+	private Estado estado;
+	private LocalDate fechaFinalizacion;
+	private String dniRegistrador;
+
+	// Quién hizo el cambio (puede no ser el registrador del ingreso)
+	private String dniAutor;
+
+
+	public EventoIngreso() {
+	}
+
+	public static EventoIngreso de(Ingreso ingreso, String dniAutor, Instant instante) {
+		EventoIngreso evento = new EventoIngreso();
+		evento.ingresoId = ingreso.getId();
+		evento.version = ingreso.getVersion();
+		evento.instante = instante;
+		evento.mascotaId = ingreso.getMascota().getId();
+		evento.fechaAlta = ingreso.getFechaAlta();
+		evento.estado = ingreso.getEstado();
+		evento.fechaFinalizacion = ingreso.getFechaFinalizacion();
+		evento.dniRegistrador = ingreso.getDniRegistrador();
+		evento.dniAutor = dniAutor;
+		return evento;
+	}
+
+
+	// Los eventos siempre son nuevos: save() los inserta sin consultar antes si existen
+	@Override
+	@JsonIgnore
+	public boolean isNew() {
+		return true;
+	}
+
+	@Override
+	@JsonIgnore
+	public Clave getId() {
+		return new Clave(ingresoId, version);
+	}
+
+	public Long getIngresoId() {
+		return ingresoId;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Instant getInstante() {
+		return instante;
+	}
+
+	public Long getMascotaId() {
+		return mascotaId;
+	}
+
+	public LocalDate getFechaAlta() {
+		return fechaAlta;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public LocalDate getFechaFinalizacion() {
+		return fechaFinalizacion;
+	}
+
+	public String getDniRegistrador() {
+		return dniRegistrador;
+	}
+
+	public String getDniAutor() {
+		return dniAutor;
+	}
+
+
+	public static class Clave implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long ingresoId;
+		private Long version;
+
+
+		public Clave() {
+		}
+
+		public Clave(Long ingresoId, Long version) {
+			this.ingresoId = ingresoId;
+			this.version = version;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Clave)) {
+				return false;
+			}
+			Clave otra = (Clave) o;
+			return Objects.equals(ingresoId, otra.ingresoId) && Objects.equals(version, otra.version);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(ingresoId, version);
+		}
+	}
+
+}
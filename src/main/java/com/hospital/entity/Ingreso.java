@@ -5,32 +5,40 @@ import java.time.LocalDate;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "ingresos")
 public class Ingreso {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingresos_seq")
+	@SequenceGenerator(name = "ingresos_seq", sequenceName = "ingresos_seq", allocationSize = 50)
 	private Long id;
 	private LocalDate fechaAlta;
 	
-	private String fechaFinalizacion;
+	private LocalDate fechaFinalizacion;
 	
-	// Relación con mascota
-    @ManyToOne
+	// Relación con mascota (LAZY: los listados solo necesitan su ID)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "mascota_id", nullable = false)
     private Mascota mascota;
     
     @Enumerated(EnumType.STRING)
 	private Estado estado;
 	private String dniRegistrador;
+	
+	// Control de concurrencia optimista: cada actualización lo incrementa
+	@Version
+	private Long version;
 
 
     
@@ -50,11 +58,11 @@ public class Ingreso {
 		this.fechaAlta = fechaAlta;
 	}
 
-    public String getFechaFinalizacion() {
+    public LocalDate getFechaFinalizacion() {
         return fechaFinalizacion;
     }
 
-    public void setFechaFinalizacion(String fechaFinalizacion) {
+    public void setFechaFinalizacion(LocalDate fechaFinalizacion) {
         this.fechaFinalizacion = fechaFinalizacion;
     }
 
@@ -82,4 +90,12 @@ public class Ingreso {
 		this.dniRegistrador = dniRegistrador;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 }
@@ -0,0 +1,30 @@
+package com.hospital.entity;
+
+import java.time.Instant;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ *  Identificador de la base de datos, generado por la migración que la crea (una única fila).
+ *  Liga el log de auditoría a la base de datos cuyos ingresos registra.
+ */
+@Entity
+@Table(name = "instancia")
+public class Instancia {
+
+	@Id
+	private String id;
+	private Instant creada;
+
+
+	public String getId() {
+		return id;
+	}
+
+	public Instant getCreada() {
+		return creada;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.hospital.entity;
+
+import java.time.Instant;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+/**
+ *  Instantánea del estado de todos los ingresos en un instante (sus filas están en EstadoInstantanea).
+ *  Se crean periódicamente a partir de la instantánea anterior y los eventos posteriores.
+ */
+@Entity
+@Table(name = "instantaneas_ingresos")
+public class InstantaneaIngresos {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "instantaneas_ingresos_seq")
+	@SequenceGenerator(name = "instantaneas_ingresos_seq", sequenceName = "instantaneas_ingresos_seq", allocationSize = 1)
+	private Long id;
+	private Instant instante;
+
+	// Número de ingresos que recoge
+	private long ingresos;
+
+
+	public InstantaneaIngresos() {
+	}
+
+	public InstantaneaIngresos(Instant instante) {
+		this.instante = instante;
+	}
+
+
+	public Long getId() {
+		return id;
+	}
+
+	public Instant getInstante() {
+		return instante;
+	}
+
+	public long getIngresos() {
+		return ingresos;
+	}
+
+	public void setIngresos(long ingresos) {
+		this.ingresos = ingresos;
+	}
+
+}
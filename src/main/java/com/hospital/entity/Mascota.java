@@ -4,14 +4,17 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "mascotas")
 public class Mascota {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mascotas_seq")
+	@SequenceGenerator(name = "mascotas_seq", sequenceName = "mascotas_seq", allocationSize = 50)
 	private Long id;
 	private String especie;
 	private String raza;
@@ -20,6 +23,10 @@ public class Mascota {
 	private String dniResponsable;
 	private boolean activa;
 	
+	// Control de concurrencia optimista: cada actualización lo incrementa
+	@Version
+	private Long version;
+	
 
     public Mascota() {
         this.activa = true; // Por defecto, la mascota está activa al ser creada
@@ -82,4 +89,12 @@ public class Mascota {
 		this.activa = activa;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 }
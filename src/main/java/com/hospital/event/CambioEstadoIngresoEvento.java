@@ -0,0 +1,99 @@
+package com.hospital.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.entity.Estado;
+
+/**
+ *  Evento publicado por IngresoServiceImpl cada vez que cambia el número de ingresos de algún estado
+ *  (altas, actualizaciones, anulaciones y cambios masivos).
+ *  
+ *  variaciones indica, para cada estado afectado, cuántos ingresos gana (positivo) o pierde (negativo).
+ *  ingresos indica el estado nuevo de cada ingreso creado o modificado, con su mascota, aunque no
+ *  cambie ningún estado (por ejemplo, solo la fecha de finalización): con ellos se invalida la caché
+ *  del historial de sus mascotas y se actualiza el índice de ingresos por mascota.
+ */
+public class CambioEstadoIngresoEvento {
+
+	private final Map<Estado, Long> variaciones;
+	
+	private final List<EstadoIngreso> ingresos;
+	
+	
+	private CambioEstadoIngresoEvento(Map<Estado, Long> variaciones) {
+		this(Collections.unmodifiableMap(variaciones), Collections.emptyList());
+	}
+	
+	private CambioEstadoIngresoEvento(Map<Estado, Long> variaciones, List<EstadoIngreso> ingresos) {
+		this.variaciones = variaciones;
+		this.ingresos = ingresos;
+	}
+	
+	// Nuevos ingresos, siempre en estado ALTA
+	public static CambioEstadoIngresoEvento altas(long cantidad) {
+		Map<Estado, Long> variaciones = new EnumMap<>(Estado.class);
+		variaciones.put(Estado.ALTA, cantidad);
+		return new CambioEstadoIngresoEvento(variaciones);
+	}
+	
+	// Un ingreso pasa de un estado a otro
+	public static CambioEstadoIngresoEvento cambio(Estado anterior, Estado nuevo) {
+		Map<Estado, Long> anteriores = new EnumMap<>(Estado.class);
+		if (anterior != null) {
+			anteriores.put(anterior, 1L);
+		}
+		return transicion(anteriores, nuevo);
+	}
+	
+	// Varios ingresos, agrupados por su estado anterior, pasan al mismo estado
+	public static CambioEstadoIngresoEvento transicion(Map<Estado, Long> anteriores, Estado nuevo) {
+		Map<Estado, Long> variaciones = new EnumMap<>(Estado.class);
+		long total = 0;
+		for (Map.Entry<Estado, Long> anterior : anteriores.entrySet()) {
+			variaciones.merge(anterior.getKey(), -anterior.getValue(), Long::sum);
+			total += anterior.getValue();
+		}
+		if (nuevo != null) {
+			variaciones.merge(nuevo, total, Long::sum);
+		}
+		variaciones.values().removeIf(variacion -> variacion == 0);
+		return new CambioEstadoIngresoEvento(variaciones);
+	}
+	
+	// El mismo evento, indicando además el estado nuevo de los ingresos afectados
+	public CambioEstadoIngresoEvento deIngresos(Collection<EstadoIngreso> ingresos) {
+		return new CambioEstadoIngresoEvento(variaciones, Collections.unmodifiableList(new ArrayList<>(ingresos)));
+	}
+	
+
+	public Map<Estado, Long> getVariaciones() {
+		return variaciones;
+	}
+	
+	public List<EstadoIngreso> getIngresos() {
+		return ingresos;
+	}
+	
+	public Set<Long> getIdsMascota() {
+		Set<Long> ids = new HashSet<>();
+		for (EstadoIngreso ingreso : ingresos) {
+			if (ingreso.getMascotaId() != null) {
+				ids.add(ingreso.getMascotaId());
+			}
+		}
+		return ids;
+	}
+	
+	public boolean isVacio() {
+		return variaciones.isEmpty() && ingresos.isEmpty();
+	}
+
+}
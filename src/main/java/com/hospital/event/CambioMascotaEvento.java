@@ -0,0 +1,42 @@
+package com.hospital.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.hospital.dto.ClasificacionMascota;
+import com.hospital.entity.Mascota;
+
+/**
+ *  Mascotas creadas o dadas de baja, con su especie y raza y si siguen activas. Lo publica
+ *  MascotaServiceImpl y lo usa BuscadorMascotasServiceImpl para mantener el índice de búsqueda.
+ */
+public class CambioMascotaEvento {
+
+	private final List<ClasificacionMascota> mascotas;
+	
+	
+	private CambioMascotaEvento(List<ClasificacionMascota> mascotas) {
+		this.mascotas = mascotas;
+	}
+	
+	public static CambioMascotaEvento de(Collection<Mascota> mascotas) {
+		List<ClasificacionMascota> clasificaciones = new ArrayList<>(mascotas.size());
+		for (Mascota mascota : mascotas) {
+			clasificaciones.add(new ClasificacionMascota(mascota.getId(), mascota.getEspecie(), mascota.getRaza(),
+					mascota.isActiva()));
+		}
+		return new CambioMascotaEvento(Collections.unmodifiableList(clasificaciones));
+	}
+	
+	public static CambioMascotaEvento de(Mascota mascota) {
+		return de(Collections.singleton(mascota));
+	}
+	
+
+	public List<ClasificacionMascota> getMascotas() {
+		return mascotas;
+	}
+
+}
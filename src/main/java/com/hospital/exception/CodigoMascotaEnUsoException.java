@@ -0,0 +1,11 @@
+package com.hospital.exception;
+
+public class CodigoMascotaEnUsoException extends RuntimeException{
+
+	private static final long serialVersionUID = 1L;
+	
+    public CodigoMascotaEnUsoException(int codigo, Long idMascota) {
+        super("Ya existe una mascota con el código " + codigo + " (ID " + idMascota + ")");
+    }
+    
+}
@@ -0,0 +1,11 @@
+package com.hospital.exception;
+
+public class ConflictoConcurrenciaException extends RuntimeException{
+
+	private static final long serialVersionUID = 1L;
+	
+    public ConflictoConcurrenciaException(String message) {
+        super(message);
+    }
+    
+}
@@ -1,11 +1,16 @@
 package com.hospital.exception;
 
+import java.time.LocalDate;
+
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -24,5 +29,27 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
     
+    // Las fechas se validan una sola vez, al deserializar el cuerpo de la petición
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<String> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+        Throwable causa = ex.getCause();
+        if (causa instanceof InvalidFormatException
+                && LocalDate.class.equals(((InvalidFormatException) causa).getTargetType())) {
+            return handleInvalidFormatException(
+                    new FechaFormatoInvalidoException("Formato de fecha inválido. Por favor, use el formato yyyy-MM-dd."));
+        }
+        return new ResponseEntity<>("Cuerpo de la petición inválido.", HttpStatus.BAD_REQUEST);
+    }
+    
+    @ExceptionHandler(ConflictoConcurrenciaException.class)
+    public ResponseEntity<String> handleConflictoConcurrenciaException(ConflictoConcurrenciaException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+    
+    @ExceptionHandler(LoteInvalidoException.class)
+    public ResponseEntity<String> handleLoteInvalidoException(LoteInvalidoException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+    
     
 }
@@ -0,0 +1,11 @@
+package com.hospital.exception;
+
+public class LoteInvalidoException extends RuntimeException{
+
+	private static final long serialVersionUID = 1L;
+	
+    public LoteInvalidoException(String message) {
+        super(message);
+    }
+    
+}
@@ -0,0 +1,179 @@
+package com.hospital.indice;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ *  Índice de búsqueda de mascotas por prefijo de especie y de raza.
+ *
+ *  Especie y raza tienen pocos valores distintos, así que no se indexa cada mascota por separado sino
+ *  cada combinación: un diccionario ordenado (TreeMap) de especies, cada una con el de sus razas, y en
+ *  cada combinación los IDs de sus mascotas en un long[] ordenado. Las claves que empiezan por un
+ *  prefijo son un rango consecutivo del diccionario (como una rama de un trie), y una página es la
+ *  mezcla ordenada de las listas de IDs de las combinaciones del rango, empezando por bisección en el
+ *  cursor. El coste depende del número de combinaciones y del tamaño de la página, no del de mascotas.
+ *
+ *  Los valores se comparan normalizados (ver normalizar). No es seguro para hilos:
+ *  BuscadorMascotasServiceImpl lo protege con un cerrojo de lectura/escritura.
+ */
+public class IndiceEspecieRaza {
+
+	private final TreeMap<String, TreeMap<String, ListaIds>> especies = new TreeMap<>();
+	private int mascotas;
+
+
+	// Añade la mascota; si ya estaba no hace nada
+	public void anadir(long id, String especie, String raza) {
+		ListaIds ids = especies.computeIfAbsent(normalizar(especie), e -> new TreeMap<>())
+				.computeIfAbsent(normalizar(raza), r -> new ListaIds());
+		if (ids.anadir(id)) {
+			mascotas++;
+		}
+	}
+
+	// Quita la mascota; si no estaba no hace nada. Las combinaciones que se quedan vacías se eliminan
+	public void quitar(long id, String especie, String raza) {
+		String claveEspecie = normalizar(especie);
+		TreeMap<String, ListaIds> razas = especies.get(claveEspecie);
+		if (razas == null) {
+			return;
+		}
+		String claveRaza = normalizar(raza);
+		ListaIds ids = razas.get(claveRaza);
+		if (ids != null && ids.quitar(id)) {
+			mascotas--;
+			if (ids.tamano == 0) {
+				razas.remove(claveRaza);
+				if (razas.isEmpty()) {
+					especies.remove(claveEspecie);
+				}
+			}
+		}
+	}
+
+	/**
+	 *  Hasta limite IDs, en orden, mayores que cursor, de las mascotas cuya especie y raza empiezan por
+	 *  los prefijos indicados (un prefijo vacío o null no filtra).
+	 */
+	public long[] buscar(String prefijoEspecie, String prefijoRaza, long cursor, int limite) {
+		List<ListaIds> listas = listas(prefijoEspecie, prefijoRaza);
+		int[] posiciones = new int[listas.size()];
+		// Las listas que aún tienen IDs, por el siguiente de cada una
+		PriorityQueue<Integer> siguientes = new PriorityQueue<>(Math.max(1, posiciones.length),
+				Comparator.comparingLong(i -> listas.get(i).ids[posiciones[i]]));
+		for (int i = 0; i < posiciones.length; i++) {
+			posiciones[i] = listas.get(i).primeraPosicionTras(cursor);
+			if (posiciones[i] < listas.get(i).tamano) {
+				siguientes.add(i);
+			}
+		}
+
+		long[] resultado = new long[limite];
+		int encontrados = 0;
+		while (encontrados < limite && !siguientes.isEmpty()) {
+			int menor = siguientes.poll();
+			resultado[encontrados++] = listas.get(menor).ids[posiciones[menor]++];
+			if (posiciones[menor] < listas.get(menor).tamano) {
+				siguientes.add(menor);
+			}
+		}
+		return encontrados == limite ? resultado : Arrays.copyOf(resultado, encontrados);
+	}
+
+	// Número total de mascotas cuya especie y raza empiezan por los prefijos indicados
+	public long contar(String prefijoEspecie, String prefijoRaza) {
+		long total = 0;
+		for (ListaIds ids : listas(prefijoEspecie, prefijoRaza)) {
+			total += ids.tamano;
+		}
+		return total;
+	}
+
+	public int getMascotas() {
+		return mascotas;
+	}
+
+	public int getCombinaciones() {
+		int combinaciones = 0;
+		for (TreeMap<String, ListaIds> razas : especies.values()) {
+			combinaciones += razas.size();
+		}
+		return combinaciones;
+	}
+
+	/**
+	 *  Forma en la que se comparan especies, razas y prefijos: sin espacios alrededor, en minúsculas y
+	 *  sin tildes ("Siamés" y "siames" son la misma raza).
+	 */
+	public static String normalizar(String valor) {
+		if (valor == null) {
+			return "";
+		}
+		String sinTildes = Normalizer.normalize(valor.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		return sinTildes.toLowerCase(Locale.ROOT);
+	}
+
+
+	private List<ListaIds> listas(String prefijoEspecie, String prefijoRaza) {
+		List<ListaIds> listas = new ArrayList<>();
+		String prefijo = normalizar(prefijoRaza);
+		for (TreeMap<String, ListaIds> razas : conPrefijo(especies, normalizar(prefijoEspecie)).values()) {
+			listas.addAll(conPrefijo(razas, prefijo).values());
+		}
+		return listas;
+	}
+
+	private static <V> SortedMap<String, V> conPrefijo(TreeMap<String, V> mapa, String prefijo) {
+		return prefijo.isEmpty() ? mapa : mapa.subMap(prefijo, prefijo + Character.MAX_VALUE);
+	}
+
+
+	// IDs de las mascotas de una combinación, ordenados. Los nuevos suelen ser los mayores y van al final
+	private static final class ListaIds {
+
+		private long[] ids = new long[4];
+		private int tamano;
+
+		boolean anadir(long id) {
+			int posicion = tamano;
+			if (tamano > 0 && ids[tamano - 1] >= id) {
+				posicion = Arrays.binarySearch(ids, 0, tamano, id);
+				if (posicion >= 0) {
+					return false;
+				}
+				posicion = -posicion - 1;
+			}
+			if (tamano == ids.length) {
+				ids = Arrays.copyOf(ids, tamano * 2);
+			}
+			System.arraycopy(ids, posicion, ids, posicion + 1, tamano - posicion);
+			ids[posicion] = id;
+			tamano++;
+			return true;
+		}
+
+		boolean quitar(long id) {
+			int posicion = Arrays.binarySearch(ids, 0, tamano, id);
+			if (posicion < 0) {
+				return false;
+			}
+			System.arraycopy(ids, posicion + 1, ids, posicion, tamano - posicion - 1);
+			tamano--;
+			return true;
+		}
+
+		int primeraPosicionTras(long cursor) {
+			int posicion = Arrays.binarySearch(ids, 0, tamano, cursor);
+			return posicion >= 0 ? posicion + 1 : -posicion - 1;
+		}
+
+	}
+
+}
@@ -0,0 +1,257 @@
+package com.hospital.indice;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.hospital.entity.Estado;
+
+/**
+ *  Índice en memoria de los ingresos de cada mascota: ID de la mascota -> IDs de sus ingresos y el
+ *  estado actual de cada uno, sin ningún objeto por mascota ni por ingreso.
+ *
+ *  Las mascotas están en una tabla hash de direccionamiento abierto (sondeo lineal, ocupación máxima
+ *  de la mitad) con huecos de 16 bytes: ID de la mascota (0 = libre), último ingreso añadido y número
+ *  de ingresos. Los ingresos se añaden al final de un segundo área en registros de 16 bytes: su ID,
+ *  en un int el ingreso anterior de la misma mascota y el estado, y la versión de la fila (@Version de
+ *  Ingreso) con ese estado. Así los ingresos de cada mascota
+ *  forman una lista enlazada desde el más reciente. Tras una carga masiva, compactar() los reordena
+ *  para que los de cada mascota queden contiguos y una consulta recorra memoria consecutiva.
+ *
+ *  Las dos áreas son ByteBuffer, en el heap o fuera de él (allocateDirect) con el mismo código, y
+ *  crecen al doble cuando se llenan. Los ingresos no se borran (anular es un cambio de estado), así
+ *  que tampoco hay que eliminar entradas.
+ *
+ *  Un cambio con una versión anterior a la guardada se descarta: los eventos de dos transacciones
+ *  sobre el mismo ingreso pueden llegar en cualquier orden, y solo debe quedar el estado más reciente.
+ *
+ *  No es seguro para hilos: IndiceIngresosServiceImpl lo protege con un cerrojo de lectura/escritura.
+ */
+public class IndiceIngresosMascota {
+
+	private static final int TAMANO_HUECO = 16;
+	private static final int TAMANO_INGRESO = 16;
+
+	// El int de cada ingreso: (número del ingreso anterior << BITS_ESTADO) | ordinal del estado
+	private static final int BITS_ESTADO = 3;
+	private static final int MASCARA_ESTADO = (1 << BITS_ESTADO) - 1;
+
+	private static final int MAX_HUECOS = 1 << 26;
+	private static final int MAX_INGRESOS = Integer.MAX_VALUE / TAMANO_INGRESO;
+	private static final Estado[] ESTADOS = Estado.values();
+
+	static {
+		if (ESTADOS.length > MASCARA_ESTADO + 1) {
+			throw new IllegalStateException("El estado de un ingreso no cabe en " + BITS_ESTADO + " bits");
+		}
+	}
+
+	private final boolean fueraDelHeap;
+
+	private ByteBuffer huecos;
+	private int bitsHuecos;
+	private int mascotas;
+
+	// Los ingresos se numeran desde 1 (0 = ninguno) en el orden en que se añaden
+	private ByteBuffer ingresos;
+	private int numIngresos;
+
+
+	public IndiceIngresosMascota(int mascotasPrevistas, int ingresosPrevistos, boolean fueraDelHeap) {
+		this.fueraDelHeap = fueraDelHeap;
+		int capacidad = Integer.highestOneBit(Math.max(16, Math.min(MAX_HUECOS / 2, mascotasPrevistas) * 2 - 1)) << 1;
+		this.bitsHuecos = Integer.numberOfTrailingZeros(capacidad);
+		this.huecos = reservar(capacidad * TAMANO_HUECO);
+		this.ingresos = reservar(Math.max(16, Math.min(MAX_INGRESOS, ingresosPrevistos)) * TAMANO_INGRESO);
+	}
+
+	/**
+	 *  Añade el ingreso a la mascota con el estado indicado o, si ya estaba, le cambia el estado.
+	 *  Devuelve false si el ingreso ya estaba con una versión posterior y el cambio se ha descartado.
+	 */
+	public boolean registrar(long idMascota, long idIngreso, Estado estado, long version) {
+		if (idMascota <= 0) {
+			throw new IllegalArgumentException("ID de mascota no válido: " + idMascota);
+		}
+		int hueco = buscarHueco(idMascota);
+		if (huecos.getLong(hueco) == 0) {
+			if ((mascotas + 1) * 2 > huecos.capacity() / TAMANO_HUECO) {
+				crecerHuecos();
+				hueco = buscarHueco(idMascota);
+			}
+			huecos.putLong(hueco, idMascota);
+			mascotas++;
+		} else {
+			for (int i = huecos.getInt(hueco + 8); i != 0; i = anterior(i)) {
+				if (ingresos.getLong(posicion(i)) == idIngreso) {
+					if (versionGuardada(version) < version(i)) {
+						return false;
+					}
+					ingresos.putInt(posicion(i) + 8, (anterior(i) << BITS_ESTADO) | estado.ordinal());
+					ingresos.putInt(posicion(i) + 12, versionGuardada(version));
+					return true;
+				}
+			}
+		}
+
+		if (numIngresos == MAX_INGRESOS) {
+			throw new IllegalStateException("El índice ha alcanzado el máximo de " + MAX_INGRESOS + " ingresos");
+		}
+		if ((numIngresos + 1) * TAMANO_INGRESO > ingresos.capacity()) {
+			crecerIngresos();
+		}
+		int nuevo = ++numIngresos;
+		ingresos.putLong(posicion(nuevo), idIngreso);
+		ingresos.putInt(posicion(nuevo) + 8, (huecos.getInt(hueco + 8) << BITS_ESTADO) | estado.ordinal());
+		ingresos.putInt(posicion(nuevo) + 12, versionGuardada(version));
+		huecos.putInt(hueco + 8, nuevo);
+		huecos.putInt(hueco + 12, huecos.getInt(hueco + 12) + 1);
+		return true;
+	}
+
+	/**
+	 *  Reordena los ingresos para que los de cada mascota queden juntos, del más antiguo al más
+	 *  reciente. Necesita temporalmente el doble de memoria para los ingresos.
+	 */
+	public void compactar() {
+		ByteBuffer compactados = reservar(ingresos.capacity());
+		int siguiente = 0;
+		for (int hueco = 0; hueco < huecos.capacity(); hueco += TAMANO_HUECO) {
+			if (huecos.getLong(hueco) == 0) {
+				continue;
+			}
+			int total = huecos.getInt(hueco + 12);
+			// Se recorren desde el más reciente: el ingreso k-ésimo de la mascota va en siguiente + k
+			int k = total;
+			for (int i = huecos.getInt(hueco + 8); i != 0; i = anterior(i)) {
+				int nuevo = siguiente + k--;
+				int anteriorNuevo = k == 0 ? 0 : nuevo - 1;
+				compactados.putLong(posicion(nuevo), ingresos.getLong(posicion(i)));
+				compactados.putInt(posicion(nuevo) + 8, (anteriorNuevo << BITS_ESTADO) | estado(i).ordinal());
+				compactados.putInt(posicion(nuevo) + 12, version(i));
+			}
+			huecos.putInt(hueco + 8, siguiente + total);
+			siguiente += total;
+		}
+		ingresos = compactados;
+	}
+
+	// IDs de los ingresos de la mascota en el orden en que se añadieron; vacío si no tiene ninguno
+	public long[] obtenerIngresos(long idMascota) {
+		int hueco = buscarHueco(idMascota);
+		long[] ids = new long[huecos.getInt(hueco + 12)];
+		int j = ids.length;
+		for (int i = huecos.getInt(hueco + 8); i != 0; i = anterior(i)) {
+			ids[--j] = ingresos.getLong(posicion(i));
+		}
+		return ids;
+	}
+
+	// IDs de los ingresos de la mascota que están en el estado indicado, en el orden en que se añadieron
+	public long[] obtenerIngresos(long idMascota, Estado estado) {
+		int primero = huecos.getInt(buscarHueco(idMascota) + 8);
+		int total = 0;
+		for (int i = primero; i != 0; i = anterior(i)) {
+			if (estado(i) == estado) {
+				total++;
+			}
+		}
+		long[] ids = new long[total];
+		for (int i = primero; i != 0; i = anterior(i)) {
+			if (estado(i) == estado) {
+				ids[--total] = ingresos.getLong(posicion(i));
+			}
+		}
+		return ids;
+	}
+
+	public boolean tieneIngresoEn(long idMascota, Estado estado) {
+		for (int i = huecos.getInt(buscarHueco(idMascota) + 8); i != 0; i = anterior(i)) {
+			if (estado(i) == estado) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getMascotas() {
+		return mascotas;
+	}
+
+	public int getIngresos() {
+		return numIngresos;
+	}
+
+	// Memoria reservada por las dos áreas, ocupada o no
+	public long getBytesReservados() {
+		return (long) huecos.capacity() + ingresos.capacity();
+	}
+
+	public boolean isFueraDelHeap() {
+		return fueraDelHeap;
+	}
+
+
+	// Hueco de la mascota o, si no está, el hueco libre donde iría (posición en bytes)
+	private int buscarHueco(long idMascota) {
+		int mascara = (1 << bitsHuecos) - 1;
+		int i = (int) ((idMascota * 0x9E3779B97F4A7C15L) >>> (64 - bitsHuecos));
+		while (true) {
+			long id = huecos.getLong(i * TAMANO_HUECO);
+			if (id == idMascota || id == 0) {
+				return i * TAMANO_HUECO;
+			}
+			i = (i + 1) & mascara;
+		}
+	}
+
+	private void crecerHuecos() {
+		if (bitsHuecos == Integer.numberOfTrailingZeros(MAX_HUECOS)) {
+			throw new IllegalStateException("El índice ha alcanzado el máximo de " + MAX_HUECOS / 2 + " mascotas");
+		}
+		ByteBuffer anteriores = huecos;
+		huecos = reservar(anteriores.capacity() * 2);
+		bitsHuecos++;
+		for (int hueco = 0; hueco < anteriores.capacity(); hueco += TAMANO_HUECO) {
+			long idMascota = anteriores.getLong(hueco);
+			if (idMascota != 0) {
+				int nuevo = buscarHueco(idMascota);
+				huecos.putLong(nuevo, idMascota);
+				huecos.putLong(nuevo + 8, anteriores.getLong(hueco + 8));
+			}
+		}
+	}
+
+	private void crecerIngresos() {
+		ByteBuffer anteriores = ingresos;
+		ingresos = reservar((int) Math.min((long) MAX_INGRESOS * TAMANO_INGRESO, anteriores.capacity() * 2L));
+		anteriores.clear().limit(numIngresos * TAMANO_INGRESO);
+		ingresos.put(anteriores).clear();
+	}
+
+	private ByteBuffer reservar(int bytes) {
+		ByteBuffer buffer = fueraDelHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	private static int posicion(int ingreso) {
+		return (ingreso - 1) * TAMANO_INGRESO;
+	}
+
+	private int anterior(int ingreso) {
+		return ingresos.getInt(posicion(ingreso) + 8) >>> BITS_ESTADO;
+	}
+
+	private Estado estado(int ingreso) {
+		return ESTADOS[ingresos.getInt(posicion(ingreso) + 8) & MASCARA_ESTADO];
+	}
+
+	private int version(int ingreso) {
+		return ingresos.getInt(posicion(ingreso) + 12);
+	}
+
+	// Un int basta para las versiones de una fila; por encima se queda en el máximo, que siempre se aplica
+	private static int versionGuardada(long version) {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, version));
+	}
+
+}
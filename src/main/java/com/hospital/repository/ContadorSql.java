@@ -0,0 +1,63 @@
+package com.hospital.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  Sentencias SQL y tiempo JDBC de la petición HTTP en curso.
+ *
+ *  Se guarda en un ThreadLocal entre iniciar() y terminar() (ver ServerTimingFilter); fuera de una
+ *  petición no hay contador y las sentencias no se registran. Lo alimentan InspectorSql (cada
+ *  sentencia que prepara Hibernate) y TiempoJdbcListener (duración de cada ejecución).
+ */
+public final class ContadorSql {
+
+    private static final ThreadLocal<ContadorSql> ACTUAL = new ThreadLocal<>();
+
+    // Límite de sentencias distintas que se recuerdan para saber cuál se repite más
+    private static final int MAX_SENTENCIAS_DISTINTAS = 200;
+
+    private int sentencias;
+    private long nanosJdbc;
+    private final Map<String, Integer> repeticiones = new HashMap<>();
+
+
+    public static ContadorSql iniciar() {
+        ContadorSql contador = new ContadorSql();
+        ACTUAL.set(contador);
+        return contador;
+    }
+
+    public static void terminar() {
+        ACTUAL.remove();
+    }
+
+    static ContadorSql actual() {
+        return ACTUAL.get();
+    }
+
+    void registrarSentencia(String sql) {
+        sentencias++;
+        if (repeticiones.containsKey(sql) || repeticiones.size() < MAX_SENTENCIAS_DISTINTAS) {
+            repeticiones.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void registrarTiempo(long nanos) {
+        nanosJdbc += nanos;
+    }
+
+    public int getSentencias() {
+        return sentencias;
+    }
+
+    public double getMilisegundosJdbc() {
+        return nanosJdbc / 1_000_000.0;
+    }
+
+    // La sentencia que más veces se ha preparado (la candidata a N+1), o null si no hay ninguna
+    public Map.Entry<String, Integer> getSentenciaMasRepetida() {
+        return repeticiones.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+    }
+
+}
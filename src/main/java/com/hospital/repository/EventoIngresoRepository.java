@@ -0,0 +1,44 @@
+package com.hospital.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+import com.hospital.entity.EventoIngreso;
+
+@Repository
+public interface EventoIngresoRepository extends JpaRepository<EventoIngreso, EventoIngreso.Clave> {
+
+	 List<EventoIngreso> findByIngresoIdOrderByVersion(Long ingresoId);
+
+	 // Estado de un ingreso en un instante: su último evento hasta entonces
+	 Optional<EventoIngreso> findFirstByIngresoIdAndInstanteLessThanEqualOrderByVersionDesc(Long ingresoId, Instant instante);
+
+	 boolean existsByInstanteGreaterThanAndInstanteLessThanEqual(Instant desde, Instant hasta);
+
+	 // Ingresos cuyo último evento en (desde, hasta] los deja en el estado indicado
+	 @Query("select new com.hospital.dto.IngresoResumen(e.ingresoId, e.fechaAlta, e.fechaFinalizacion, e.estado, e.dniRegistrador, e.mascotaId) "
+	 		+ "from EventoIngreso e where e.instante > :desde and e.instante <= :hasta and e.estado = :estado "
+	 		+ "and not exists (select p from EventoIngreso p where p.ingresoId = e.ingresoId and p.version > e.version "
+	 		+ "and p.instante <= :hasta)")
+	 List<IngresoResumen> buscarUltimosEnEstado(@Param("estado") Estado estado, @Param("desde") Instant desde,
+			 @Param("hasta") Instant hasta);
+
+	 // Eventos de un cambio masivo: copia el estado ya actualizado de cada ingreso en una sola sentencia
+	 @Modifying
+	 @Query(value = "insert into eventos_ingreso (ingreso_id, version, instante, mascota_id, fecha_alta, estado, "
+	 		+ "fecha_finalizacion, dni_registrador, dni_autor) "
+	 		+ "select i.id, i.version, :instante, i.mascota_id, i.fecha_alta, i.estado, i.fecha_finalizacion, "
+	 		+ "i.dni_registrador, i.dni_registrador from ingresos i where i.id in :ids", nativeQuery = true)
+	 int registrarEstadoActual(@Param("ids") Collection<Long> ids, @Param("instante") Instant instante);
+
+}
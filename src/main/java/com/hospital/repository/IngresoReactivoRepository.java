@@ -0,0 +1,59 @@
+package com.hospital.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+
+/**
+ *  Las mismas lecturas de IngresoResumen que IngresoRepository, pero con R2DBC (ver R2dbcConfig): las
+ *  filas se emiten según las va pidiendo el suscriptor en lugar de cargarse todas en una lista.
+ *
+ *  Solo lectura: las escrituras siguen pasando por JPA.
+ */
+@Repository
+public class IngresoReactivoRepository {
+
+    private static final String SELECCION_RESUMEN =
+            "select id, fecha_alta, fecha_finalizacion, estado, dni_registrador, mascota_id from ingresos ";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+
+    public Flux<IngresoResumen> findResumenesByMascotaId(Long idMascota) {
+        return databaseClient.sql(SELECCION_RESUMEN + "where mascota_id = :idMascota order by id")
+                .bind("idMascota", idMascota)
+                .map(IngresoReactivoRepository::resumen)
+                .all();
+    }
+
+    // Paginación por cursor, igual que IngresoRepository.findResumenesDesde
+    public Flux<IngresoResumen> findResumenesDesde(Long cursor, int limite) {
+        return databaseClient.sql(SELECCION_RESUMEN + "where id > :cursor order by id limit :limite")
+                .bind("cursor", cursor)
+                .bind("limite", limite)
+                .map(IngresoReactivoRepository::resumen)
+                .all();
+    }
+
+    private static IngresoResumen resumen(Row fila, RowMetadata metadatos) {
+        String estado = fila.get("estado", String.class);
+        return new IngresoResumen(
+                fila.get("id", Long.class),
+                fila.get("fecha_alta", LocalDate.class),
+                fila.get("fecha_finalizacion", LocalDate.class),
+                estado != null ? Estado.valueOf(estado) : null,
+                fila.get("dni_registrador", String.class),
+                fila.get("mascota_id", Long.class));
+    }
+
+}
@@ -1,15 +1,91 @@
 package com.hospital.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.hospital.config.CacheConfig;
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.RecuentoEstado;
+import com.hospital.dto.VersionHistorial;
+import com.hospital.entity.Estado;
 import com.hospital.entity.Ingreso;
 
 @Repository
-public interface IngresoRepository extends JpaRepository<Ingreso, Long>{
+public interface IngresoRepository extends JpaRepository<Ingreso, Long>, IngresoRepositoryCustom {
 
-	 List<Ingreso> findByMascotaId(Long idMascota);
+	 // La mascota se carga en la misma consulta (join) porque la respuesta la incluye
+	 @Override
+	 @EntityGraph(attributePaths = "mascota")
+	 Optional<Ingreso> findById(Long id);
+	
+	 // Historial de una mascota y su versión, a través de la caché: una lista vacía también se guarda,
+	 // así que las mascotas sin ingresos no vuelven a consultarse. Las entradas se invalidan al confirmarse
+	 // cualquier cambio en los ingresos de la mascota (MascotaServiceImpl.invalidarHistorial)
+	 @Cacheable(cacheNames = CacheConfig.HISTORIAL_INGRESOS, key = "#p0", sync = true)
+	 @Query("select new com.hospital.dto.IngresoResumen(i.id, i.fechaAlta, i.fechaFinalizacion, i.estado, i.dniRegistrador, i.mascota.id) "
+	 		+ "from Ingreso i where i.mascota.id = :idMascota order by i.id")
+	 List<IngresoResumen> findResumenesByMascotaId(@Param("idMascota") Long idMascota);
+	 
+	 @Cacheable(cacheNames = CacheConfig.VERSIONES_HISTORIAL, key = "#p0", sync = true)
+	 @Query("select new com.hospital.dto.VersionHistorial(count(i), sum(i.version)) from Ingreso i where i.mascota.id = :idMascota")
+	 VersionHistorial obtenerVersionHistorial(@Param("idMascota") Long idMascota);
+	 
+	 // Paginación por cursor: el coste no crece con el número de páginas recorridas
+	 @Query("select new com.hospital.dto.IngresoResumen(i.id, i.fechaAlta, i.fechaFinalizacion, i.estado, i.dniRegistrador, i.mascota.id) "
+	 		+ "from Ingreso i where i.id > :cursor order by i.id")
+	 List<IngresoResumen> findResumenesDesde(@Param("cursor") Long cursor, Pageable pageable);
+	 
+	 // Recorrido completo para exportaciones: debe consumirse dentro de una transacción y cerrarse
+	 @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	 @Query("select new com.hospital.dto.IngresoResumen(i.id, i.fechaAlta, i.fechaFinalizacion, i.estado, i.dniRegistrador, i.mascota.id) "
+	 		+ "from Ingreso i order by i.id")
+	 Stream<IngresoResumen> streamResumenes();
+	 
+	 // Estado y mascota de todos los ingresos, para cargar IndiceIngresosServiceImpl al arrancar: debe
+	 // consumirse dentro de una transacción y cerrarse
+	 @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	 @Query("select new com.hospital.dto.EstadoIngreso(i.id, i.estado, i.dniRegistrador, i.mascota.id, i.version) from Ingreso i order by i.id")
+	 Stream<EstadoIngreso> streamEstados();
+	 
+	 // Número de ingresos en cada estado
+	 @Query("select new com.hospital.dto.RecuentoEstado(i.estado, count(i)) from Ingreso i group by i.estado")
+	 List<RecuentoEstado> contarPorEstado();
+	 
+	 // Estado y versión de cada ingreso de un cambio masivo, bloqueando las filas (select ... for update)
+	 // hasta el final de la transacción: ninguna otra puede cambiarlas entre esta lectura y el UPDATE
+	 @Lock(LockModeType.PESSIMISTIC_WRITE)
+	 @Query("select new com.hospital.dto.EstadoIngreso(i.id, i.estado, i.dniRegistrador, i.mascota.id, i.version) from Ingreso i where i.id in :ids")
+	 List<EstadoIngreso> obtenerEstados(@Param("ids") Collection<Long> ids);
+	 
+	 // Cambios de estado masivos en una sola sentencia UPDATE (que también incrementa la versión)
+	 @Modifying(flushAutomatically = true, clearAutomatically = true)
+	 @Query("update Ingreso i set i.estado = :estado, i.version = i.version + 1 where i.id in :ids")
+	 int actualizarEstado(@Param("ids") Collection<Long> ids, @Param("estado") Estado estado);
+	 
+	 @Modifying(flushAutomatically = true, clearAutomatically = true)
+	 @Query("update Ingreso i set i.estado = :estado, i.fechaFinalizacion = :fechaFinalizacion, i.version = i.version + 1 "
+	 		+ "where i.id in :ids")
+	 int actualizarEstadoYFechaFinalizacion(@Param("ids") Collection<Long> ids, @Param("estado") Estado estado,
+			 @Param("fechaFinalizacion") LocalDate fechaFinalizacion);
 	
 }
@@ -0,0 +1,16 @@
+package com.hospital.repository;
+
+import java.util.List;
+
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+
+/**
+ *  Consultas de ingresos que se construyen dinámicamente (ver IngresoRepositoryImpl).
+ */
+public interface IngresoRepositoryCustom {
+
+	 // Búsqueda por criterios, ordenada por ID y paginada por cursor (ID del último ingreso devuelto)
+	 List<IngresoResumen> buscarResumenes(FiltroIngresos filtro, Long cursor, int maximoFilas);
+	
+}
@@ -0,0 +1,77 @@
+package com.hospital.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+
+/**
+ *  Implementación de IngresoRepositoryCustom con la Criteria API.
+ *  
+ *  Solo se añaden a la consulta las condiciones de los criterios informados, de forma que cada
+ *  combinación llega a la base de datos como una consulta sencilla que puede resolverse con los
+ *  índices de V2/V4. La tabla de mascotas solo se une cuando se filtra por especie.
+ */
+public class IngresoRepositoryImpl implements IngresoRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	
+	@Override
+	public List<IngresoResumen> buscarResumenes(FiltroIngresos filtro, Long cursor, int maximoFilas) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<IngresoResumen> consulta = cb.createQuery(IngresoResumen.class);
+		Root<Ingreso> ingreso = consulta.from(Ingreso.class);
+		
+		List<Predicate> condiciones = new ArrayList<>();
+		if (cursor != null) {
+			condiciones.add(cb.greaterThan(ingreso.get("id"), cursor));
+		}
+		if (filtro.getEstado() != null) {
+			condiciones.add(cb.equal(ingreso.get("estado"), filtro.getEstado()));
+		}
+		if (filtro.getDniRegistrador() != null) {
+			condiciones.add(cb.equal(ingreso.get("dniRegistrador"), filtro.getDniRegistrador()));
+		}
+		if (filtro.getFechaAltaDesde() != null) {
+			condiciones.add(cb.greaterThanOrEqualTo(ingreso.get("fechaAlta"), filtro.getFechaAltaDesde()));
+		}
+		if (filtro.getFechaAltaHasta() != null) {
+			condiciones.add(cb.lessThanOrEqualTo(ingreso.get("fechaAlta"), filtro.getFechaAltaHasta()));
+		}
+		if (filtro.getFechaFinalizacionDesde() != null) {
+			condiciones.add(cb.greaterThanOrEqualTo(ingreso.get("fechaFinalizacion"), filtro.getFechaFinalizacionDesde()));
+		}
+		if (filtro.getFechaFinalizacionHasta() != null) {
+			condiciones.add(cb.lessThanOrEqualTo(ingreso.get("fechaFinalizacion"), filtro.getFechaFinalizacionHasta()));
+		}
+		if (filtro.getEspecie() != null) {
+			Join<Ingreso, Mascota> mascota = ingreso.join("mascota");
+			condiciones.add(cb.equal(mascota.get("especie"), filtro.getEspecie()));
+		}
+		
+		// i.mascota.id se lee de la columna mascota_id, sin unir la tabla de mascotas
+		consulta.select(cb.construct(IngresoResumen.class,
+					ingreso.get("id"), ingreso.get("fechaAlta"), ingreso.get("fechaFinalizacion"),
+					ingreso.get("estado"), ingreso.get("dniRegistrador"), ingreso.get("mascota").get("id")))
+				.where(condiciones.toArray(new Predicate[0]))
+				.orderBy(cb.asc(ingreso.get("id")));
+		
+		return entityManager.createQuery(consulta)
+				.setMaxResults(maximoFilas)
+				.getResultList();
+	}
+	
+}
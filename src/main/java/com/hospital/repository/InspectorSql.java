@@ -0,0 +1,25 @@
+package com.hospital.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ *  Cuenta las sentencias que prepara Hibernate en el ContadorSql de la petición en curso.
+ *  No modifica el SQL.
+ *
+ *  Se registra en hibernate.session_factory.statement_inspector (application.properties).
+ */
+public class InspectorSql implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+
+    @Override
+    public String inspect(String sql) {
+        ContadorSql contador = ContadorSql.actual();
+        if (contador != null) {
+            contador.registrarSentencia(sql);
+        }
+        return sql;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.hospital.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.hospital.entity.Instancia;
+
+@Repository
+public interface InstanciaRepository extends JpaRepository<Instancia, String> {
+
+	// Identificador de esta base de datos (V9__instancia.sql)
+	@Query("select i.id from Instancia i")
+	String obtenerIdentificador();
+
+}
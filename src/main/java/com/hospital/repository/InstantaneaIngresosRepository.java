@@ -0,0 +1,66 @@
+package com.hospital.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+import com.hospital.entity.InstantaneaIngresos;
+
+@Repository
+public interface InstantaneaIngresosRepository extends JpaRepository<InstantaneaIngresos, Long> {
+
+	 // Instantánea desde la que reconstruir el estado en un instante
+	 Optional<InstantaneaIngresos> findFirstByInstanteLessThanEqualOrderByInstanteDesc(Instant instante);
+
+	 Optional<InstantaneaIngresos> findFirstByOrderByInstanteDesc();
+
+	 @Query("select i.id from InstantaneaIngresos i order by i.instante desc")
+	 List<Long> obtenerIdsDeMasRecienteAMasAntigua();
+
+	 // Ingresos de la instantánea en el estado indicado que no han cambiado en (desde, hasta]
+	 @Query("select new com.hospital.dto.IngresoResumen(s.ingresoId, s.fechaAlta, s.fechaFinalizacion, s.estado, s.dniRegistrador, s.mascotaId) "
+	 		+ "from EstadoInstantanea s where s.instantaneaId = :instantanea and s.estado = :estado "
+	 		+ "and not exists (select e from EventoIngreso e where e.ingresoId = s.ingresoId and e.instante > :desde "
+	 		+ "and e.instante <= :hasta)")
+	 List<IngresoResumen> buscarSinCambiosEnEstado(@Param("instantanea") Long instantanea, @Param("estado") Estado estado,
+			 @Param("desde") Instant desde, @Param("hasta") Instant hasta);
+
+	 // Una instantánea nueva se crea en dos sentencias: el último evento en (desde, hasta] de los ingresos
+	 // que han cambiado y, del resto, su fila en la instantánea anterior
+	 @Modifying
+	 @Query(value = "insert into estados_instantanea (instantanea_id, ingreso_id, version, mascota_id, fecha_alta, estado, "
+	 		+ "fecha_finalizacion, dni_registrador) "
+	 		+ "select :nueva, e.ingreso_id, e.version, e.mascota_id, e.fecha_alta, e.estado, e.fecha_finalizacion, e.dni_registrador "
+	 		+ "from eventos_ingreso e where e.instante > :desde and e.instante <= :hasta "
+	 		+ "and not exists (select 1 from eventos_ingreso p where p.ingreso_id = e.ingreso_id and p.version > e.version "
+	 		+ "and p.instante <= :hasta)", nativeQuery = true)
+	 int copiarUltimosEventos(@Param("nueva") Long nueva, @Param("desde") Instant desde, @Param("hasta") Instant hasta);
+
+	 @Modifying
+	 @Query(value = "insert into estados_instantanea (instantanea_id, ingreso_id, version, mascota_id, fecha_alta, estado, "
+	 		+ "fecha_finalizacion, dni_registrador) "
+	 		+ "select :nueva, s.ingreso_id, s.version, s.mascota_id, s.fecha_alta, s.estado, s.fecha_finalizacion, s.dni_registrador "
+	 		+ "from estados_instantanea s where s.instantanea_id = :anterior "
+	 		+ "and not exists (select 1 from eventos_ingreso e where e.ingreso_id = s.ingreso_id and e.instante > :desde "
+	 		+ "and e.instante <= :hasta)", nativeQuery = true)
+	 int copiarSinCambios(@Param("nueva") Long nueva, @Param("anterior") Long anterior, @Param("desde") Instant desde,
+			 @Param("hasta") Instant hasta);
+
+	 @Modifying
+	 @Query("delete from EstadoInstantanea s where s.instantaneaId in :ids")
+	 int borrarEstados(@Param("ids") Collection<Long> ids);
+
+	 @Modifying
+	 @Query("delete from InstantaneaIngresos i where i.id in :ids")
+	 int borrarInstantaneas(@Param("ids") Collection<Long> ids);
+
+}
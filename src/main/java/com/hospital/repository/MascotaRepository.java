@@ -1,11 +1,52 @@
 package com.hospital.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.hospital.config.CacheConfig;
+import com.hospital.dto.ClasificacionMascota;
 import com.hospital.entity.Mascota;
 
 @Repository
-public interface MascotaRepository extends JpaRepository<Mascota, Long>{
+public interface MascotaRepository extends JpaRepository<Mascota, Long>, MascotaRepositoryCustom {
 
+	// Lectura a través de la caché de mascotas: solo se consulta la base de datos en un fallo. La caché
+	// guarda copias, así que la mascota devuelta se puede modificar sin afectar a otros hilos
+	@Override
+	@Cacheable(cacheNames = CacheConfig.MASCOTAS, key = "#p0", unless = "#result == null")
+	Optional<Mascota> findById(Long id);
+	
+	// Cualquier escritura de una mascota invalida su entrada en la caché, también al terminar la
+	// transacción en curso (CaffeineCachePorValor)
+	@Override
+	@CacheEvict(cacheNames = CacheConfig.MASCOTAS, key = "#p0.id", condition = "#p0.id != null")
+	<S extends Mascota> S save(S entity);
+	
+	// El código es único (idx_mascotas_codigo)
+	Optional<Mascota> findByCodigo(int codigo);
+	
+	// Los códigos de la lista que ya tiene alguna mascota, para rechazarlos en la importación
+	@Query("select m.codigo from Mascota m where m.codigo in :codigos")
+	List<Integer> findCodigosExistentes(@Param("codigos") Collection<Integer> codigos);
+	
+	// Especie y raza de las mascotas activas, para cargar BuscadorMascotasServiceImpl al arrancar: debe
+	// consumirse dentro de una transacción y cerrarse
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("select new com.hospital.dto.ClasificacionMascota(m.id, m.especie, m.raza, m.activa) from Mascota m where m.activa = true")
+	Stream<ClasificacionMascota> streamClasificacionesActivas();
+	
 }
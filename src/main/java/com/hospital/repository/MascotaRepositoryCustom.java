@@ -0,0 +1,16 @@
+package com.hospital.repository;
+
+import java.util.List;
+
+import com.hospital.dto.MascotaIngresosAbiertos;
+
+/**
+ *  Consultas de mascotas que no pueden expresarse en JPQL (ver MascotaRepositoryImpl).
+ */
+public interface MascotaRepositoryCustom {
+
+	 // Mascotas activas de un responsable, ordenadas por ID y paginadas por cursor (ID de la última
+	 // mascota devuelta), cada una con sus ingresos abiertos, en una sola consulta
+	 List<MascotaIngresosAbiertos> buscarActivasConIngresosAbiertos(String dniResponsable, Long cursor, int maximoMascotas);
+	
+}
@@ -0,0 +1,73 @@
+package com.hospital.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.MascotaIngresosAbiertos;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+
+/**
+ *  Implementación de MascotaRepositoryCustom con SQL nativo.
+ *  
+ *  La página de mascotas se limita en una subconsulta (JPQL no admite LIMIT en subconsultas) que se
+ *  resuelve con idx_mascotas_dni_responsable_activa_id (V8), y se une con sus ingresos abiertos por
+ *  idx_ingresos_mascota_estado (V2): el coste depende del tamaño de la página, no del de las tablas.
+ *  Hibernate construye las entidades de cada fila, así que los ingresos ya llevan su mascota.
+ *
+ *  La subconsulta ordena por las tres columnas del índice (equivale a ordenar por id, las otras dos
+ *  son fijas): con solo "order by id" H2 usa el índice para filtrar pero ordena todas las mascotas
+ *  del responsable antes de cortar la página, y el coste crece con las que tenga.
+ */
+public class MascotaRepositoryImpl implements MascotaRepositoryCustom {
+
+	private static final String ACTIVAS_CON_INGRESOS_ABIERTOS = "select {m.*}, {i.*} from ("
+			+ "select * from mascotas where dni_responsable = :dni and activa = true and id > :cursor "
+			+ "order by dni_responsable, activa, id limit :maximo"
+			+ ") m left join ingresos i on i.mascota_id = m.id and i.estado in (:abiertos) "
+			+ "order by m.id, i.id";
+	
+	private static final List<String> ESTADOS_ABIERTOS = Arrays.asList(Estado.ALTA.name(), Estado.HOSPITALIZACION.name());
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<MascotaIngresosAbiertos> buscarActivasConIngresosAbiertos(String dniResponsable, Long cursor, int maximoMascotas) {
+		List<Object[]> filas = entityManager.createNativeQuery(ACTIVAS_CON_INGRESOS_ABIERTOS)
+				.unwrap(NativeQuery.class)
+				.addEntity("m", Mascota.class)
+				.addEntity("i", Ingreso.class)
+				.setParameter("dni", dniResponsable)
+				.setParameter("cursor", cursor == null ? 0L : cursor)
+				.setParameter("maximo", maximoMascotas)
+				.setParameterList("abiertos", ESTADOS_ABIERTOS)
+				.getResultList();
+		
+		// Una fila por ingreso abierto, o una sola con el ingreso a null si la mascota no tiene ninguno
+		List<MascotaIngresosAbiertos> mascotas = new ArrayList<>();
+		MascotaIngresosAbiertos actual = null;
+		for (Object[] fila : filas) {
+			Mascota mascota = (Mascota) fila[0];
+			if (actual == null || !actual.getMascota().getId().equals(mascota.getId())) {
+				actual = new MascotaIngresosAbiertos(mascota, new ArrayList<>());
+				mascotas.add(actual);
+			}
+			if (fila[1] != null) {
+				actual.getIngresosAbiertos().add(IngresoResumen.de((Ingreso) fila[1]));
+			}
+		}
+		return mascotas;
+	}
+	
+}
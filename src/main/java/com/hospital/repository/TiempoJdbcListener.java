@@ -0,0 +1,45 @@
+package com.hospital.repository;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ *  Suma al ContadorSql de la petición en curso el tiempo de cada ejecución JDBC (sentencias y lotes).
+ *
+ *  Hibernate crea una instancia por sesión (hibernate.session.events.auto en application.properties),
+ *  así que el instante de inicio no se comparte entre hilos.
+ */
+public class TiempoJdbcListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long inicio;
+
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        registrar();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        registrar();
+    }
+
+    private void registrar() {
+        ContadorSql contador = ContadorSql.actual();
+        if (contador != null) {
+            contador.registrarTiempo(System.nanoTime() - inicio);
+        }
+    }
+
+}
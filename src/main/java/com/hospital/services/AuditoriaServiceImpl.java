@@ -0,0 +1,258 @@
+package com.hospital.services;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hospital.auditoria.BufferAnillo;
+import com.hospital.auditoria.LogSegmentado;
+import com.hospital.auditoria.RegistroAuditoria;
+import com.hospital.entity.Estado;
+import com.hospital.exception.IngresoNoEncontradoException;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.InstanciaRepository;
+
+/**
+ *  Auditoría de los cambios de los ingresos: quién (DNI) y cuándo dio de alta, cambió de estado o
+ *  anuló cada ingreso.
+ *
+ *  Registrar un cambio no escribe en disco: solo lo deja en un BufferAnillo. Un único hilo escritor
+ *  lo vacía por lotes en el LogSegmentado y fuerza el log a disco como mucho max-latencia-ms después
+ *  de escribir cada registro (todos los registros de ese intervalo comparten un único force). Sin
+ *  nada pendiente, el escritor duerme hasta que un productor lo despierta.
+ *
+ *  Dentro de una transacción, el cambio se registra al confirmarse. Por tanto hay una ventana de
+ *  hasta max-latencia-ms (más el tiempo en el buffer) en la que el cambio ya está confirmado en base
+ *  de datos pero su registro aún no es duradero: si el proceso cae en ese intervalo, el registro se
+ *  pierde. Quien necesite la garantía antes de responder puede llamar a esperarEscritura().
+ *
+ *  Si el buffer está lleno, quien registra (el hilo de la petición, en el afterCommit) reintenta cada
+ *  50 µs hasta que el escritor libera hueco: los cambios no se descartan nunca, a cambio de que las
+ *  peticiones se frenen al ritmo al que se escribe el log.
+ *
+ *  Para consultar el historial de un ingreso se mantiene en memoria la posición en el log de cada
+ *  uno de sus registros (se reconstruye al arrancar).
+ *
+ *  El log sobrevive a los reinicios pero la base de datos puede no hacerlo (en memoria, sus IDs vuelven
+ *  a empezar): se abre con el identificador de la base de datos (InstanciaRepository), y si el log es
+ *  de otra se aparta y se empieza uno nuevo (ver LogSegmentado).
+ */
+@Service
+public class AuditoriaServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditoriaServiceImpl.class);
+
+    private static final int TAMANO_LOTE = 1024;
+    private static final long ESPERA_REINTENTO_MS = 100;
+
+    @Value("${hospital.auditoria.directorio}")
+    private String directorio;
+
+    @Value("${hospital.auditoria.tamano-segmento}")
+    private int tamanoSegmento;
+
+    @Value("${hospital.auditoria.capacidad-buffer}")
+    private int capacidadBuffer;
+
+    @Value("${hospital.auditoria.max-latencia-ms}")
+    private long maxLatenciaMs;
+
+    @Autowired
+    private InstanciaRepository instanciaRepository;
+
+    @Autowired
+    private IngresoRepository ingresoRepository;
+
+    private BufferAnillo<RegistroAuditoria> buffer;
+    private LogSegmentado logAuditoria;
+    private final Map<Long, long[]> posicionesPorIngreso = new ConcurrentHashMap<>();
+
+    // Registros encolados y registros ya forzados a disco
+    private final AtomicLong encolados = new AtomicLong();
+    private volatile long duraderos;
+
+    private Thread escritor;
+    private volatile boolean parar;
+    // El escritor lo activa antes de dormir sin límite; los productores lo despiertan si lo ven activo
+    private volatile boolean escritorDormido;
+
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        buffer = new BufferAnillo<>(capacidadBuffer);
+        String instancia = instanciaRepository.obtenerIdentificador();
+        logAuditoria = LogSegmentado.abrir(Paths.get(directorio), tamanoSegmento, instancia,
+                (registro, posicion) -> indexar(registro.getIngresoId(), posicion));
+        escritor = new Thread(this::escribir, "auditoria-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+        log.info("Log de auditoría de la base de datos {} abierto en {} ({} ingresos con historial)", instancia, directorio,
+                posicionesPorIngreso.size());
+    }
+
+    @PreDestroy
+    public void detener() throws IOException, InterruptedException {
+        parar = true;
+        LockSupport.unpark(escritor);
+        escritor.join(TimeUnit.SECONDS.toMillis(10));
+        logAuditoria.close();
+    }
+
+
+    public void registrarAlta(Long ingresoId, String dniRegistrador) {
+        registrar(ingresoId, RegistroAuditoria.Tipo.ALTA, null, Estado.ALTA, dniRegistrador);
+    }
+
+    public void registrarCambio(Long ingresoId, Estado anterior, Estado nuevo, String dni) {
+        registrar(ingresoId, nuevo == Estado.ANULADO ? RegistroAuditoria.Tipo.ANULACION : RegistroAuditoria.Tipo.CAMBIO_ESTADO,
+                anterior, nuevo, dni);
+    }
+
+    private void registrar(Long ingresoId, RegistroAuditoria.Tipo tipo, Estado anterior, Estado nuevo, String dni) {
+        RegistroAuditoria registro = new RegistroAuditoria(0, Instant.now(), ingresoId, tipo, anterior, nuevo, dni);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    encolar(registro);
+                }
+            });
+        } else {
+            encolar(registro);
+        }
+    }
+
+    private void encolar(RegistroAuditoria registro) {
+        while (!buffer.ofrecer(registro)) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        encolados.incrementAndGet();
+        if (escritorDormido) {
+            LockSupport.unpark(escritor);
+        }
+    }
+
+    /**
+     *  Historial de un ingreso en el orden en que se registró. No incluye los cambios que aún
+     *  están en el buffer (como mucho unos milisegundos).
+     */
+    public List<RegistroAuditoria> obtenerHistorial(Long ingresoId) throws IngresoNoEncontradoException {
+        if (!ingresoRepository.existsById(ingresoId)) {
+            throw new IngresoNoEncontradoException("Ingreso no encontrado con ID : " + ingresoId);
+        }
+        long[] posiciones = posicionesPorIngreso.get(ingresoId);
+        if (posiciones == null) {
+            return Collections.emptyList();
+        }
+        List<RegistroAuditoria> historial = new ArrayList<>(posiciones.length);
+        for (long posicion : posiciones) {
+            historial.add(logAuditoria.leer(posicion));
+        }
+        return historial;
+    }
+
+    // Espera a que todo lo registrado hasta ahora esté en disco; devuelve false si vence el plazo
+    public boolean esperarEscritura(long timeoutMs) {
+        long objetivo = encolados.get();
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (duraderos < objetivo) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+
+    // Bucle del hilo escritor
+    private void escribir() {
+        List<RegistroAuditoria> lote = new ArrayList<>(TAMANO_LOTE);
+        long maxLatencia = TimeUnit.MILLISECONDS.toNanos(maxLatenciaMs);
+        long escritos = 0;
+        long primerPendiente = 0;
+
+        while (true) {
+            boolean terminar = parar;
+            if (lote.isEmpty()) {
+                buffer.drenar(lote::add, TAMANO_LOTE);
+            }
+            int enLog = 0;
+            try {
+                for (RegistroAuditoria registro : lote) {
+                    indexar(registro.getIngresoId(), logAuditoria.anadir(registro));
+                    if (escritos == duraderos) {
+                        primerPendiente = System.nanoTime();
+                    }
+                    escritos++;
+                    enLog++;
+                }
+                lote.clear();
+
+                // Un único force para todos los registros escritos durante el intervalo
+                if (escritos > duraderos && (System.nanoTime() - primerPendiente >= maxLatencia || terminar)) {
+                    logAuditoria.forzar();
+                    duraderos = escritos;
+                }
+            } catch (IOException e) {
+                // Se reintenta desde el primer registro que no ha llegado al log
+                log.error("Error escribiendo el log de auditoría, se reintentará", e);
+                lote.subList(0, enLog).clear();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ESPERA_REINTENTO_MS));
+                continue;
+            }
+
+            if (terminar && escritos == duraderos && buffer.drenar(lote::add, TAMANO_LOTE) == 0) {
+                return;
+            }
+            if (lote.isEmpty()) {
+                if (escritos > duraderos) {
+                    // Hay registros sin forzar: se espera a que venza su plazo (o a que llegue otro lote)
+                    LockSupport.parkNanos(Math.max(0, maxLatencia - (System.nanoTime() - primerPendiente)));
+                } else {
+                    dormir();
+                }
+            }
+        }
+    }
+
+    // Sin nada pendiente se duerme sin límite. El indicador se activa antes de comprobar el buffer y el
+    // productor lo lee después de ofrecer, así que si encola justo ahora o lo ve el escritor o despierta
+    // al escritor (un unpark antes del park no se pierde)
+    private void dormir() {
+        escritorDormido = true;
+        if (buffer.estaVacio() && !parar) {
+            LockSupport.park(this);
+        }
+        escritorDormido = false;
+    }
+
+    private void indexar(long ingresoId, long posicion) {
+        posicionesPorIngreso.merge(ingresoId, new long[] {posicion}, (anteriores, nueva) -> {
+            long[] posiciones = Arrays.copyOf(anteriores, anteriores.length + 1);
+            posiciones[anteriores.length] = nueva[0];
+            return posiciones;
+        });
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.hospital.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.hospital.dto.ClasificacionMascota;
+import com.hospital.dto.PaginaMascotas;
+import com.hospital.event.CambioMascotaEvento;
+import com.hospital.indice.IndiceEspecieRaza;
+import com.hospital.repository.MascotaRepository;
+
+/**
+ *  Búsqueda de mascotas activas por prefijo de especie y de raza, en memoria (IndiceEspecieRaza), sin
+ *  recorrer la tabla de mascotas.
+ *  
+ *  El índice se carga al arrancar con las mascotas activas y se actualiza con los CambioMascotaEvento
+ *  que publica MascotaServiceImpl al crear, importar o dar de baja mascotas. Los cambios que llegan
+ *  durante la carga se guardan y se aplican al terminarla (añadir o quitar una mascota dos veces no
+ *  altera el resultado). Hasta entonces no hay búsqueda.
+ */
+@Service
+public class BuscadorMascotasServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(BuscadorMascotasServiceImpl.class);
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    
+    // Ambos protegidos por el cerrojo; indice es null hasta que termina la carga
+    private IndiceEspecieRaza indice;
+    private final List<ClasificacionMascota> pendientes = new ArrayList<>();
+    
+    @Autowired
+    private MascotaRepository mascotaRepository;
+    
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargarIndice() {
+        long inicio = System.nanoTime();
+        IndiceEspecieRaza nuevo = new IndiceEspecieRaza();
+        try (Stream<ClasificacionMascota> mascotas = mascotaRepository.streamClasificacionesActivas()) {
+            mascotas.forEach(mascota -> registrar(nuevo, mascota));
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            for (ClasificacionMascota mascota : pendientes) {
+                registrar(nuevo, mascota);
+            }
+            pendientes.clear();
+            indice = nuevo;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda de mascotas cargado en {} ms: {} mascotas activas, {} combinaciones de especie y raza",
+                (System.nanoTime() - inicio) / 1_000_000, nuevo.getMascotas(), nuevo.getCombinaciones());
+    }
+    
+    // Solo se aplican los cambios confirmados; sin transacción activa (fallbackExecution) se aplican al momento
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrarCambio(CambioMascotaEvento evento) {
+        cerrojo.writeLock().lock();
+        try {
+            if (indice == null) {
+                pendientes.addAll(evento.getMascotas());
+                return;
+            }
+            for (ClasificacionMascota mascota : evento.getMascotas()) {
+                registrar(indice, mascota);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+	/**
+	 *  Búsqueda
+	 *  
+	 *  IDs de las mascotas activas cuya especie y raza empiezan por los prefijos indicados (sin
+	 *  distinguir mayúsculas ni tildes; sin prefijo no se filtra), ordenados y paginados por cursor.
+	 *  Vacío mientras se carga el índice.
+	 */
+    
+    public Optional<PaginaMascotas> buscarMascotas(String especie, String raza, Long cursor, Integer limite) {
+        int tamanoPagina = IngresoServiceImpl.normalizarLimite(limite);
+        cerrojo.readLock().lock();
+        try {
+            if (indice == null) {
+                return Optional.empty();
+            }
+            long[] ids = indice.buscar(especie, raza, cursor == null ? 0L : cursor, tamanoPagina + 1);
+            return Optional.of(PaginaMascotas.de(ids, indice.contar(especie, raza), tamanoPagina));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    private static void registrar(IndiceEspecieRaza indice, ClasificacionMascota mascota) {
+        if (mascota.getId() == null) {
+            return;
+        }
+        if (mascota.isActiva()) {
+            indice.anadir(mascota.getId(), mascota.getEspecie(), mascota.getRaza());
+        } else {
+            indice.quitar(mascota.getId(), mascota.getEspecie(), mascota.getRaza());
+        }
+    }
+    
+}
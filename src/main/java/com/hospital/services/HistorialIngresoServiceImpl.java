@@ -0,0 +1,151 @@
+package com.hospital.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+import com.hospital.entity.EventoIngreso;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.InstantaneaIngresos;
+import com.hospital.repository.EventoIngresoRepository;
+import com.hospital.repository.InstantaneaIngresosRepository;
+
+/**
+ *  Historial de los ingresos como eventos inmutables (EventoIngreso), uno por alta o cambio, con el
+ *  estado completo del ingreso tras el cambio. IngresoServiceImpl los registra en la misma transacción
+ *  que guarda el ingreso, así que la fila de ingresos es siempre la proyección del último evento.
+ *
+ *  Para consultar el estado en una fecha pasada sin recorrer todos los eventos, periódicamente se
+ *  guarda una instantánea con el estado de todos los ingresos: la nueva se construye con SQL a partir
+ *  de la anterior y de los eventos posteriores. Una consulta a fecha parte de la última instantánea
+ *  anterior a esa fecha y solo aplica los eventos que hay entre ambas.
+ *
+ *  Una instantánea no recoge el instante actual sino uno margen-instantanea-ms anterior, para que
+ *  los eventos de las transacciones que aún no han terminado queden siempre después de ella.
+ */
+@Service
+public class HistorialIngresoServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorialIngresoServiceImpl.class);
+
+    @Autowired
+    private EventoIngresoRepository eventoIngresoRepository;
+
+    @Autowired
+    private InstantaneaIngresosRepository instantaneaRepository;
+
+    @Value("${hospital.historial.margen-instantanea-ms}")
+    private long margenInstantaneaMs;
+
+    @Value("${hospital.historial.instantaneas-conservadas}")
+    private int instantaneasConservadas;
+
+
+    /**
+     *  Registra el evento del alta o del cambio de un ingreso, ya guardado, dentro de la misma transacción.
+     *  Si el cambio no ha modificado nada (la versión no ha cambiado) no hay evento que registrar.
+     */
+    public void registrar(Ingreso ingreso, Long versionAnterior, String dniAutor) {
+        // La versión nueva se asigna al volcar el cambio a la base de datos
+        eventoIngresoRepository.flush();
+        if (versionAnterior != null && versionAnterior.equals(ingreso.getVersion())) {
+            return;
+        }
+        eventoIngresoRepository.save(EventoIngreso.de(ingreso, dniAutor, Instant.now()));
+    }
+
+    // Altas en lote: los eventos se insertan en batches JDBC, igual que los ingresos
+    public void registrarAltas(List<Ingreso> ingresos) {
+        Instant instante = Instant.now();
+        List<EventoIngreso> eventos = new ArrayList<>(ingresos.size());
+        for (Ingreso ingreso : ingresos) {
+            eventos.add(EventoIngreso.de(ingreso, ingreso.getDniRegistrador(), instante));
+        }
+        eventoIngresoRepository.saveAll(eventos);
+    }
+
+    // Cambios masivos: un evento por ingreso con su estado ya actualizado, sin cargar los ingresos
+    public int registrarEstadoActual(Collection<Long> ids) {
+        return eventoIngresoRepository.registrarEstadoActual(ids, Instant.now());
+    }
+
+
+    public List<EventoIngreso> obtenerEventos(Long ingresoId) {
+        return eventoIngresoRepository.findByIngresoIdOrderByVersion(ingresoId);
+    }
+
+    /**
+     *  Ingresos que estaban en el estado indicado al terminar el día (en la zona horaria del servidor).
+     */
+    @Transactional(readOnly = true)
+    public List<IngresoResumen> obtenerIngresosEnEstado(Estado estado, LocalDate fecha) {
+        Instant finDelDia = fecha.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().minusNanos(1);
+        return obtenerIngresosEnEstado(estado, finDelDia);
+    }
+
+    @Transactional(readOnly = true)
+    public List<IngresoResumen> obtenerIngresosEnEstado(Estado estado, Instant instante) {
+        Optional<InstantaneaIngresos> instantanea = instantaneaRepository.findFirstByInstanteLessThanEqualOrderByInstanteDesc(instante);
+        Instant desde = instantanea.map(InstantaneaIngresos::getInstante).orElse(Instant.EPOCH);
+
+        List<IngresoResumen> ingresos = new ArrayList<>(eventoIngresoRepository.buscarUltimosEnEstado(estado, desde, instante));
+        if (instantanea.isPresent()) {
+            ingresos.addAll(instantaneaRepository.buscarSinCambiosEnEstado(instantanea.get().getId(), estado, desde, instante));
+        }
+        ingresos.sort(Comparator.comparing(IngresoResumen::getId));
+        return ingresos;
+    }
+
+
+    @Scheduled(fixedDelayString = "${hospital.historial.instantanea-ms}",
+            initialDelayString = "${hospital.historial.instantanea-ms}")
+    @Transactional
+    public void crearInstantaneaPeriodica() {
+        crearInstantanea(Instant.now().minusMillis(margenInstantaneaMs));
+    }
+
+    /**
+     *  Crea la instantánea del estado de los ingresos en el instante indicado y borra las más antiguas
+     *  que sobran. Si no hay eventos desde la última, no se crea (serviría la misma).
+     */
+    @Transactional
+    public Optional<InstantaneaIngresos> crearInstantanea(Instant hasta) {
+        Optional<InstantaneaIngresos> anterior = instantaneaRepository.findFirstByOrderByInstanteDesc();
+        Instant desde = anterior.map(InstantaneaIngresos::getInstante).orElse(Instant.EPOCH);
+        if (!hasta.isAfter(desde) || !eventoIngresoRepository.existsByInstanteGreaterThanAndInstanteLessThanEqual(desde, hasta)) {
+            return Optional.empty();
+        }
+
+        InstantaneaIngresos nueva = instantaneaRepository.saveAndFlush(new InstantaneaIngresos(hasta));
+        long ingresos = instantaneaRepository.copiarUltimosEventos(nueva.getId(), desde, hasta);
+        if (anterior.isPresent()) {
+            ingresos += instantaneaRepository.copiarSinCambios(nueva.getId(), anterior.get().getId(), desde, hasta);
+        }
+        nueva.setIngresos(ingresos);
+
+        List<Long> ids = instantaneaRepository.obtenerIdsDeMasRecienteAMasAntigua();
+        if (ids.size() > instantaneasConservadas) {
+            List<Long> sobrantes = ids.subList(instantaneasConservadas, ids.size());
+            instantaneaRepository.borrarEstados(sobrantes);
+            instantaneaRepository.borrarInstantaneas(sobrantes);
+        }
+        log.info("Instantánea de ingresos a {}: {} ingresos", hasta, ingresos);
+        return Optional.of(nueva);
+    }
+
+}
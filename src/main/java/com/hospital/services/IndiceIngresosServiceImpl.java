@@ -0,0 +1,147 @@
+package com.hospital.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.IngresosMascota;
+import com.hospital.entity.Estado;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.indice.IndiceIngresosMascota;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.MascotaRepository;
+
+/**
+ *  Ingresos de cada mascota y su estado actual, en memoria (IndiceIngresosMascota), para saber sin
+ *  consultar la base de datos qué ingresos tiene una mascota y si está hospitalizada.
+ *  
+ *  El índice se carga al arrancar recorriendo todos los ingresos y se actualiza con los
+ *  CambioEstadoIngresoEvento que publica IngresoServiceImpl, una vez confirmada la transacción que los
+ *  provoca. Cada cambio indica el estado nuevo del ingreso y la versión de la fila con ese estado, y el
+ *  índice descarta los que llegan después de uno más reciente del mismo ingreso: dos transacciones que
+ *  cambian el mismo ingreso pueden publicar sus eventos en cualquier orden. Por eso los cambios que
+ *  llegan durante la carga se pueden guardar y aplicar al terminarla, aunque la carga ya los haya leído. Hasta que
+ *  termina la carga las consultas se resuelven con el historial de la mascota (caché o base de datos).
+ */
+@Service
+public class IndiceIngresosServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceIngresosServiceImpl.class);
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    
+    // Ambos protegidos por el cerrojo; indice es null hasta que termina la carga
+    private IndiceIngresosMascota indice;
+    private final List<EstadoIngreso> pendientes = new ArrayList<>();
+    
+    @Autowired
+    private IngresoRepository ingresoRepository;
+    
+    @Autowired
+    private MascotaRepository mascotaRepository;
+    
+    // Con true el índice se guarda fuera del heap (ByteBuffer.allocateDirect, limitado por -XX:MaxDirectMemorySize)
+    @Value("${hospital.indice-ingresos.fuera-del-heap}")
+    private boolean fueraDelHeap;
+    
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargarIndice() {
+        long inicio = System.nanoTime();
+        IndiceIngresosMascota nuevo = new IndiceIngresosMascota(
+                (int) Math.min(Integer.MAX_VALUE, mascotaRepository.count()),
+                (int) Math.min(Integer.MAX_VALUE, ingresoRepository.count()), fueraDelHeap);
+        try (Stream<EstadoIngreso> estados = ingresoRepository.streamEstados()) {
+            estados.forEach(estado -> registrar(nuevo, estado));
+        }
+        nuevo.compactar();
+
+        cerrojo.writeLock().lock();
+        try {
+            for (EstadoIngreso estado : pendientes) {
+                registrar(nuevo, estado);
+            }
+            pendientes.clear();
+            indice = nuevo;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        log.info("Índice de ingresos por mascota cargado en {} ms: {} mascotas, {} ingresos, {} KB {}",
+                (System.nanoTime() - inicio) / 1_000_000, nuevo.getMascotas(), nuevo.getIngresos(),
+                nuevo.getBytesReservados() / 1024, fueraDelHeap ? "fuera del heap" : "en el heap");
+    }
+    
+    // Solo se aplican los cambios confirmados; sin transacción activa (fallbackExecution) se aplican al momento
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrarCambio(CambioEstadoIngresoEvento evento) {
+        if (evento.getIngresos().isEmpty()) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            if (indice == null) {
+                pendientes.addAll(evento.getIngresos());
+                return;
+            }
+            for (EstadoIngreso estado : evento.getIngresos()) {
+                registrar(indice, estado);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+	/**
+	 *  Ingresos de la mascota con {ID idMascota} y cuáles están en hospitalización. Una mascota sin
+	 *  ingresos (o que no existe) devuelve las dos listas vacías.
+	 */
+    
+    public IngresosMascota obtenerIngresosMascota(Long idMascota) {
+        cerrojo.readLock().lock();
+        try {
+            if (indice != null) {
+                return new IngresosMascota(idMascota, indice.obtenerIngresos(idMascota),
+                        indice.obtenerIngresos(idMascota, Estado.HOSPITALIZACION));
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+
+        List<IngresoResumen> historial = ingresoRepository.findResumenesByMascotaId(idMascota);
+        return new IngresosMascota(idMascota,
+                historial.stream().mapToLong(IngresoResumen::getId).toArray(),
+                historial.stream().filter(ingreso -> ingreso.getEstado() == Estado.HOSPITALIZACION)
+                        .mapToLong(IngresoResumen::getId).toArray());
+    }
+    
+    public boolean isCargado() {
+        cerrojo.readLock().lock();
+        try {
+            return indice != null;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    private static void registrar(IndiceIngresosMascota indice, EstadoIngreso estado) {
+        if (estado.getMascotaId() != null && estado.getEstado() != null) {
+            indice.registrar(estado.getMascotaId(), estado.getId(), estado.getEstado(),
+                    estado.getVersion() != null ? estado.getVersion() : 0L);
+        }
+    }
+    
+}
@@ -0,0 +1,35 @@
+package com.hospital.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.exception.MascotaNoEncontradaException;
+import com.hospital.repository.IngresoReactivoRepository;
+
+import reactor.core.publisher.Flux;
+
+/**
+ *  Versión reactiva de las lecturas de las peticiones 1 (listado de ingresos) y 2 (ingresos de una
+ *  mascota), con las mismas reglas que IngresoServiceImpl y MascotaServiceImpl. Nada se ejecuta hasta
+ *  que el controlador se suscribe al Flux.
+ */
+@Service
+public class IngresoReactivoServiceImpl {
+
+    @Autowired
+    private IngresoReactivoRepository ingresoReactivoRepository;
+
+
+    public Flux<IngresoResumen> obtenerIngresos(Long cursor, Integer limite) {
+        return ingresoReactivoRepository.findResumenesDesde(cursor == null ? 0L : cursor,
+                IngresoServiceImpl.normalizarLimite(limite));
+    }
+
+    public Flux<IngresoResumen> buscarIngresosPorMascotaId(Long idMascota) {
+        return ingresoReactivoRepository.findResumenesByMascotaId(idMascota)
+                .switchIfEmpty(Flux.error(() -> new MascotaNoEncontradaException(
+                        "No se encontraron ingresos para la mascota con ID: " + idMascota)));
+    }
+
+}
@@ -1,42 +1,132 @@
 package com.hospital.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hospital.config.MetricasConfig;
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.PaginaIngresos;
+import com.hospital.dto.ResultadoItemLote;
+import com.hospital.dto.ResultadoLote;
+import com.hospital.dto.ResultadoTransicion;
+import com.hospital.dto.SolicitudIngreso;
+import com.hospital.dto.TransicionIngresos;
 import com.hospital.entity.Estado;
 import com.hospital.entity.Ingreso;
 import com.hospital.entity.Mascota;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.exception.ConflictoConcurrenciaException;
 import com.hospital.exception.FechaFinalizacionRequeridaException;
-import com.hospital.exception.FechaFormatoInvalidoException;
 import com.hospital.exception.IngresoNoEncontradoException;
+import com.hospital.exception.LoteInvalidoException;
 import com.hospital.exception.MascotaException;
 import com.hospital.exception.RegistradorNoAutorizadoException;
 import com.hospital.repository.IngresoRepository;
 import com.hospital.repository.MascotaRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed(value = MetricasConfig.TIMER_SERVICIO, histogram = true)
 public class IngresoServiceImpl {
 	
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 500;
+    private static final int TAMANO_BLOQUE_LOTE = 500;
+    private static final int TAMANO_BLOQUE_IDS = 1000;
+    public static final int MAX_REINTENTOS = 3;
+    private static final long ESPERA_REINTENTO_MS = 5;
+	
     @Autowired
     private IngresoRepository ingresoRepository;
     
     @Autowired
     private MascotaRepository mascotaRepository;
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Los cambios en el número de ingresos por estado se notifican a OcupacionServiceImpl, y el estado
+    // nuevo de cada ingreso a MascotaServiceImpl (caché del historial) y a IndiceIngresosServiceImpl
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    // Historial de quién cambia cada ingreso (log de auditoría asíncrono)
+    @Autowired
+    private AuditoriaServiceImpl auditoriaService;
+    
+    // Cada alta o cambio queda también como evento, en la misma transacción que el ingreso
+    @Autowired
+    private HistorialIngresoServiceImpl historialService;
+    
+    // Transacción de cada intento en las operaciones con reintentos, y de cada bloque del alta en lote
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
 	/**
 	 *  Peticion 1
 	 *  
 	 *  Usando una petición HTTP GET: 
-	 *  Devolverá una lista de todos los ingresos que tiene registrados el Hospital Clínico Veterinario.
+	 *  Devolverá una página de los ingresos que tiene registrados el Hospital Clínico Veterinario,
+	 *  ordenados por ID y a partir del cursor indicado (ID del último ingreso de la página anterior).
+	 */
+	
+    public PaginaIngresos obtenerIngresos(Long cursor, Integer limite) {
+        int tamanoPagina = normalizarLimite(limite);
+        List<IngresoResumen> filas = ingresoRepository.findResumenesDesde(
+                cursor == null ? 0L : cursor, PageRequest.of(0, tamanoPagina + 1));
+        return PaginaIngresos.de(filas, tamanoPagina);
+    }
+    
+	/**
+	 *  Búsqueda
+	 *  
+	 *  Devolverá una página de los ingresos que cumplen todos los criterios informados del filtro,
+	 *  ordenados por ID y a partir del cursor indicado, igual que el listado paginado.
 	 */
 	
-    public List<Ingreso> obtenerTodosIngresos() {
-        return ingresoRepository.findAll();
+    public PaginaIngresos buscarIngresos(FiltroIngresos filtro, Long cursor, Integer limite) {
+        int tamanoPagina = normalizarLimite(limite);
+        List<IngresoResumen> filas = ingresoRepository.buscarResumenes(filtro, cursor, tamanoPagina + 1);
+        return PaginaIngresos.de(filas, tamanoPagina);
     }
     
 	/**
@@ -46,6 +136,7 @@ public class IngresoServiceImpl {
 	 *  Creará un nuevo ingreso en base de datos para la mascota indicada, con estado “ALTA”
 	 */
 	
+    @Transactional
     public Ingreso crearIngreso(Long mascotaId, LocalDate fechaAlta, String dniRegistrador) 
             throws MascotaException, RegistradorNoAutorizadoException {
         Optional<Mascota> mascotaOptional = mascotaRepository.findById(mascotaId);
@@ -63,7 +154,11 @@ public class IngresoServiceImpl {
             ingreso.setMascota(mascota); // Aquí se asigna la mascota a la entidad ingreso
             ingreso.setDniRegistrador(dniRegistrador);
 
-            return ingresoRepository.save(ingreso);
+            Ingreso guardado = ingresoRepository.save(ingreso);
+            historialService.registrar(guardado, null, dniRegistrador);
+            publicarCambio(CambioEstadoIngresoEvento.altas(1).deIngresos(Collections.singleton(estadoNuevo(guardado))));
+            auditoriaService.registrarAlta(guardado.getId(), dniRegistrador);
+            return guardado;
         } else {
             throw new MascotaException("Mascota no encontrada");
         }
@@ -76,38 +171,45 @@ public class IngresoServiceImpl {
 	 *  Usando una petición HTTP PUT + el ID de la mascota y del ingreso + JSON de datos: 
 	 *  Modificará la información de un ingreso, cambiando su estado y/o la fecha de fin de ingreso
 	 *  
+	 *  El ingreso se guarda con bloqueo optimista (@Version): si otra petición lo ha modificado entretanto,
+	 *  se vuelve a leer y se aplica de nuevo el cambio, hasta MAX_REINTENTOS veces (ver comprobarReintento).
+	 *  Cada intento guarda el ingreso y su evento en una transacción propia.
 	 */
 	
     public Ingreso actualizarIngreso(Long mascotaId, Long ingresoId, Ingreso ingresoDetalles) 
-            throws IngresoNoEncontradoException, FechaFinalizacionRequeridaException, FechaFormatoInvalidoException {
-        Optional<Ingreso> optionalIngreso = ingresoRepository.findById(ingresoId);
+            throws IngresoNoEncontradoException, FechaFinalizacionRequeridaException {
+        for (int intento = 0; ; intento++) {
+            Optional<Ingreso> optionalIngreso = ingresoRepository.findById(ingresoId);
 
-        if (!optionalIngreso.isPresent()) {
-            throw new IngresoNoEncontradoException("Ingreso no encontrado con ID : " + ingresoId);
-        }
+            if (!optionalIngreso.isPresent()) {
+                throw new IngresoNoEncontradoException("Ingreso no encontrado con ID : " + ingresoId);
+            }
 
-        Ingreso ingreso = optionalIngreso.get();
+            Ingreso ingreso = optionalIngreso.get();
 
-        // Validar que un ingreso en estado FINALIZADO tenga fecha de finalización
-        if (ingresoDetalles.getEstado() == Estado.FINALIZADO) {
-            String fechaFinalizacion = ingresoDetalles.getFechaFinalizacion();
-            if (fechaFinalizacion == null || fechaFinalizacion.trim().isEmpty()) {
-                throw new FechaFinalizacionRequeridaException("El estado FINALIZADO requiere una fecha de finalización válida.");
-            }
+            validarFechaFinalizacion(ingresoDetalles.getEstado(), ingresoDetalles.getFechaFinalizacion());
+
+            // Actualizar el ingreso con los detalles proporcionados
+            Estado estadoAnterior = ingreso.getEstado();
+            Long versionAnterior = ingreso.getVersion();
+            String dniAutor = ingresoDetalles.getDniRegistrador() != null ? ingresoDetalles.getDniRegistrador() : ingreso.getDniRegistrador();
+            ingreso.setEstado(ingresoDetalles.getEstado());
+            ingreso.setFechaFinalizacion(ingresoDetalles.getFechaFinalizacion());
 
-            // Validar que la fecha esté en el formato correcto
             try {
-                LocalDate.parse(fechaFinalizacion);
-            } catch (DateTimeParseException e) {
-                throw new FechaFormatoInvalidoException("Formato de fecha inválido. Por favor, use el formato yyyy-MM-dd.");
+                Ingreso actualizado = transactionTemplate.execute(transaccion -> {
+                    Ingreso guardado = ingresoRepository.save(ingreso);
+                    historialService.registrar(guardado, versionAnterior, dniAutor);
+                    return guardado;
+                });
+                publicarCambio(CambioEstadoIngresoEvento.cambio(estadoAnterior, actualizado.getEstado())
+                        .deIngresos(Collections.singleton(estadoNuevo(actualizado))));
+                auditoriaService.registrarCambio(ingresoId, estadoAnterior, actualizado.getEstado(), dniAutor);
+                return actualizado;
+            } catch (OptimisticLockingFailureException e) {
+                comprobarReintento(intento, ingresoId);
             }
         }
-
-        // Actualizar el ingreso con los detalles proporcionados
-        ingreso.setEstado(ingresoDetalles.getEstado());
-        ingreso.setFechaFinalizacion(ingresoDetalles.getFechaFinalizacion());
-
-        return ingresoRepository.save(ingreso);
     }
     
 	/**
@@ -119,14 +221,288 @@ public class IngresoServiceImpl {
 	 */
 	
     public void anularIngreso(Long id) throws IngresoNoEncontradoException {
-        Optional<Ingreso> ingresoOptional = ingresoRepository.findById(id);
-        if (ingresoOptional.isPresent()) {
+        for (int intento = 0; ; intento++) {
+            Optional<Ingreso> ingresoOptional = ingresoRepository.findById(id);
+            if (!ingresoOptional.isPresent()) {
+                throw new IngresoNoEncontradoException("Ingreso no encontrado con id: " + id);
+            }
+
             Ingreso ingreso = ingresoOptional.get();
+            Estado estadoAnterior = ingreso.getEstado();
+            Long versionAnterior = ingreso.getVersion();
             ingreso.setEstado(Estado.ANULADO);
-            ingresoRepository.save(ingreso);
-        } else {
-            throw new IngresoNoEncontradoException("Ingreso no encontrado con id: " + id);
+            try {
+                // El evento sale del ingreso guardado, que es el que tiene la versión nueva
+                Ingreso anulado = transactionTemplate.execute(transaccion -> {
+                    Ingreso guardado = ingresoRepository.save(ingreso);
+                    historialService.registrar(guardado, versionAnterior, ingreso.getDniRegistrador());
+                    return guardado;
+                });
+                publicarCambio(CambioEstadoIngresoEvento.cambio(estadoAnterior, Estado.ANULADO)
+                        .deIngresos(Collections.singleton(estadoNuevo(anulado))));
+                auditoriaService.registrarCambio(id, estadoAnterior, Estado.ANULADO, ingreso.getDniRegistrador());
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                comprobarReintento(intento, id);
+            }
+        }
+    }
+    
+	/**
+	 *  Cambio de estado masivo
+	 *  
+	 *  Usando una petición HTTP PATCH + un JSON con la lista de IDs y el estado destino:
+	 *  Cambia el estado de todos los ingresos indicados (por ejemplo, al cerrar una planta) con
+	 *  sentencias UPDATE sobre bloques de IDs, sin cargar los ingresos: de cada bloque solo se lee el
+	 *  estado, el registrador y la versión de cada ingreso, para la ocupación, la auditoría y el índice
+	 *  de ingresos. La lectura bloquea las filas hasta el commit, así que el estado anterior es el que
+	 *  sustituye el UPDATE y la versión nueva es la leída más uno. Pasar a FINALIZADO requiere la fecha de
+	 *  finalización, igual que en la actualización individual. Los eventos de cada bloque se insertan
+	 *  con una sola sentencia que copia el estado ya actualizado.
+	 */
+	
+    @Transactional
+    public ResultadoTransicion transicionarIngresos(TransicionIngresos transicion) 
+            throws FechaFinalizacionRequeridaException {
+        if (transicion.getIds() == null || transicion.getIds().isEmpty() || transicion.getEstado() == null) {
+            throw new LoteInvalidoException("Es necesario indicar los IDs de los ingresos y el estado destino.");
+        }
+        validarFechaFinalizacion(transicion.getEstado(), transicion.getFechaFinalizacion());
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(transicion.getIds()));
+        Map<Estado, Long> anteriores = new EnumMap<>(Estado.class);
+        List<EstadoIngreso> nuevos = new ArrayList<>();
+        int actualizados = 0;
+        for (int desde = 0; desde < ids.size(); desde += TAMANO_BLOQUE_IDS) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + TAMANO_BLOQUE_IDS, ids.size()));
+            List<EstadoIngreso> estados = ingresoRepository.obtenerEstados(bloque);
+            for (EstadoIngreso estado : estados) {
+                anteriores.merge(estado.getEstado(), 1L, Long::sum);
+                nuevos.add(new EstadoIngreso(estado.getId(), transicion.getEstado(), estado.getDniRegistrador(),
+                        estado.getMascotaId(), estado.getVersion() + 1));
+            }
+            if (transicion.getEstado() == Estado.FINALIZADO) {
+                actualizados += ingresoRepository.actualizarEstadoYFechaFinalizacion(
+                        bloque, Estado.FINALIZADO, transicion.getFechaFinalizacion());
+            } else {
+                actualizados += ingresoRepository.actualizarEstado(bloque, transicion.getEstado());
+            }
+            historialService.registrarEstadoActual(bloque);
+            for (EstadoIngreso estado : estados) {
+                auditoriaService.registrarCambio(estado.getId(), estado.getEstado(), transicion.getEstado(), estado.getDniRegistrador());
+            }
+        }
+        publicarCambio(CambioEstadoIngresoEvento.transicion(anteriores, transicion.getEstado()).deIngresos(nuevos));
+        return new ResultadoTransicion(ids.size(), actualizados);
+    }
+    
+	/**
+	 *  Alta en lote
+	 *  
+	 *  Usando una petición HTTP POST + un array JSON de {mascotaId, fechaAlta, dniRegistrador}:
+	 *  Crea un ingreso en estado “ALTA” por cada elemento válido. El array se lee en streaming y se
+	 *  procesa en bloques: las mascotas de cada bloque se consultan con una sola consulta y los
+	 *  ingresos se insertan con batching JDBC. Los elementos inválidos (mascota inexistente, registrador
+	 *  no autorizado, tipo o fecha no válidos) se rechazan sin detener el lote. Si el JSON está mal formado
+	 *  se devuelve lo procesado hasta ese punto junto con el error, ya que los bloques anteriores ya se han confirmado.
+	 */
+	
+    public ResultadoLote crearIngresosEnLote(InputStream entrada) throws IOException {
+        ResultadoLote resultado = new ResultadoLote();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(entrada)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new LoteInvalidoException("El lote debe ser un array JSON de ingresos.");
+            }
+
+            // Cada elemento se convierte por separado: un elemento inválido se rechaza (rechazos.get(i) != null)
+            // y el resto del lote sigue adelante
+            List<SolicitudIngreso> bloque = new ArrayList<>(TAMANO_BLOQUE_LOTE);
+            List<String> rechazos = new ArrayList<>(TAMANO_BLOQUE_LOTE);
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new JsonParseException(parser, "El array del lote no está cerrado.");
+                    }
+                    JsonNode elemento = parser.readValueAsTree();
+                    leerElemento(elemento, bloque, rechazos);
+                    if (bloque.size() == TAMANO_BLOQUE_LOTE) {
+                        procesarBloque(bloque, rechazos, resultado);
+                        bloque.clear();
+                        rechazos.clear();
+                    }
+                }
+            } catch (JsonParseException e) {
+                // JSON mal formado: a partir de aquí no se puede seguir leyendo. Se procesa lo ya leído y se
+                // informa de la posición, para que el cliente reenvíe solo los elementos posteriores.
+                procesarBloque(bloque, rechazos, resultado);
+                resultado.setError("JSON mal formado a partir de la posición " + resultado.getResultados().size() 
+                        + ": " + e.getOriginalMessage() + ". Los elementos posteriores no se han procesado.");
+                return resultado;
+            }
+            procesarBloque(bloque, rechazos, resultado);
+        }
+        return resultado;
+    }
+    
+    private void leerElemento(JsonNode elemento, List<SolicitudIngreso> bloque, List<String> rechazos) {
+        if (!elemento.isObject()) {
+            bloque.add(new SolicitudIngreso());
+            rechazos.add("El elemento no es un objeto JSON.");
+            return;
+        }
+        try {
+            bloque.add(objectMapper.treeToValue(elemento, SolicitudIngreso.class));
+            rechazos.add(null);
+        } catch (JsonProcessingException e) {
+            // Se conserva el mascotaId, si se puede leer, para que el cliente identifique el elemento
+            SolicitudIngreso solicitud = new SolicitudIngreso();
+            if (elemento.path("mascotaId").canConvertToLong()) {
+                solicitud.setMascotaId(elemento.get("mascotaId").asLong());
+            }
+            bloque.add(solicitud);
+            rechazos.add("Elemento no válido: " + e.getOriginalMessage());
+        }
+    }
+    
+    private void procesarBloque(List<SolicitudIngreso> bloque, List<String> rechazos, ResultadoLote resultado) {
+        if (bloque.isEmpty()) {
+            return;
+        }
+
+        // Una única consulta para todas las mascotas del bloque
+        Set<Long> idsMascota = new HashSet<>();
+        for (int i = 0; i < bloque.size(); i++) {
+            if (rechazos.get(i) == null && bloque.get(i).getMascotaId() != null) {
+                idsMascota.add(bloque.get(i).getMascotaId());
+            }
+        }
+        Map<Long, Mascota> mascotas = new HashMap<>();
+        for (Mascota mascota : mascotaRepository.findAllById(idsMascota)) {
+            mascotas.put(mascota.getId(), mascota);
+        }
+
+        int primerIndice = resultado.getResultados().size();
+        ResultadoItemLote[] resultados = new ResultadoItemLote[bloque.size()];
+        List<Ingreso> nuevos = new ArrayList<>(bloque.size());
+        List<Integer> posiciones = new ArrayList<>(bloque.size());
+
+        for (int i = 0; i < bloque.size(); i++) {
+            SolicitudIngreso solicitud = bloque.get(i);
+            Mascota mascota = mascotas.get(solicitud.getMascotaId());
+
+            if (rechazos.get(i) != null) {
+                resultados[i] = ResultadoItemLote.rechazado(primerIndice + i, solicitud.getMascotaId(), rechazos.get(i));
+            } else if (mascota == null) {
+                resultados[i] = ResultadoItemLote.rechazado(primerIndice + i, solicitud.getMascotaId(), "Mascota no encontrada");
+            } else if (mascota.getDniResponsable() == null || !mascota.getDniResponsable().equals(solicitud.getDniRegistrador())) {
+                resultados[i] = ResultadoItemLote.rechazado(primerIndice + i, solicitud.getMascotaId(),
+                        "El registrador no está autorizado para registrar esta mascota.");
+            } else {
+                Ingreso ingreso = new Ingreso();
+                ingreso.setFechaAlta(solicitud.getFechaAlta());
+                ingreso.setEstado(Estado.ALTA);
+                ingreso.setMascota(mascota);
+                ingreso.setDniRegistrador(solicitud.getDniRegistrador());
+                nuevos.add(ingreso);
+                posiciones.add(i);
+            }
+        }
+
+        // Los IDs salen de la secuencia, así que Hibernate agrupa los INSERT en batches JDBC
+        List<Ingreso> guardados = transactionTemplate.execute(transaccion -> {
+            List<Ingreso> insertados = ingresoRepository.saveAll(nuevos);
+            historialService.registrarAltas(insertados);
+            return insertados;
+        });
+        List<EstadoIngreso> altas = new ArrayList<>(guardados.size());
+        for (Ingreso guardado : guardados) {
+            altas.add(estadoNuevo(guardado));
+        }
+        publicarCambio(CambioEstadoIngresoEvento.altas(guardados.size()).deIngresos(altas));
+        for (int j = 0; j < guardados.size(); j++) {
+            auditoriaService.registrarAlta(guardados.get(j).getId(), guardados.get(j).getDniRegistrador());
+            int i = posiciones.get(j);
+            resultados[i] = ResultadoItemLote.creado(primerIndice + i, bloque.get(i).getMascotaId(), guardados.get(j).getId());
+        }
+        for (ResultadoItemLote item : resultados) {
+            resultado.agregar(item);
+        }
+
+        // Evita que el contexto de persistencia crezca con cada bloque
+        entityManager.clear();
+    }
+    
+	/**
+	 *  Exportación
+	 *  
+	 *  Escribe todos los ingresos en la salida como JSON delimitado por saltos de línea (NDJSON).
+	 *  Las filas se leen en streaming como proyecciones (sin entidades gestionadas por el contexto
+	 *  de persistencia), por lo que la memoria usada no crece con el número de ingresos.
+	 *  Devuelve el número de ingresos exportados.
+	 */
+	
+    @Transactional(readOnly = true)
+    public long exportarIngresos(OutputStream salida) throws IOException {
+        ObjectWriter escritor = objectMapper.writerFor(IngresoResumen.class);
+        long exportados = 0;
+
+        try (Stream<IngresoResumen> ingresos = ingresoRepository.streamResumenes()) {
+            Iterator<IngresoResumen> iterador = ingresos.iterator();
+            while (iterador.hasNext()) {
+                salida.write(escritor.writeValueAsBytes(iterador.next()));
+                salida.write('\n');
+                exportados++;
+            }
+        }
+        salida.flush();
+        return exportados;
+    }
+    
+    // Un ingreso en estado FINALIZADO debe tener fecha de finalización. El formato (yyyy-MM-dd)
+    // ya lo valida Jackson al deserializar el LocalDate (ver GlobalExceptionHandler)
+    private void validarFechaFinalizacion(Estado estado, LocalDate fechaFinalizacion)
+            throws FechaFinalizacionRequeridaException {
+        if (estado == Estado.FINALIZADO && fechaFinalizacion == null) {
+            throw new FechaFinalizacionRequeridaException("El estado FINALIZADO requiere una fecha de finalización válida.");
+        }
+    }
+    
+    // Antes de reintentar se espera un tiempo aleatorio y creciente, para que las peticiones en conflicto
+    // no vuelvan a coincidir. Agotados los reintentos, el conflicto se devuelve al cliente (409)
+    private void comprobarReintento(int intento, Long ingresoId) {
+        ConflictoConcurrenciaException conflicto = new ConflictoConcurrenciaException("El ingreso " + ingresoId
+                + " se está modificando desde otra petición. Por favor, inténtelo de nuevo.");
+        if (intento >= MAX_REINTENTOS) {
+            throw conflicto;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ESPERA_REINTENTO_MS << intento));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflicto;
+        }
+    }
+    
+    private static EstadoIngreso estadoNuevo(Ingreso ingreso) {
+        return new EstadoIngreso(ingreso.getId(), ingreso.getEstado(), ingreso.getDniRegistrador(),
+                ingreso.getMascota() != null ? ingreso.getMascota().getId() : null, ingreso.getVersion());
+    }
+    
+    private void publicarCambio(CambioEstadoIngresoEvento evento) {
+        if (!evento.isVacio()) {
+            eventPublisher.publishEvent(evento);
+        }
+    }
+    
+    // También lo usan IngresoReactivoServiceImpl, para que ambos listados devuelvan páginas iguales, y
+    // los listados de mascotas (BuscadorMascotasServiceImpl, MascotaServiceImpl)
+    static int normalizarLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_POR_DEFECTO;
         }
+        return Math.min(limite, LIMITE_MAXIMO);
     }
     
 }
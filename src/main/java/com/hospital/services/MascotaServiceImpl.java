@@ -1,26 +1,80 @@
 package com.hospital.services;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.hospital.entity.Ingreso;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hospital.config.CacheConfig;
+import com.hospital.config.MetricasConfig;
+import com.hospital.dto.EstadisticasCache;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.MascotaIngresosAbiertos;
+import com.hospital.dto.PaginaMascotasResponsable;
+import com.hospital.dto.ResultadoImportacion;
+import com.hospital.dto.VersionHistorial;
 import com.hospital.entity.Mascota;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.event.CambioMascotaEvento;
+import com.hospital.exception.CodigoMascotaEnUsoException;
+import com.hospital.exception.ConflictoConcurrenciaException;
 import com.hospital.exception.MascotaNoEncontradaException;
 import com.hospital.repository.IngresoRepository;
 import com.hospital.repository.MascotaRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed(value = MetricasConfig.TIMER_SERVICIO, histogram = true)
 public class MascotaServiceImpl {
 
+	private static final Logger log = LoggerFactory.getLogger(MascotaServiceImpl.class);
+	
+	public static final int TAMANO_LOTE_POR_DEFECTO = 1000;
+	private static final int TAMANO_LOTE_MAXIMO = 10000;
+	
+	// Reintentos de una baja que choca con otra escritura de la misma mascota (como en IngresoServiceImpl)
+	private static final int MAX_REINTENTOS = IngresoServiceImpl.MAX_REINTENTOS;
+	private static final long ESPERA_REINTENTO_MS = 5;
+	
 	@Autowired
 	private MascotaRepository mascotaRepository;
 	
 	@Autowired
 	private IngresoRepository ingresoRepository;
 	
+	// Transacción de cada lote de la importación
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	// Las mascotas creadas o dadas de baja se notifican a BuscadorMascotasServiceImpl
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 	/**
 	 *  Peticion 1
 	 *  
@@ -32,6 +86,30 @@ public class MascotaServiceImpl {
         return mascotaRepository.findById(idMascota);
     }
     
+	/**
+	 *  Búsqueda por código
+	 *  
+	 *  La mascota con el código (microchip) {codigo}, activa o dada de baja: el código es único.
+	 */
+	
+    public Optional<Mascota> obtenerMascotaPorCodigo(int codigo) {
+        return mascotaRepository.findByCodigo(codigo);
+    }
+    
+	/**
+	 *  Mascotas de un responsable
+	 *  
+	 *  Página de las mascotas activas del responsable con DNI {dniResponsable}, ordenadas por ID, cada
+	 *  una con sus ingresos abiertos (ALTA u HOSPITALIZACION), en una sola consulta.
+	 */
+	
+    public PaginaMascotasResponsable buscarMascotasPorResponsable(String dniResponsable, Long cursor, Integer limite) {
+        int tamanoPagina = IngresoServiceImpl.normalizarLimite(limite);
+        List<MascotaIngresosAbiertos> filas = mascotaRepository.buscarActivasConIngresosAbiertos(dniResponsable, cursor,
+                tamanoPagina + 1);
+        return PaginaMascotasResponsable.de(filas, tamanoPagina);
+    }
+    
 	/**
 	 *  Peticion 2
 	 *  
@@ -39,24 +117,65 @@ public class MascotaServiceImpl {
 	 *  Devolverá un listado con todos los ingresos que ha tenido la mascota con {ID idMascota}
 	 */
 	
-    public List<Ingreso> buscarIngresosPorMascotaId(Long idMascota) {
-        List<Ingreso> ingresos = ingresoRepository.findByMascotaId(idMascota);
+    public List<IngresoResumen> buscarIngresosPorMascotaId(Long idMascota) {
+        List<IngresoResumen> ingresos = ingresoRepository.findResumenesByMascotaId(idMascota);
         if (ingresos.isEmpty()) {
             throw new MascotaNoEncontradaException("No se encontraron ingresos para la mascota con ID: " + idMascota);
         }
         return ingresos;
     }
     
+	/**
+	 *  ETags de las peticiones 1 y 2 (ver EtagMascotaInterceptor)
+	 *  
+	 *  Se calculan a partir de las versiones, sin cargar ni serializar los datos de la respuesta:
+	 *  el de la mascota sale de su versión (leída de la caché de mascotas) y el de su historial de
+	 *  ingresos de VersionHistorial, que se resuelve con un índice. Vacíos si no hay nada que devolver.
+	 */
+	
+    public Optional<String> obtenerEtagMascota(Long idMascota) {
+        return mascotaRepository.findById(idMascota)
+                .map(mascota -> "\"mascota-" + idMascota + "-" + mascota.getVersion() + "\"");
+    }
+    
+    public Optional<String> obtenerEtagIngresos(Long idMascota) {
+        VersionHistorial version = ingresoRepository.obtenerVersionHistorial(idMascota);
+        if (version == null || version.getTotal() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of("\"ingresos-" + idMascota + "-" + version.getTotal() + "-" + version.getSumaVersiones() + "\"");
+    }
+    
 	/**
 	 *  Peticion 3
 	 *  
 	 *  Usando una petición HTTP POST + un JSON con los datos de una mascota:
 	 *  Se guardará en base de datos dicha mascota y se devolverá un JSON con toda la información guardada
 	 *  (que debe incluir el ID de esa mascota en el sistema).
+	 *  
+	 *  El código es único: si ya lo tiene otra mascota (aunque esté dada de baja) se lanza
+	 *  CodigoMascotaEnUsoException (409).
 	 */
 	
     public Mascota crearMascota(Mascota mascota) {
-        return mascotaRepository.save(mascota);
+        comprobarCodigoLibre(mascota.getCodigo());
+        Mascota guardada;
+        try {
+            guardada = mascotaRepository.save(mascota);
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición ha creado una mascota con el mismo código entre la comprobación y el INSERT
+            comprobarCodigoLibre(mascota.getCodigo());
+            throw e;
+        }
+        eventPublisher.publishEvent(CambioMascotaEvento.de(guardada));
+        return guardada;
+    }
+    
+    private void comprobarCodigoLibre(int codigo) {
+        Optional<Mascota> existente = mascotaRepository.findByCodigo(codigo);
+        if (existente.isPresent()) {
+            throw new CodigoMascotaEnUsoException(codigo, existente.get().getId());
+        }
     }
     
 	/**
@@ -67,18 +186,220 @@ public class MascotaServiceImpl {
 	 *  pero NO la borra de base de datos
 	 */
 	
+    // La mascota leída es una copia de la caché con su versión: si otra petición la ha cambiado entretanto,
+    // la baja falla por bloqueo optimista y se vuelve a leer de la base de datos. Dar de baja es idempotente,
+    // así que si ya está inactiva no hay nada que guardar
     public boolean darDeBajaMascota(Long id) {
-        
-        Mascota mascota = mascotaRepository.findById(id).orElse(null);
+        for (int intento = 0; ; intento++) {
+            Mascota mascota = mascotaRepository.findById(id).orElse(null);
+
+            if (mascota == null) {
+                return false;
+            }
+            if (!mascota.isActiva()) {
+                return true;
+            }
+
+            mascota.setActiva(false);
+            try {
+                mascotaRepository.save(mascota);
+                eventPublisher.publishEvent(CambioMascotaEvento.de(mascota));
+                return true;
+            } catch (OptimisticLockingFailureException e) {
+                // save no invalida la entrada si falla: la copia obsoleta se descarta aquí
+                cacheManager.getCache(CacheConfig.MASCOTAS).evict(id);
+                comprobarReintento(intento, id);
+            }
+        }
+    }
+    
+	/**
+	 *  Importación
+	 *  
+	 *  Carga mascotas desde un CSV con las columnas especie,raza,edad,codigo,dniResponsable[,activa]
+	 *  (la cabecera es opcional). El fichero se lee línea a línea y las mascotas válidas se insertan
+	 *  en lotes del tamaño indicado, cada uno en su transacción, por lo que la memoria no depende del
+	 *  tamaño del fichero. Las líneas inválidas se rechazan indicando su número y el motivo, también
+	 *  las de un código que ya tiene otra mascota (o una línea anterior del fichero).
+	 *
+	 *  Los campos van separados por comas y sin comillas: ningún campo de una mascota necesita comas,
+	 *  y una línea con comillas se rechaza en lugar de partirla mal (un campo entre comillas con una
+	 *  coma dentro daría columnas desplazadas).
+	 */
+	
+    public ResultadoImportacion importarMascotas(Reader entrada, Integer tamanoLote) throws IOException {
+        int tamano = tamanoLote == null || tamanoLote <= 0
+                ? TAMANO_LOTE_POR_DEFECTO : Math.min(tamanoLote, TAMANO_LOTE_MAXIMO);
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<Mascota> lote = new ArrayList<>(tamano);
+        List<Long> lineasLote = new ArrayList<>(tamano);
+
+        BufferedReader lector = entrada instanceof BufferedReader ? (BufferedReader) entrada : new BufferedReader(entrada);
+        String linea;
+        long numeroLinea = 0;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (linea.trim().isEmpty() || (numeroLinea == 1 && linea.trim().toLowerCase().startsWith("especie"))) {
+                continue;
+            }
+            resultado.sumarLeida();
+
+            if (linea.indexOf('"') >= 0) {
+                resultado.rechazar(numeroLinea, "Los campos entre comillas no están admitidos");
+                continue;
+            }
+            String[] campos = linea.split(",", -1);
+            String motivo = validarLineaCsv(campos);
+            if (motivo != null) {
+                resultado.rechazar(numeroLinea, motivo);
+                continue;
+            }
+
+            lote.add(mascotaDesdeCsv(campos));
+            lineasLote.add(numeroLinea);
+            if (lote.size() == tamano) {
+                guardarLote(lote, lineasLote, resultado);
+            }
+        }
+        guardarLote(lote, lineasLote, resultado);
+
+        log.info("Importación de mascotas finalizada: {} líneas, {} importadas, {} rechazadas",
+                resultado.getLineasLeidas(), resultado.getImportadas(), resultado.getRechazadas());
+        return resultado;
+    }
+    
+    private String validarLineaCsv(String[] campos) {
+        if (campos.length != 5 && campos.length != 6) {
+            return "Número de columnas incorrecto: se esperaban 5 o 6 y hay " + campos.length;
+        }
+        if (campos[0].trim().isEmpty() || campos[1].trim().isEmpty()) {
+            return "La especie y la raza son obligatorias";
+        }
+        if (campos[4].trim().isEmpty()) {
+            return "El DNI del responsable es obligatorio";
+        }
+        try {
+            if (Integer.parseInt(campos[2].trim()) < 0) {
+                return "La edad no puede ser negativa";
+            }
+        } catch (NumberFormatException e) {
+            return "Edad no válida: " + campos[2].trim();
+        }
+        try {
+            Integer.parseInt(campos[3].trim());
+        } catch (NumberFormatException e) {
+            return "Código no válido: " + campos[3].trim();
+        }
+        if (campos.length == 6 && !campos[5].trim().isEmpty()
+                && !"true".equalsIgnoreCase(campos[5].trim()) && !"false".equalsIgnoreCase(campos[5].trim())) {
+            return "Valor de activa no válido: " + campos[5].trim();
+        }
+        return null;
+    }
+    
+    private Mascota mascotaDesdeCsv(String[] campos) {
+        Mascota mascota = new Mascota();
+        mascota.setEspecie(campos[0].trim());
+        mascota.setRaza(campos[1].trim());
+        mascota.setEdad(Integer.parseInt(campos[2].trim()));
+        mascota.setCodigo(Integer.parseInt(campos[3].trim()));
+        mascota.setDniResponsable(campos[4].trim());
+        if (campos.length == 6 && !campos[5].trim().isEmpty()) {
+            mascota.setActiva(Boolean.parseBoolean(campos[5].trim()));
+        }
+        return mascota;
+    }
+    
+    private void guardarLote(List<Mascota> lote, List<Long> lineasLote, ResultadoImportacion resultado) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        descartarCodigosEnUso(lote, lineasLote, resultado);
+        try {
+            // Al confirmar se cierra el contexto de persistencia del lote: las entidades no se acumulan
+            List<Mascota> guardadas = transactionTemplate.execute(transaccion -> mascotaRepository.saveAll(lote));
+            resultado.sumarImportadas(lote.size());
+            eventPublisher.publishEvent(CambioMascotaEvento.de(guardadas));
+        } catch (DataAccessException | TransactionException e) {
+            // El lote se inserta en una única transacción: si falla, ninguna de sus líneas se ha guardado
+            for (Long numeroLinea : lineasLote) {
+                resultado.rechazar(numeroLinea, "Error al guardar el lote: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        log.info("Importación de mascotas: {} líneas procesadas, {} importadas, {} rechazadas",
+                resultado.getLineasLeidas(), resultado.getImportadas(), resultado.getRechazadas());
 
-        if (mascota != null) {
-            mascota.setActiva(false); 
-            mascotaRepository.save(mascota); 
-            return true;
-        } else {
-            return false; 
+        lote.clear();
+        lineasLote.clear();
+    }
+    
+    // Rechaza las líneas cuyo código ya está en la base de datos o en una línea anterior del lote: con
+    // ellas fallaría el lote entero (idx_mascotas_codigo es UNIQUE)
+    private void descartarCodigosEnUso(List<Mascota> lote, List<Long> lineasLote, ResultadoImportacion resultado) {
+        Set<Integer> codigos = new HashSet<>();
+        for (Mascota mascota : lote) {
+            codigos.add(mascota.getCodigo());
+        }
+        Set<Integer> enUso = new HashSet<>(mascotaRepository.findCodigosExistentes(codigos));
+        Set<Integer> vistos = new HashSet<>();
+        for (int i = 0; i < lote.size(); ) {
+            int codigo = lote.get(i).getCodigo();
+            if (enUso.contains(codigo) || !vistos.add(codigo)) {
+                resultado.rechazar(lineasLote.get(i), "Ya existe una mascota con el código " + codigo);
+                lote.remove(i);
+                lineasLote.remove(i);
+            } else {
+                i++;
+            }
         }
     }
     
+    private void comprobarReintento(int intento, Long idMascota) {
+        ConflictoConcurrenciaException conflicto = new ConflictoConcurrenciaException("La mascota " + idMascota
+                + " se está modificando desde otra petición. Por favor, inténtelo de nuevo.");
+        if (intento >= MAX_REINTENTOS) {
+            throw conflicto;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ESPERA_REINTENTO_MS << intento));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflicto;
+        }
+    }
+    
+	/**
+	 *  Caché del historial de ingresos (ver IngresoRepository.findResumenesByMascotaId)
+	 *  
+	 *  Al confirmarse un cambio en los ingresos se invalidan el historial y la versión de las mascotas
+	 *  afectadas; sin transacción activa (fallbackExecution) se invalidan al momento. Primero el
+	 *  historial: una petición intermedia puede llevar el historial nuevo con el ETag anterior (y se
+	 *  volverá a pedir), pero nunca el historial anterior con el ETag nuevo.
+	 */
+	
+    @TransactionalEventListener(fallbackExecution = true)
+    public void invalidarHistorial(CambioEstadoIngresoEvento evento) {
+        Cache historial = cacheManager.getCache(CacheConfig.HISTORIAL_INGRESOS);
+        Cache versiones = cacheManager.getCache(CacheConfig.VERSIONES_HISTORIAL);
+        for (Long idMascota : evento.getIdsMascota()) {
+            historial.evict(idMascota);
+            versiones.evict(idMascota);
+        }
+    }
+    
+	/**
+	 *  Estadísticas de una de las cachés (aciertos, fallos y expulsiones por tamaño o caducidad).
+	 *  Vacío si no hay ninguna caché con ese nombre.
+	 */
+	
+    public Optional<EstadisticasCache> obtenerEstadisticasCache(String nombre) {
+        if (!cacheManager.getCacheNames().contains(nombre)) {
+            return Optional.empty();
+        }
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(nombre);
+        CacheStats stats = cache.getNativeCache().stats();
+        return Optional.of(new EstadisticasCache(nombre, cache.getNativeCache().estimatedSize(),
+                stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount()));
+    }
     
 }
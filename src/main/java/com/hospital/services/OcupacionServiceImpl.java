@@ -0,0 +1,102 @@
+package com.hospital.services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.hospital.dto.RecuentoEstado;
+import com.hospital.entity.Estado;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.repository.IngresoRepository;
+
+/**
+ *  Ocupación del hospital: número de ingresos en cada estado.
+ *  
+ *  Los contadores se mantienen en memoria (un LongAdder por estado) para poder servirlos sin consultar
+ *  la base de datos. Se cargan al arrancar y se actualizan con los CambioEstadoIngresoEvento que publica
+ *  IngresoServiceImpl, una vez confirmada la transacción que los provoca. Una tarea periódica los
+ *  compara con la base de datos y corrige cualquier desviación.
+ */
+@Service
+public class OcupacionServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(OcupacionServiceImpl.class);
+
+    private final Map<Estado, LongAdder> contadores = new EnumMap<>(Estado.class);
+    
+    @Autowired
+    private IngresoRepository ingresoRepository;
+    
+    
+    public OcupacionServiceImpl() {
+        for (Estado estado : Estado.values()) {
+            contadores.put(estado, new LongAdder());
+        }
+    }
+    
+    // Solo se aplican los cambios confirmados; sin transacción activa (fallbackExecution) se aplican al momento
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrarCambio(CambioEstadoIngresoEvento evento) {
+        for (Map.Entry<Estado, Long> variacion : evento.getVariaciones().entrySet()) {
+            contadores.get(variacion.getKey()).add(variacion.getValue());
+        }
+    }
+    
+    public Map<Estado, Long> obtenerOcupacion() {
+        Map<Estado, Long> ocupacion = new EnumMap<>(Estado.class);
+        for (Map.Entry<Estado, LongAdder> contador : contadores.entrySet()) {
+            ocupacion.put(contador.getKey(), contador.getValue().sum());
+        }
+        return ocupacion;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarContadores() {
+        int cargados = ajustarContadores(false);
+        log.info("Contadores de ocupación cargados ({} estados con ingresos)", cargados);
+    }
+    
+    /**
+     *  Compara los contadores con un recuento en base de datos y corrige las diferencias.
+     *  La corrección se suma al contador (no lo sobrescribe) para no perder los cambios que se registren
+     *  mientras tanto; un cambio confirmado justo durante el recuento puede dejar una desviación
+     *  transitoria, que se corrige en la siguiente ejecución. Devuelve el número de estados corregidos.
+     */
+    @Scheduled(fixedDelayString = "${hospital.ocupacion.reconciliacion-ms}",
+            initialDelayString = "${hospital.ocupacion.reconciliacion-ms}")
+    public int reconciliar() {
+        return ajustarContadores(true);
+    }
+    
+    private int ajustarContadores(boolean avisarDesviaciones) {
+        Map<Estado, Long> reales = new EnumMap<>(Estado.class);
+        for (RecuentoEstado recuento : ingresoRepository.contarPorEstado()) {
+            if (recuento.getEstado() != null) {
+                reales.put(recuento.getEstado(), recuento.getTotal());
+            }
+        }
+
+        int corregidos = 0;
+        for (Map.Entry<Estado, LongAdder> contador : contadores.entrySet()) {
+            long desviacion = reales.getOrDefault(contador.getKey(), 0L) - contador.getValue().sum();
+            if (desviacion != 0) {
+                contador.getValue().add(desviacion);
+                corregidos++;
+                if (avisarDesviaciones) {
+                    log.warn("Ocupación {}: corregida una desviación de {} ingresos", contador.getKey(), desviacion);
+                }
+            }
+        }
+        return corregidos;
+    }
+    
+}
@@ -0,0 +1,133 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *  Convierte ingresos.fecha_finalizacion de VARCHAR (yyyy-MM-dd) a DATE.
+ *
+ *  Los valores se copian a una columna nueva en bloques de TAMANO_BLOQUE filas, recorriendo por ID
+ *  y confirmando cada bloque, para no mantener una única transacción enorme sobre toda la tabla.
+ *  Los valores que no son una fecha válida se dejan a null (y se registran en el log).
+ *  Al terminar se sustituye la columna antigua por la nueva y se indexa.
+ *
+ *  Como no se ejecuta en una transacción, si falla a medias la tabla queda a medio convertir y Flyway
+ *  la marca como fallida. Cada paso comprueba antes el estado del esquema, así que basta con
+ *  `flyway repair` (borra el registro fallido) y volver a arrancar: la migración sigue donde se quedó,
+ *  sin volver a copiar los bloques ya confirmados.
+ */
+public class V3__fecha_finalizacion_como_fecha extends BaseJavaMigration {
+
+	private static final Logger log = LoggerFactory.getLogger(V3__fecha_finalizacion_como_fecha.class);
+
+	static final int TAMANO_BLOQUE = 10000;
+
+
+	// Cada bloque se confirma por separado
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection conexion = context.getConnection();
+
+		// Mientras la columna antigua siga siendo texto, quedan filas por copiar
+		String tipo = tipoColumna(conexion, "FECHA_FINALIZACION");
+		if (tipo != null && !"DATE".equals(tipo)) {
+			ejecutar(conexion, "ALTER TABLE ingresos ADD COLUMN IF NOT EXISTS fecha_finalizacion_fecha DATE");
+			copiarFechas(conexion);
+			ejecutar(conexion, "ALTER TABLE ingresos DROP COLUMN fecha_finalizacion");
+		}
+		if (tipoColumna(conexion, "FECHA_FINALIZACION_FECHA") != null) {
+			ejecutar(conexion, "ALTER TABLE ingresos ALTER COLUMN fecha_finalizacion_fecha RENAME TO fecha_finalizacion");
+		}
+
+		// Consultas por rango de fecha de finalización
+		ejecutar(conexion, "CREATE INDEX IF NOT EXISTS idx_ingresos_fecha_finalizacion ON ingresos (fecha_finalizacion)");
+	}
+
+	// Solo las filas que aún no tienen la fecha nueva: al reanudar no se repiten los bloques confirmados
+	private void copiarFechas(Connection conexion) throws SQLException {
+		boolean autoCommit = conexion.getAutoCommit();
+		conexion.setAutoCommit(false);
+
+		try (PreparedStatement consulta = conexion.prepareStatement(
+					"SELECT id, fecha_finalizacion FROM ingresos "
+					+ "WHERE id > ? AND fecha_finalizacion IS NOT NULL AND fecha_finalizacion_fecha IS NULL "
+					+ "ORDER BY id LIMIT " + TAMANO_BLOQUE);
+			 PreparedStatement actualizacion = conexion.prepareStatement(
+					"UPDATE ingresos SET fecha_finalizacion_fecha = ? WHERE id = ?")) {
+
+			long ultimoId = Long.MIN_VALUE;
+			int leidas;
+			do {
+				leidas = 0;
+				consulta.setLong(1, ultimoId);
+				try (ResultSet filas = consulta.executeQuery()) {
+					while (filas.next()) {
+						ultimoId = filas.getLong(1);
+						leidas++;
+
+						LocalDate fecha = parsear(ultimoId, filas.getString(2));
+						if (fecha != null) {
+							actualizacion.setDate(1, Date.valueOf(fecha));
+							actualizacion.setLong(2, ultimoId);
+							actualizacion.addBatch();
+						}
+					}
+				}
+				actualizacion.executeBatch();
+				conexion.commit();
+			} while (leidas == TAMANO_BLOQUE);
+
+		} catch (SQLException e) {
+			conexion.rollback();
+			throw e;
+		} finally {
+			conexion.setAutoCommit(autoCommit);
+		}
+	}
+
+	static LocalDate parsear(long id, String valor) {
+		if (valor.trim().isEmpty()) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(valor.trim());
+		} catch (DateTimeParseException e) {
+			log.warn("Ingreso {}: fecha de finalización '{}' no válida, se deja vacía", id, valor);
+			return null;
+		}
+	}
+
+	// Tipo de la columna de ingresos (p. ej. DATE o CHARACTER VARYING), o null si no existe
+	private String tipoColumna(Connection conexion, String columna) throws SQLException {
+		try (PreparedStatement consulta = conexion.prepareStatement("SELECT data_type FROM information_schema.columns "
+					+ "WHERE table_schema = SCHEMA() AND table_name = 'INGRESOS' AND column_name = ?")) {
+			consulta.setString(1, columna);
+			try (ResultSet filas = consulta.executeQuery()) {
+				return filas.next() ? filas.getString(1) : null;
+			}
+		}
+	}
+
+	private void ejecutar(Connection conexion, String sql) throws SQLException {
+		try (Statement sentencia = conexion.createStatement()) {
+			sentencia.execute(sql);
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+-- Esquema inicial: el mismo que generaba Hibernate con ddl-auto=update
+
+CREATE SEQUENCE IF NOT EXISTS mascotas_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS ingresos_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS mascotas (
+    id BIGINT NOT NULL,
+    especie VARCHAR(255),
+    raza VARCHAR(255),
+    edad INTEGER NOT NULL,
+    codigo INTEGER NOT NULL,
+    dni_responsable VARCHAR(255),
+    activa BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS ingresos (
+    id BIGINT NOT NULL,
+    fecha_alta DATE,
+    fecha_finalizacion VARCHAR(255),
+    mascota_id BIGINT NOT NULL,
+    estado VARCHAR(255),
+    dni_registrador VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_ingresos_mascota FOREIGN KEY (mascota_id) REFERENCES mascotas (id)
+);
@@ -0,0 +1,14 @@
+-- Índices para las búsquedas habituales
+
+-- Ingresos de una mascota, ya ordenados por ID (listado por mascota)
+CREATE INDEX idx_ingresos_mascota_id ON ingresos (mascota_id, id);
+
+-- Ingresos abiertos de una mascota (ALTA / HOSPITALIZACION)
+CREATE INDEX idx_ingresos_mascota_estado ON ingresos (mascota_id, estado);
+
+-- Filtros por estado y por rango de fecha de alta
+CREATE INDEX idx_ingresos_estado_fecha_alta ON ingresos (estado, fecha_alta);
+CREATE INDEX idx_ingresos_fecha_alta ON ingresos (fecha_alta);
+
+-- Mascotas de un responsable
+CREATE INDEX idx_mascotas_dni_responsable ON mascotas (dni_responsable);
@@ -0,0 +1,12 @@
+-- Índices para la búsqueda de ingresos por criterios (GET /api/ingreso/buscar).
+-- La búsqueda se ordena por ID, así que los filtros de igualdad llevan el ID como segunda columna.
+
+-- Filtro por estado, y por estado + rango de fecha de finalización
+CREATE INDEX idx_ingresos_estado_id ON ingresos (estado, id);
+CREATE INDEX idx_ingresos_estado_fecha_finalizacion ON ingresos (estado, fecha_finalizacion);
+
+-- Filtro por veterinario que registró el ingreso
+CREATE INDEX idx_ingresos_dni_registrador_id ON ingresos (dni_registrador, id);
+
+-- Filtro por especie: mascotas de la especie y después sus ingresos por idx_ingresos_mascota_id
+CREATE INDEX idx_mascotas_especie ON mascotas (especie, id);
@@ -0,0 +1,4 @@
+-- Columna de versión para el bloqueo optimista (@Version) de ingresos y mascotas
+
+ALTER TABLE ingresos ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE mascotas ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,3 @@
+-- Versión del historial de una mascota (ETag de GET /api/mascota/{id}/ingreso):
+-- count y sum(version) se resuelven solo con el índice, sin leer la tabla
+CREATE INDEX idx_ingresos_mascota_version ON ingresos (mascota_id, version);
@@ -0,0 +1,53 @@
+-- Eventos de los ingresos: cada alta o cambio se guarda como un evento inmutable con el estado completo
+-- del ingreso tras el cambio. La clave es (ingreso, versión), la misma versión del bloqueo optimista.
+-- La fila de ingresos es la proyección del último evento.
+
+CREATE TABLE IF NOT EXISTS eventos_ingreso (
+    ingreso_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    instante TIMESTAMP NOT NULL,
+    mascota_id BIGINT NOT NULL,
+    fecha_alta DATE,
+    estado VARCHAR(255),
+    fecha_finalizacion DATE,
+    dni_registrador VARCHAR(255),
+    dni_autor VARCHAR(255),
+    PRIMARY KEY (ingreso_id, version),
+    CONSTRAINT fk_eventos_ingreso FOREIGN KEY (ingreso_id) REFERENCES ingresos (id)
+);
+
+-- Consultas a fecha: eventos posteriores a la última instantánea
+CREATE INDEX IF NOT EXISTS idx_eventos_ingreso_instante ON eventos_ingreso (instante);
+
+-- Instantáneas: el estado de todos los ingresos en un instante, para no recorrer todos los eventos
+CREATE SEQUENCE IF NOT EXISTS instantaneas_ingresos_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS instantaneas_ingresos (
+    id BIGINT NOT NULL,
+    instante TIMESTAMP NOT NULL,
+    ingresos BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_instantaneas_ingresos_instante ON instantaneas_ingresos (instante);
+
+CREATE TABLE IF NOT EXISTS estados_instantanea (
+    instantanea_id BIGINT NOT NULL,
+    ingreso_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    mascota_id BIGINT NOT NULL,
+    fecha_alta DATE,
+    estado VARCHAR(255),
+    fecha_finalizacion DATE,
+    dni_registrador VARCHAR(255),
+    PRIMARY KEY (instantanea_id, ingreso_id),
+    CONSTRAINT fk_estados_instantanea FOREIGN KEY (instantanea_id) REFERENCES instantaneas_ingresos (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_estados_instantanea_estado ON estados_instantanea (instantanea_id, estado);
+
+-- De los ingresos existentes solo se conoce su estado actual: queda como su primer evento
+INSERT INTO eventos_ingreso (ingreso_id, version, instante, mascota_id, fecha_alta, estado, fecha_finalizacion,
+        dni_registrador, dni_autor)
+SELECT id, version, CURRENT_TIMESTAMP, mascota_id, fecha_alta, estado, fecha_finalizacion, dni_registrador, dni_registrador
+FROM ingresos;
@@ -0,0 +1,9 @@
+-- Búsquedas de mascotas por clave secundaria (GET /api/mascota/codigo/{codigo} y
+-- GET /api/responsable/{dni}/mascota)
+
+-- Mascota por su código (microchip): identifica a la mascota, también después de darla de baja
+CREATE UNIQUE INDEX idx_mascotas_codigo ON mascotas (codigo);
+
+-- Mascotas activas de un responsable, paginadas por ID. Sustituye a idx_mascotas_dni_responsable (V2)
+CREATE INDEX idx_mascotas_dni_responsable_activa_id ON mascotas (dni_responsable, activa, id);
+DROP INDEX IF EXISTS idx_mascotas_dni_responsable;
@@ -0,0 +1,11 @@
+-- Identificador de esta base de datos, generado al crearla. El log de auditoría lo guarda en cada
+-- segmento: si al arrancar no coincide (p. ej. la base de datos en memoria se ha vuelto a crear y sus
+-- secuencias empiezan de nuevo), el log es de otra base de datos y no se mezcla con esta
+
+CREATE TABLE IF NOT EXISTS instancia (
+    id VARCHAR(36) NOT NULL,
+    creada TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO instancia (id, creada) VALUES (CAST(RANDOM_UUID() AS VARCHAR(36)), CURRENT_TIMESTAMP);
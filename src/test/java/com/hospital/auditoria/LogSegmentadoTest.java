@@ -0,0 +1,169 @@
+package com.hospital.auditoria;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.entity.Estado;
+
+public class LogSegmentadoTest {
+
+    private static final int TAMANO_SEGMENTO = 4096;
+    private static final int CABECERA_SEGMENTO = 64;
+    private static final String INSTANCIA = "1b4e28ba-2fa1-11d2-883f-0016d3cca427";
+
+    @TempDir
+    Path directorio;
+
+
+    private static RegistroAuditoria registro(long ingresoId, Estado anterior, Estado nuevo) {
+        return new RegistroAuditoria(0, Instant.ofEpochMilli(1720000000000L + ingresoId), ingresoId,
+                RegistroAuditoria.Tipo.CAMBIO_ESTADO, anterior, nuevo, "12345678A");
+    }
+
+    private List<RegistroAuditoria> recuperados() throws IOException {
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, posicion) -> registros.add(registro)).close();
+        return registros;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            return ficheros.filter(f -> f.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+
+	// Test 1. Los registros se leen igual que se escribieron, también tras reabrir el log
+
+    @Test
+    public void testAnadirYLeer_TrasReabrir() throws IOException {
+        long posicion;
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            log.anadir(registro(1L, null, Estado.ALTA));
+            posicion = log.anadir(registro(2L, Estado.ALTA, Estado.HOSPITALIZACION));
+
+            RegistroAuditoria leido = log.leer(posicion);
+            assertEquals(2L, leido.getSecuencia());
+            assertEquals(2L, leido.getIngresoId());
+            assertEquals(Estado.ALTA, leido.getEstadoAnterior());
+            assertEquals(Estado.HOSPITALIZACION, leido.getEstadoNuevo());
+            assertEquals("12345678A", leido.getDni());
+            assertEquals(Instant.ofEpochMilli(1720000000002L), leido.getInstante());
+        }
+
+        List<RegistroAuditoria> registros = recuperados();
+        assertEquals(2, registros.size());
+        assertNull(registros.get(0).getEstadoAnterior());
+
+        // Al reabrir, la secuencia continúa
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            assertEquals(3L, log.leer(log.anadir(registro(3L, null, Estado.ALTA))).getSecuencia());
+        }
+    }
+
+    @Test
+    public void testAnadirYLeer_DniNuloYVacio() throws IOException {
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            long nulo = log.anadir(new RegistroAuditoria(0, Instant.now(), 1L, RegistroAuditoria.Tipo.ALTA, null, Estado.ALTA, null));
+            long vacio = log.anadir(new RegistroAuditoria(0, Instant.now(), 2L, RegistroAuditoria.Tipo.ALTA, null, Estado.ALTA, ""));
+
+            assertNull(log.leer(nulo).getDni());
+            assertEquals("", log.leer(vacio).getDni());
+        }
+        assertNull(recuperados().get(0).getDni());
+    }
+
+	// Test 2. Un registro cortado por una caída se descarta al abrir y se sigue escribiendo detrás del último válido
+
+    @Test
+    public void testRecuperacion_DescartaRegistroIncompleto() throws IOException {
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            log.anadir(registro(1L, null, Estado.ALTA));
+            log.anadir(registro(2L, null, Estado.ALTA));
+        }
+
+        // Se corrompe un byte de los datos del segundo registro (el CRC deja de coincidir)
+        Path segmento = segmentos().get(0);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer longitud = ByteBuffer.allocate(4);
+            canal.read(longitud, CABECERA_SEGMENTO);
+            int segundo = CABECERA_SEGMENTO + 8 + longitud.getInt(0);
+            canal.write(ByteBuffer.wrap(new byte[] {(byte) 0x7f}), segundo + 8 + 20);
+        }
+
+        assertEquals(1, recuperados().size());
+
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            RegistroAuditoria nuevo = log.leer(log.anadir(registro(3L, null, Estado.ALTA)));
+            assertEquals(2L, nuevo.getSecuencia());
+        }
+        List<RegistroAuditoria> registros = recuperados();
+        assertEquals(2, registros.size());
+        assertEquals(3L, registros.get(1).getIngresoId());
+    }
+
+	// Test 3. Cuando un segmento se llena se crea otro, nombrado por su primera secuencia
+
+    @Test
+    public void testSegmentos_SeCreaOtroAlLlenarse() throws IOException {
+        List<Long> posiciones = new ArrayList<>();
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            for (long i = 1; i <= 300; i++) {
+                posiciones.add(log.anadir(registro(i, null, Estado.ALTA)));
+            }
+            assertEquals(300L, log.leer(posiciones.get(299)).getIngresoId());
+            assertEquals(1L, log.leer(posiciones.get(0)).getIngresoId());
+        }
+
+        List<Path> segmentos = segmentos();
+        assertEquals(4, segmentos.size());
+        assertEquals("auditoria-00000000000000000001.log", segmentos.get(0).getFileName().toString());
+
+        List<RegistroAuditoria> registros = recuperados();
+        assertEquals(300, registros.size());
+        for (int i = 0; i < registros.size(); i++) {
+            assertEquals(i + 1, registros.get(i).getSecuencia());
+        }
+    }
+
+	// Test 4. Los segmentos de otra base de datos se apartan sin leerlos y el log empieza de nuevo
+
+    @Test
+    public void testAbrir_ConOtraInstanciaApartaElLog() throws IOException {
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, INSTANCIA, (registro, p) -> { })) {
+            log.anadir(registro(1L, null, Estado.ALTA));
+        }
+
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        try (LogSegmentado log = LogSegmentado.abrir(directorio, TAMANO_SEGMENTO, "6fa459ea-ee8a-3ca4-894e-db77e160355e",
+                (registro, p) -> registros.add(registro))) {
+            assertEquals(1L, log.leer(log.anadir(registro(2L, null, Estado.ALTA))).getSecuencia());
+        }
+        assertEquals(0, registros.size());
+        assertEquals(1, segmentos().size());
+
+        // Y el log anterior queda en un subdirectorio con su segmento
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            Path apartado = ficheros.filter(Files::isDirectory).findFirst().get();
+            try (Stream<Path> apartados = Files.list(apartado)) {
+                assertEquals(1, apartados.count());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.hospital.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache.ValueRetrievalException;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public class CaffeineCacheCargaCompartidaTest {
+
+    private static final int HILOS = 20;
+
+    private final CaffeineCacheCargaCompartida cache =
+            new CaffeineCacheCargaCompartida("prueba", Caffeine.newBuilder().build(), false);
+
+
+    // Test 1. Las lecturas simultáneas de una clave esperan a una sola carga
+
+    @Test
+    public void testGet_UnaCargaPorClave() throws Exception {
+
+        AtomicInteger cargas = new AtomicInteger();
+        CountDownLatch empezada = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+
+        List<Future<String>> lecturas = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < HILOS; i++) {
+                lecturas.add(hilos.submit(() -> cache.get(1L, () -> {
+                    cargas.incrementAndGet();
+                    empezada.countDown();
+                    terminar.await();
+                    return "valor";
+                })));
+            }
+            empezada.await(5, TimeUnit.SECONDS);
+            terminar.countDown();
+            for (Future<String> lectura : lecturas) {
+                assertEquals("valor", lectura.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, cargas.get());
+        assertEquals("valor", cache.get(1L, String.class));
+    }
+
+
+    // Test 2. Una invalidación durante la carga impide guardar el valor leído antes
+
+    @Test
+    public void testGet_InvalidacionDuranteLaCarga() throws Exception {
+
+        String valor = cache.get(1L, () -> {
+            cache.evict(1L);
+            return "antiguo";
+        });
+
+        assertEquals("antiguo", valor);
+        assertNull(cache.get(1L));
+        assertEquals("nuevo", cache.get(1L, () -> "nuevo"));
+        assertEquals("nuevo", cache.get(1L, String.class));
+    }
+
+
+    // Test 3. Un error de la carga llega a todos los que la esperan y no se guarda nada
+
+    @Test
+    public void testGet_ErrorDeLaCarga() throws Exception {
+
+        assertThrows(ValueRetrievalException.class, () -> cache.get(1L, () -> {
+            throw new IllegalStateException("sin conexión");
+        }));
+
+        assertNull(cache.get(1L));
+        assertEquals("valor", cache.get(1L, () -> "valor"));
+    }
+
+}
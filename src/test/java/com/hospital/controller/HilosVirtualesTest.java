@@ -0,0 +1,54 @@
+package com.hospital.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ *  Con hospital.hilos-virtuales=true Tomcat atiende las peticiones en hilos virtuales, y el resto de
+ *  la aplicación sigue usando el applicationTaskExecutor de Spring Boot.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "hospital.hilos-virtuales=true")
+public class HilosVirtualesTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext contexto;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+
+    // Test 1. El conector de Tomcat ejecuta en hilos virtuales y no se publica ningún Executor nuevo
+
+    @Test
+    public void testTomcat_AtiendeEnHilosVirtuales() throws Exception {
+        Executor ejecutorTomcat = ((TomcatWebServer) contexto.getWebServer()).getTomcat().getConnector()
+                .getProtocolHandler().getExecutor();
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        ejecutorTomcat.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+
+        // @Async y las respuestas asíncronas siguen en el pool de Spring Boot
+        assertFalse(contexto.getBeansOfType(Executor.class).containsValue(ejecutorTomcat));
+        assertTrue(contexto.getBeansOfType(ExecutorService.class).isEmpty());
+        assertTrue(contexto.getBean("applicationTaskExecutor") instanceof ThreadPoolTaskExecutor);
+
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/api/ingreso/ocupacion", String.class).getStatusCode());
+    }
+
+}
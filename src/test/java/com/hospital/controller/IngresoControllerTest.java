@@ -1,6 +1,8 @@
 package com.hospital.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
@@ -9,32 +11,62 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
-
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.hospital.auditoria.RegistroAuditoria;
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.PaginaIngresos;
+import com.hospital.dto.ResultadoItemLote;
+import com.hospital.dto.ResultadoLote;
+import com.hospital.dto.ResultadoTransicion;
+import com.hospital.dto.TransicionIngresos;
+import com.hospital.entity.Estado;
 import com.hospital.entity.Ingreso;
+import com.hospital.exception.ConflictoConcurrenciaException;
 import com.hospital.exception.FechaFinalizacionRequeridaException;
 import com.hospital.exception.FechaFormatoInvalidoException;
 import com.hospital.exception.IngresoNoEncontradoException;
 import com.hospital.exception.MascotaException;
 import com.hospital.exception.RegistradorNoAutorizadoException;
+import com.hospital.services.AuditoriaServiceImpl;
+import com.hospital.services.HistorialIngresoServiceImpl;
 import com.hospital.services.IngresoServiceImpl;
+import com.hospital.services.MascotaServiceImpl;
+import com.hospital.services.OcupacionServiceImpl;
 
 @WebMvcTest(controllers = IngresoController.class)
 @ExtendWith(MockitoExtension.class)
@@ -46,18 +78,47 @@ public class IngresoControllerTest {
     @MockBean
     private IngresoServiceImpl ingresoService;
     
+    @MockBean
+    private OcupacionServiceImpl ocupacionService;
+    
+    @MockBean
+    private AuditoriaServiceImpl auditoriaService;
+    
+    @MockBean
+    private HistorialIngresoServiceImpl historialService;
+    
+    // Lo necesita EtagMascotaInterceptor, que @WebMvcTest también registra
+    @MockBean
+    private MascotaServiceImpl mascotaService;
+    
 	// Test 1. Listado todos los ingresos de una mascota
     
     @Test
-    public void obtenerTodosIngresos_DeberiaRetornarListaDeIngresos() throws Exception {
+    public void obtenerIngresos_DeberiaRetornarPaginaDeIngresos() throws Exception {
 
-        List<Ingreso> listaIngresos = new ArrayList<>();
+        List<IngresoResumen> listaIngresos = new ArrayList<>();
 
-        given(ingresoService.obtenerTodosIngresos()).willReturn(listaIngresos);
+        given(ingresoService.obtenerIngresos(null, null)).willReturn(new PaginaIngresos(listaIngresos, null));
 
         mockMvc.perform(get("/api/ingreso"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray());
+                .andExpect(jsonPath("$.ingresos").isArray());
+    }
+    
+    @Test
+    public void obtenerIngresos_ConCursor_DeberiaDevolverSiguienteCursor() throws Exception {
+
+        IngresoResumen ingreso = new IngresoResumen();
+        ingreso.setId(20L);
+        ingreso.setMascotaId(3L);
+
+        given(ingresoService.obtenerIngresos(10L, 1)).willReturn(new PaginaIngresos(List.of(ingreso), 20L));
+
+        mockMvc.perform(get("/api/ingreso").param("cursor", "10").param("limite", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingresos[0].id").value(20))
+                .andExpect(jsonPath("$.ingresos[0].mascotaId").value(3))
+                .andExpect(jsonPath("$.siguienteCursor").value(20));
     }
     
     
@@ -256,6 +317,18 @@ public class IngresoControllerTest {
         verify(ingresoService, times(1)).actualizarIngreso(eq(mascotaId), eq(ingresoId), eq(ingresoDetalles));
     }
     
+    @Test
+    public void actualizarIngreso_ConflictoDeConcurrenciaDeberiaDevolverConflict() throws Exception {
+
+        given(ingresoService.actualizarIngreso(eq(1L), eq(1L), any(Ingreso.class)))
+            .willThrow(new ConflictoConcurrenciaException("El ingreso 1 se está modificando desde otra petición."));
+
+        mockMvc.perform(put("/api/ingreso/1/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"estado\":\"HOSPITALIZACION\"}"))
+                .andExpect(status().isConflict());
+    }
+    
     
     // Test 4. Anular ingreso
     
@@ -304,8 +377,182 @@ public class IngresoControllerTest {
     }
     
     
+    // Test 5. Exportación NDJSON
+    
+    @Test
+    public void exportarIngresos_DeberiaEscribirNdjson() throws Exception {
+
+        given(ingresoService.exportarIngresos(any(OutputStream.class))).willAnswer(invocation -> {
+            OutputStream salida = invocation.getArgument(0);
+            salida.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        MvcResult resultado = mockMvc.perform(get("/api/ingreso/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+    
+    
+    // Test 6. Alta de ingresos en lote
+    
+    @Test
+    public void crearIngresosEnLote_DeberiaDevolverResultadoPorElemento() throws Exception {
+
+        ResultadoLote resultado = new ResultadoLote();
+        resultado.agregar(ResultadoItemLote.creado(0, 1L, 100L));
+        resultado.agregar(ResultadoItemLote.rechazado(1, 2L, "Mascota no encontrada"));
+
+        given(ingresoService.crearIngresosEnLote(any(InputStream.class))).willReturn(resultado);
+
+        mockMvc.perform(post("/api/ingreso/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"mascotaId\":1},{\"mascotaId\":2}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creados").value(1))
+                .andExpect(jsonPath("$.rechazados").value(1))
+                .andExpect(jsonPath("$.resultados[0].ingresoId").value(100))
+                .andExpect(jsonPath("$.resultados[1].error").value("Mascota no encontrada"));
+    }
     
     
+    // Test 7. Cambio de estado masivo
     
+    @Test
+    public void transicionarIngresos_DeberiaDevolverActualizados() throws Exception {
+
+        given(ingresoService.transicionarIngresos(any(TransicionIngresos.class))).willReturn(new ResultadoTransicion(3, 3));
+
+        mockMvc.perform(patch("/api/ingreso/estado")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2,3],\"estado\":\"ANULADO\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.solicitados").value(3))
+                .andExpect(jsonPath("$.actualizados").value(3));
+    }
+    
+    @Test
+    public void transicionarIngresos_SinFechaDeberiaDevolverBadRequest() throws Exception {
+
+        given(ingresoService.transicionarIngresos(any(TransicionIngresos.class)))
+            .willThrow(new FechaFinalizacionRequeridaException("El estado FINALIZADO requiere una fecha de finalización válida."));
+
+        mockMvc.perform(patch("/api/ingreso/estado")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2,3],\"estado\":\"FINALIZADO\"}"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    public void transicionarIngresos_FechaConFormatoInvalidoDeberiaDevolverBadRequest() throws Exception {
+
+        // La fecha se valida al deserializar: el servicio ni siquiera llega a invocarse
+        mockMvc.perform(patch("/api/ingreso/estado")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1],\"estado\":\"FINALIZADO\",\"fechaFinalizacion\":\"14/07/2024\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Formato de fecha inválido. Por favor, use el formato yyyy-MM-dd."));
+
+        verify(ingresoService, times(0)).transicionarIngresos(any(TransicionIngresos.class));
+    }
+    
+    
+    // Test 8. Búsqueda por criterios
+    
+    @Test
+    public void buscarIngresos_DeberiaEnlazarLosCriterios() throws Exception {
+
+        given(ingresoService.buscarIngresos(any(FiltroIngresos.class), eq(10L), eq(20)))
+            .willReturn(new PaginaIngresos(new ArrayList<>(), null));
+
+        mockMvc.perform(get("/api/ingreso/buscar")
+                .param("estado", "FINALIZADO")
+                .param("fechaFinalizacionDesde", "2024-07-01")
+                .param("especie", "Gato")
+                .param("cursor", "10")
+                .param("limite", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingresos").isEmpty());
+
+        ArgumentCaptor<FiltroIngresos> filtro = ArgumentCaptor.forClass(FiltroIngresos.class);
+        verify(ingresoService).buscarIngresos(filtro.capture(), eq(10L), eq(20));
+        assertEquals(Estado.FINALIZADO, filtro.getValue().getEstado());
+        assertEquals(LocalDate.of(2024, 7, 1), filtro.getValue().getFechaFinalizacionDesde());
+        assertEquals("Gato", filtro.getValue().getEspecie());
+        assertNull(filtro.getValue().getDniRegistrador());
+    }
+    
+    
+    // Test 9. Ocupación
+    
+    @Test
+    public void obtenerOcupacion_DeberiaDevolverLosContadores() throws Exception {
+
+        Map<Estado, Long> ocupacion = new EnumMap<>(Estado.class);
+        ocupacion.put(Estado.ALTA, 12L);
+        ocupacion.put(Estado.HOSPITALIZACION, 3L);
+        given(ocupacionService.obtenerOcupacion()).willReturn(ocupacion);
+
+        mockMvc.perform(get("/api/ingreso/ocupacion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALTA").value(12))
+                .andExpect(jsonPath("$.HOSPITALIZACION").value(3));
+    }
+    
+    
+    // Test 10. Auditoría de un ingreso
+    
+    @Test
+    public void obtenerAuditoria_DeberiaDevolverElHistorial() throws Exception {
+
+        given(auditoriaService.obtenerHistorial(7L)).willReturn(Arrays.asList(
+                new RegistroAuditoria(1L, Instant.parse("2024-07-14T10:00:00Z"), 7L, RegistroAuditoria.Tipo.ALTA, null, Estado.ALTA, "12345678A"),
+                new RegistroAuditoria(5L, Instant.parse("2024-07-15T09:30:00Z"), 7L, RegistroAuditoria.Tipo.ANULACION,
+                        Estado.ALTA, Estado.ANULADO, "12345678A")));
+
+        mockMvc.perform(get("/api/ingreso/7/auditoria"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].tipo").value("ALTA"))
+                .andExpect(jsonPath("$[1].estadoAnterior").value("ALTA"))
+                .andExpect(jsonPath("$[1].estadoNuevo").value("ANULADO"))
+                .andExpect(jsonPath("$[1].dni").value("12345678A"))
+                .andExpect(jsonPath("$[1].instante").value("2024-07-15T09:30:00Z"));
+    }
+    
+    @Test
+    public void obtenerAuditoria_IngresoInexistente_DeberiaDevolver404() throws Exception {
+
+        given(auditoriaService.obtenerHistorial(99L)).willThrow(new IngresoNoEncontradoException("Ingreso no encontrado con ID : 99"));
+
+        mockMvc.perform(get("/api/ingreso/99/auditoria"))
+                .andExpect(status().isNotFound());
+    }
+    
+    
+    // Test 11. Ingresos en un estado en una fecha
+    
+    @Test
+    public void obtenerIngresosEnFecha_DeberiaConsultarElHistorial() throws Exception {
+
+        IngresoResumen hospitalizado = new IngresoResumen();
+        hospitalizado.setId(7L);
+        hospitalizado.setEstado(Estado.HOSPITALIZACION);
+        given(historialService.obtenerIngresosEnEstado(Estado.HOSPITALIZACION, LocalDate.of(2024, 7, 14)))
+            .willReturn(Arrays.asList(hospitalizado));
+
+        mockMvc.perform(get("/api/ingreso/historico")
+                .param("estado", "HOSPITALIZACION")
+                .param("fecha", "2024-07-14"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].estado").value("HOSPITALIZACION"));
+    }
     
 }
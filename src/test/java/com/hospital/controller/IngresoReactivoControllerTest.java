@@ -0,0 +1,125 @@
+package com.hospital.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *  Lecturas reactivas (R2DBC) contra la misma base de datos en la que escribe JPA: deben devolver lo
+ *  mismo que las peticiones 1 y 2, un ingreso por línea.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IngresoReactivoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    private long crearMascota(int codigo) throws Exception {
+        String mascota = "{\"especie\":\"Perro\",\"raza\":\"Labrador\",\"edad\":3,\"codigo\":" + codigo + ","
+                + "\"dniResponsable\":\"12345678A\",\"activa\":true}";
+        String respuesta = mockMvc.perform(post("/api/mascota").contentType(MediaType.APPLICATION_JSON).content(mascota))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(respuesta).get("id").asLong();
+    }
+
+    private void crearIngreso(long idMascota, String fechaAlta) throws Exception {
+        mockMvc.perform(post("/api/ingreso/" + idMascota).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fechaAlta\":\"" + fechaAlta + "\",\"dniRegistrador\":\"12345678A\"}"))
+                .andExpect(status().is2xxSuccessful());
+    }
+
+    // Las líneas NDJSON de la respuesta, una vez terminado el Flux
+    private List<JsonNode> leerLineas(String url) throws Exception {
+        MvcResult resultado = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> lineas = new ArrayList<>();
+        for (String linea : cuerpo.split("\n")) {
+            if (!linea.isBlank()) {
+                lineas.add(objectMapper.readTree(linea));
+            }
+        }
+        return lineas;
+    }
+
+    private JsonNode leerJson(String url) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+
+    // Test 1. Ingresos de una mascota: los mismos que la petición 2
+    @Test
+    public void testIngresosPorMascota_IgualQueLaPeticionBloqueante() throws Exception {
+        long idMascota = crearMascota(4101);
+        crearIngreso(idMascota, "2024-05-01");
+        crearIngreso(idMascota, "2024-05-02");
+
+        List<JsonNode> reactivos = leerLineas("/api/reactivo/mascota/" + idMascota + "/ingreso");
+        JsonNode bloqueantes = leerJson("/api/mascota/" + idMascota + "/ingreso");
+
+        assertEquals(2, reactivos.size());
+        for (int i = 0; i < reactivos.size(); i++) {
+            assertEquals(bloqueantes.get(i), reactivos.get(i));
+        }
+    }
+
+    // Test 2. Listado por cursor: la misma página que la petición 1
+    @Test
+    public void testListadoConCursor_MismaPaginaQueLaPeticionBloqueante() throws Exception {
+        long idMascota = crearMascota(4102);
+        for (int dia = 1; dia <= 4; dia++) {
+            crearIngreso(idMascota, "2024-06-0" + dia);
+        }
+        JsonNode pagina = leerJson("/api/ingreso?limite=3");
+        long cursor = pagina.get("siguienteCursor").asLong();
+
+        List<JsonNode> primera = leerLineas("/api/reactivo/ingreso?limite=3");
+        List<JsonNode> siguiente = leerLineas("/api/reactivo/ingreso?limite=3&cursor=" + cursor);
+
+        assertEquals(3, primera.size());
+        for (int i = 0; i < primera.size(); i++) {
+            assertEquals(pagina.get("ingresos").get(i), primera.get(i));
+        }
+        assertEquals(cursor, primera.get(2).get("id").asLong());
+        assertEquals(leerJson("/api/ingreso?limite=3&cursor=" + cursor).get("ingresos").get(0), siguiente.get(0));
+    }
+
+    // Test 3. Mascota sin ingresos
+    @Test
+    public void testIngresosPorMascota_SinIngresos() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/reactivo/mascota/987654/ingreso"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("No se encontraron ingresos para la mascota con ID: 987654"));
+    }
+
+}
@@ -3,12 +3,14 @@ package com.hospital.controller;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.Reader;
 import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.List;
@@ -27,8 +29,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
-import com.hospital.entity.Ingreso;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.ResultadoImportacion;
 import com.hospital.entity.Mascota;
+import com.hospital.exception.CodigoMascotaEnUsoException;
 import com.hospital.exception.MascotaNoEncontradaException;
 import com.hospital.services.MascotaServiceImpl;
 
@@ -95,7 +99,7 @@ public class MascotaControllerTest {
     public void testObtenerIngresosPorMascotaId_Success() throws NoSuchFieldException, IllegalAccessException, MascotaNoEncontradaException {
 
         Long idMascota = 1L;
-        List<Ingreso> ingresos = Collections.singletonList(new Ingreso());
+        List<IngresoResumen> ingresos = Collections.singletonList(new IngresoResumen());
 
         MascotaServiceImpl mascotaService = mock(MascotaServiceImpl.class);
         when(mascotaService.buscarIngresosPorMascotaId(eq(idMascota))).thenReturn(ingresos);
@@ -178,6 +182,20 @@ public class MascotaControllerTest {
                 .andExpect(MockMvcResultMatchers.content().string("Error al crear la mascota: Error al crear la mascota"));
     }
     
+    @Test
+    public void testCrearMascota_CodigoEnUso() throws Exception {
+
+        when(mascotaService.crearMascota(ArgumentMatchers.any(Mascota.class))).thenThrow(new CodigoMascotaEnUsoException(123456, 8L));
+
+        String mascotaJson = "{\"especie\": \"Perro\", \"raza\": \"Labrador\", \"edad\": 3, \"codigo\": 123456, \"dniResponsable\": \"12345678A\", \"activa\": true}";
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/mascota")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mascotaJson))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.content().string("Ya existe una mascota con el código 123456 (ID 8)"));
+    }
+    
     
     
     // Test 4. Dar de baja a una mascota del sistema
@@ -205,4 +223,58 @@ public class MascotaControllerTest {
     }
     
     
+    // Test 5. Importar mascotas desde CSV
+    
+    @Test
+    public void testImportarMascotas_Success() throws Exception {
+
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        resultado.sumarLeida();
+        resultado.sumarLeida();
+        resultado.sumarImportadas(1);
+        resultado.rechazar(3, "Edad no válida: dos");
+
+        when(mascotaService.importarMascotas(ArgumentMatchers.any(Reader.class), eq(500))).thenReturn(resultado);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/mascota/importar")
+                .param("tamanoLote", "500")
+                .contentType("text/csv")
+                .content("especie,raza,edad,codigo,dniResponsable\nPerro,Labrador,3,1,12345678A\nGato,Siames,dos,2,12345678A\n"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.importadas").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rechazadas").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.detalleRechazadas[0].numeroLinea").value(3));
+    }
+    
+    
+    // Test 6. GET condicional (ETag)
+    
+    @Test
+    public void testObtenerMascota_SinCambiosDevuelve304SinCargarla() throws Exception {
+
+        when(mascotaService.obtenerEtagMascota(1L)).thenReturn(Optional.of("\"mascota-1-4\""));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/mascota/{idMascota}", 1L)
+                .header("If-None-Match", "\"mascota-1-4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"mascota-1-4\""))
+                .andExpect(content().string(""));
+
+        verify(mascotaService, never()).obtenerMascotaPorId(ArgumentMatchers.anyLong());
+    }
+    
+    @Test
+    public void testObtenerIngresos_ConCambiosDevuelveElNuevoEtag() throws Exception {
+
+        when(mascotaService.obtenerEtagIngresos(1L)).thenReturn(Optional.of("\"ingresos-1-3-7\""));
+        when(mascotaService.buscarIngresosPorMascotaId(1L)).thenReturn(Collections.singletonList(new IngresoResumen()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/mascota/{idMascota}/ingreso", 1L)
+                .header("If-None-Match", "\"ingresos-1-2-5\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"ingresos-1-3-7\""));
+
+        verify(mascotaService, times(1)).buscarIngresosPorMascotaId(1L);
+    }
+    
 }
@@ -0,0 +1,86 @@
+package com.hospital.controller;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *  Métricas en formato Prometheus (/actuator/prometheus) tras unas peticiones reales.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    // Test 1. Timers por endpoint y por método de servicio, pool de conexiones, Hibernate y caché
+    @Test
+    public void testPrometheus_ExponeMetricasDeEndpointsServiciosPoolHibernateYCache() throws Exception {
+        String mascota = "{\"especie\":\"Perro\",\"raza\":\"Labrador\",\"edad\":3,\"codigo\":4001,"
+                + "\"dniResponsable\":\"12345678A\",\"activa\":true}";
+        String respuesta = mockMvc.perform(post("/api/mascota").contentType(MediaType.APPLICATION_JSON).content(mascota))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode creada = objectMapper.readTree(respuesta);
+        mockMvc.perform(get("/api/mascota/" + creada.get("id").asLong())).andExpect(status().isOk());
+
+        String metricas = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertContieneLinea(metricas, "http_server_requests_seconds_bucket{", "uri=\"/api/mascota/{idMascota}\"");
+        assertContieneLinea(metricas, "hospital_servicio_seconds_count{", "class=\"com.hospital.services.MascotaServiceImpl\"",
+                "method=\"crearMascota\"");
+        assertContieneLinea(metricas, "hospital_servicio_seconds_bucket{", "method=\"obtenerMascotaPorId\"");
+        assertContieneLinea(metricas, "hikaricp_connections_active{");
+        assertContieneLinea(metricas, "hibernate_entities_inserts_total{");
+        assertContieneLinea(metricas, "hibernate_query_executions_total{");
+        assertContieneLinea(metricas, "cache_gets_total{", "cache=\"mascotas\"", "result=\"miss\"");
+    }
+
+    private static void assertContieneLinea(String metricas, String... fragmentos) {
+        assertTrue(metricas.lines().anyMatch(linea -> Arrays.stream(fragmentos).allMatch(linea::contains)),
+                Arrays.toString(fragmentos) + " no aparece en /actuator/prometheus");
+    }
+
+    // Test 2. Cabecera Server-Timing con las sentencias SQL y el tiempo JDBC de una petición real
+    @Test
+    public void testServerTiming_PeticionConConsultas() throws Exception {
+        String mascota = "{\"especie\":\"Gato\",\"raza\":\"Siamés\",\"edad\":2,\"codigo\":4002,"
+                + "\"dniResponsable\":\"12345678A\",\"activa\":true}";
+        String respuesta = mockMvc.perform(post("/api/mascota").contentType(MediaType.APPLICATION_JSON).content(mascota))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(respuesta).get("id").asLong();
+        mockMvc.perform(post("/api/ingreso/" + id).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fechaAlta\":\"2024-05-01\",\"dniRegistrador\":\"12345678A\"}"))
+                .andExpect(status().is2xxSuccessful());
+
+        String cabecera = mockMvc.perform(get("/api/mascota/" + id + "/ingreso"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Server-Timing");
+
+        assertTrue(cabecera.matches("db;desc=\"[1-9]\\d* sentencias SQL\";dur=\\d+\\.\\d{3}"), cabecera);
+    }
+
+}
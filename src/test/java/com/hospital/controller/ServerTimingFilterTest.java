@@ -0,0 +1,96 @@
+package com.hospital.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hospital.repository.InspectorSql;
+
+@ExtendWith(OutputCaptureExtension.class)
+public class ServerTimingFilterTest {
+
+    private static final String SELECT_INGRESOS = "select * from ingresos where mascota_id=?";
+
+    private ServerTimingFilter filtro;
+
+
+    @BeforeEach
+    public void setUp() {
+        filtro = new ServerTimingFilter();
+        ReflectionTestUtils.setField(filtro, "presupuestoSentencias", 3);
+        ReflectionTestUtils.setField(filtro, "muestreoAvisos", 1.0);
+    }
+
+    // Servlet que "ejecuta" las sentencias indicadas y escribe un cuerpo
+    private MockHttpServletResponse ejecutar(String... sentencias) throws Exception {
+        HttpServlet servlet = new HttpServlet() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws java.io.IOException {
+                InspectorSql inspector = new InspectorSql();
+                for (String sentencia : sentencias) {
+                    inspector.inspect(sentencia);
+                }
+                response.getWriter().write("{}");
+            }
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(new MockHttpServletRequest("GET", "/api/mascota/1/ingreso"), response, new MockFilterChain(servlet));
+        return response;
+    }
+
+
+	// Test 1. Cabecera Server-Timing con el número de sentencias de la petición
+
+    @Test
+    public void testServerTiming_CuentaLasSentenciasDeLaPeticion(CapturedOutput salida) throws Exception {
+        MockHttpServletResponse response = ejecutar("select 1", "select 2");
+
+        String cabecera = response.getHeader(ServerTimingFilter.CABECERA);
+        assertTrue(cabecera, cabecera.startsWith("db;desc=\"2 sentencias SQL\";dur="));
+        assertFalse(salida.getOut().contains("presupuesto_sql_excedido"));
+
+        // Cada petición empieza de cero
+        assertTrue(ejecutar().getHeader(ServerTimingFilter.CABECERA).startsWith("db;desc=\"0 sentencias SQL\""));
+    }
+
+	// Test 2. Por encima del presupuesto se avisa con la sentencia más repetida (N+1)
+
+    @Test
+    public void testServerTiming_PresupuestoExcedido_Aviso(CapturedOutput salida) throws Exception {
+        MockHttpServletResponse response = ejecutar("select * from mascotas where id=?",
+                SELECT_INGRESOS, SELECT_INGRESOS, SELECT_INGRESOS);
+
+        assertEquals(200, response.getStatus());
+        assertTrue(salida.getOut().contains("presupuesto_sql_excedido metodo=GET uri=/api/mascota/1/ingreso estado=200 "
+                + "sentencias=4 presupuesto=3"));
+        assertTrue(salida.getOut().contains("repeticiones=3 sentencia=\"" + SELECT_INGRESOS + "\""));
+    }
+
+	// Test 3. Con muestreo 0 no se registra ningún aviso
+
+    @Test
+    public void testServerTiming_PresupuestoExcedidoSinMuestreo_SinAviso(CapturedOutput salida) throws Exception {
+        ReflectionTestUtils.setField(filtro, "muestreoAvisos", 0.0);
+
+        ejecutar(SELECT_INGRESOS, SELECT_INGRESOS, SELECT_INGRESOS, SELECT_INGRESOS);
+
+        assertFalse(salida.getOut().contains("presupuesto_sql_excedido"));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.hospital.indice;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IndiceEspecieRazaTest {
+
+    private IndiceEspecieRaza indice;
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceEspecieRaza();
+        indice.anadir(5L, "Perro", "Labrador");
+        indice.anadir(1L, "Perro", "Pastor alemán");
+        indice.anadir(3L, "perro ", "labrador");
+        indice.anadir(2L, "Gato", "Siamés");
+        indice.anadir(4L, "Gato", "Persa");
+        indice.anadir(6L, "Pájaro", "Periquito");
+    }
+
+
+	// Test 1. Prefijos de especie y raza, sin distinguir mayúsculas ni tildes
+
+    @Test
+    public void testBuscar_PorPrefijo() {
+        assertArrayEquals(new long[] { 1L, 3L, 5L, 6L }, indice.buscar("P", null, 0L, 10));
+        assertArrayEquals(new long[] { 1L, 3L, 5L }, indice.buscar("perr", "", 0L, 10));
+        assertArrayEquals(new long[] { 3L, 5L }, indice.buscar("PERRO", "lab", 0L, 10));
+        assertArrayEquals(new long[] { 2L }, indice.buscar(null, "siames", 0L, 10));
+        assertArrayEquals(new long[] { 4L, 6L }, indice.buscar("", "pe", 0L, 10));
+        assertArrayEquals(new long[0], indice.buscar("Conejo", null, 0L, 10));
+
+        assertEquals(6, indice.getMascotas());
+        assertEquals(5, indice.getCombinaciones());
+        assertEquals(4, indice.contar("p", null));
+    }
+
+	// Test 2. Paginación por cursor mezclando varias combinaciones
+
+    @Test
+    public void testBuscar_Paginacion() {
+        assertArrayEquals(new long[] { 1L, 2L }, indice.buscar(null, null, 0L, 2));
+        assertArrayEquals(new long[] { 3L, 4L }, indice.buscar(null, null, 2L, 2));
+        assertArrayEquals(new long[] { 5L, 6L }, indice.buscar(null, null, 4L, 2));
+        assertArrayEquals(new long[0], indice.buscar(null, null, 6L, 2));
+    }
+
+	// Test 3. Añadir o quitar dos veces no cambia el resultado; las combinaciones vacías desaparecen
+
+    @Test
+    public void testAnadirYQuitar() {
+        indice.anadir(3L, "Perro", "Labrador");
+        indice.quitar(3L, "Perro", "Labrador");
+        indice.quitar(3L, "Perro", "Labrador");
+        indice.quitar(6L, "Pajaro", "periquito");
+        indice.quitar(7L, "Gato", "Persa");
+
+        assertEquals(4, indice.getMascotas());
+        assertEquals(4, indice.getCombinaciones());
+        assertArrayEquals(new long[] { 1L, 5L }, indice.buscar("p", null, 0L, 10));
+        assertArrayEquals(new long[] { 2L, 4L }, indice.buscar("gato", null, 0L, 10));
+    }
+
+}
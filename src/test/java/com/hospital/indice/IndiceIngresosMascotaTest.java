@@ -0,0 +1,119 @@
+package com.hospital.indice;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.entity.Estado;
+
+public class IndiceIngresosMascotaTest {
+
+	// Test 1. Crece desde la capacidad mínima sin perder ingresos ni mezclar mascotas
+
+    @Test
+    public void testRegistrar_CreceSinPerderIngresos() {
+        comprobarCrecimiento(false);
+        comprobarCrecimiento(true);
+    }
+
+    private void comprobarCrecimiento(boolean fueraDelHeap) {
+        IndiceIngresosMascota indice = new IndiceIngresosMascota(1, 1, fueraDelHeap);
+        for (long idIngreso = 1; idIngreso <= 30000; idIngreso++) {
+            indice.registrar(idIngreso % 10000 + 1, idIngreso, Estado.ALTA, 0L);
+        }
+
+        assertEquals(10000, indice.getMascotas());
+        assertEquals(30000, indice.getIngresos());
+        assertEquals(fueraDelHeap, indice.isFueraDelHeap());
+        for (long idMascota = 1; idMascota <= 10000; idMascota++) {
+            long primero = idMascota == 1 ? 10000 : idMascota - 1;
+            assertArrayEquals(new long[] { primero, primero + 10000, primero + 20000 }, indice.obtenerIngresos(idMascota));
+        }
+        assertArrayEquals(new long[0], indice.obtenerIngresos(10001));
+    }
+
+	// Test 3. Compactar no cambia el resultado de las consultas y se puede seguir registrando
+
+    @Test
+    public void testCompactar() {
+        IndiceIngresosMascota indice = new IndiceIngresosMascota(16, 16, false);
+        for (long idIngreso = 1; idIngreso <= 100; idIngreso++) {
+            indice.registrar(idIngreso % 3 + 1, idIngreso, idIngreso % 10 == 0 ? Estado.HOSPITALIZACION : Estado.FINALIZADO, 0L);
+        }
+        long[] antes = indice.obtenerIngresos(2L);
+
+        indice.compactar();
+        indice.registrar(2L, 101L, Estado.ALTA, 0L);
+        indice.registrar(2L, 1L, Estado.ANULADO, 1L);
+
+        long[] despues = indice.obtenerIngresos(2L);
+        assertEquals(antes.length + 1, despues.length);
+        assertArrayEquals(antes, Arrays.copyOf(despues, antes.length));
+        assertEquals(101L, despues[antes.length]);
+        assertArrayEquals(new long[] { 1L }, indice.obtenerIngresos(2L, Estado.ANULADO));
+        assertArrayEquals(new long[] { 10L, 40L, 70L, 100L }, indice.obtenerIngresos(2L, Estado.HOSPITALIZACION));
+        assertEquals(33, indice.obtenerIngresos(1L).length);
+    }
+
+	// Test 2. Registrar un ingreso que ya estaba solo cambia su estado
+
+    @Test
+    public void testRegistrar_CambioDeEstado() {
+        comprobarCambioDeEstado(false);
+        comprobarCambioDeEstado(true);
+    }
+
+    private void comprobarCambioDeEstado(boolean fueraDelHeap) {
+        IndiceIngresosMascota indice = new IndiceIngresosMascota(16, 16, fueraDelHeap);
+        indice.registrar(7L, 100L, Estado.ALTA, 0L);
+        indice.registrar(7L, 101L, Estado.HOSPITALIZACION, 0L);
+        indice.registrar(7L, 102L, Estado.HOSPITALIZACION, 0L);
+        indice.registrar(8L, 103L, Estado.HOSPITALIZACION, 0L);
+
+        assertArrayEquals(new long[] { 101L, 102L }, indice.obtenerIngresos(7L, Estado.HOSPITALIZACION));
+        assertTrue(indice.tieneIngresoEn(7L, Estado.ALTA));
+
+        indice.registrar(7L, 100L, Estado.ANULADO, 1L);
+        indice.registrar(7L, 101L, Estado.FINALIZADO, 1L);
+
+        assertEquals(4, indice.getIngresos());
+        assertArrayEquals(new long[] { 100L, 101L, 102L }, indice.obtenerIngresos(7L));
+        assertArrayEquals(new long[] { 102L }, indice.obtenerIngresos(7L, Estado.HOSPITALIZACION));
+        assertArrayEquals(new long[] { 100L }, indice.obtenerIngresos(7L, Estado.ANULADO));
+        assertFalse(indice.tieneIngresoEn(7L, Estado.ALTA));
+        assertFalse(indice.tieneIngresoEn(9L, Estado.HOSPITALIZACION));
+    }
+
+	// Test 4. Un cambio con una versión anterior a la guardada se descarta, también después de compactar
+
+    @Test
+    public void testRegistrar_DescartaVersionesAnteriores() {
+        comprobarVersiones(false);
+        comprobarVersiones(true);
+    }
+
+    private void comprobarVersiones(boolean fueraDelHeap) {
+        IndiceIngresosMascota indice = new IndiceIngresosMascota(16, 16, fueraDelHeap);
+        assertTrue(indice.registrar(7L, 100L, Estado.ALTA, 0L));
+        // El evento de la segunda transacción llega antes que el de la primera
+        assertTrue(indice.registrar(7L, 100L, Estado.FINALIZADO, 2L));
+        assertFalse(indice.registrar(7L, 100L, Estado.HOSPITALIZACION, 1L));
+
+        assertArrayEquals(new long[] { 100L }, indice.obtenerIngresos(7L, Estado.FINALIZADO));
+        assertFalse(indice.tieneIngresoEn(7L, Estado.HOSPITALIZACION));
+
+        indice.compactar();
+        assertFalse(indice.registrar(7L, 100L, Estado.HOSPITALIZACION, 1L));
+        // La misma versión se vuelve a aplicar: repetir un evento no cambia el resultado
+        assertTrue(indice.registrar(7L, 100L, Estado.FINALIZADO, 2L));
+        assertTrue(indice.registrar(7L, 100L, Estado.ANULADO, 3L));
+        assertArrayEquals(new long[] { 100L }, indice.obtenerIngresos(7L, Estado.ANULADO));
+        assertEquals(1, indice.getIngresos());
+    }
+
+}
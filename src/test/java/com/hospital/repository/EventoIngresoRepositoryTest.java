@@ -0,0 +1,151 @@
+package com.hospital.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+import com.hospital.entity.EventoIngreso;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.InstantaneaIngresos;
+import com.hospital.entity.Mascota;
+import com.hospital.services.HistorialIngresoServiceImpl;
+
+@DataJpaTest(properties = "hospital.historial.instantaneas-conservadas=1")
+@Import(HistorialIngresoServiceImpl.class)
+public class EventoIngresoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EventoIngresoRepository eventoIngresoRepository;
+
+    @Autowired
+    private InstantaneaIngresosRepository instantaneaRepository;
+
+    @Autowired
+    private IngresoRepository ingresoRepository;
+
+    @Autowired
+    private HistorialIngresoServiceImpl historialService;
+
+    private Mascota mascota;
+    private Ingreso primero;
+    private Ingreso segundo;
+    private Ingreso tercero;
+
+    @BeforeEach
+    public void setUp() {
+        mascota = new Mascota();
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Labrador");
+        mascota.setEdad(3);
+        mascota.setCodigo(3000);
+        mascota.setDniResponsable("12345678A");
+        entityManager.persist(mascota);
+
+        primero = ingreso();
+        segundo = ingreso();
+        tercero = ingreso();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Ingreso ingreso() {
+        Ingreso ingreso = new Ingreso();
+        ingreso.setFechaAlta(LocalDate.of(2024, 7, 1));
+        ingreso.setEstado(Estado.ALTA);
+        ingreso.setDniRegistrador("12345678A");
+        ingreso.setMascota(mascota);
+        return entityManager.persist(ingreso);
+    }
+
+    // Evento con la versión, el estado y el instante indicados (sin tocar la fila del ingreso)
+    private void evento(Ingreso ingreso, long version, Estado estado, String instante) {
+        Ingreso cambiado = new Ingreso();
+        cambiado.setId(ingreso.getId());
+        cambiado.setVersion(version);
+        cambiado.setMascota(mascota);
+        cambiado.setFechaAlta(ingreso.getFechaAlta());
+        cambiado.setDniRegistrador(ingreso.getDniRegistrador());
+        cambiado.setEstado(estado);
+        eventoIngresoRepository.save(EventoIngreso.de(cambiado, "12345678A", Instant.parse(instante)));
+    }
+
+    private List<Long> hospitalizados(String instante) {
+        return historialService.obtenerIngresosEnEstado(Estado.HOSPITALIZACION, Instant.parse(instante)).stream()
+                .map(IngresoResumen::getId)
+                .collect(Collectors.toList());
+    }
+
+
+    // Consultas a fecha: mismo resultado partiendo de una instantánea que recorriendo todos los eventos
+
+    @Test
+    public void testEstadoEnFecha_ConYSinInstantanea() {
+
+        evento(primero, 0, Estado.ALTA, "2024-07-01T10:00:00Z");
+        evento(segundo, 0, Estado.ALTA, "2024-07-01T10:00:00Z");
+        evento(tercero, 0, Estado.ALTA, "2024-07-01T10:00:00Z");
+        evento(primero, 1, Estado.HOSPITALIZACION, "2024-07-02T10:00:00Z");
+        evento(segundo, 1, Estado.HOSPITALIZACION, "2024-07-02T10:00:00Z");
+        evento(primero, 2, Estado.FINALIZADO, "2024-07-03T10:00:00Z");
+        evento(tercero, 1, Estado.HOSPITALIZACION, "2024-07-03T10:00:00Z");
+        evento(segundo, 2, Estado.ANULADO, "2024-07-04T10:00:00Z");
+
+        // Sin instantáneas: se recorren los eventos
+        assertEquals(Arrays.asList(), hospitalizados("2024-07-01T23:00:00Z"));
+        assertEquals(Arrays.asList(primero.getId(), segundo.getId()), hospitalizados("2024-07-02T23:00:00Z"));
+
+        InstantaneaIngresos primera = historialService.crearInstantanea(Instant.parse("2024-07-02T12:00:00Z")).get();
+        assertEquals(3, primera.getIngresos());
+
+        // La instantánea del día 2 más los eventos del día 3
+        assertEquals(Arrays.asList(primero.getId(), segundo.getId()), hospitalizados("2024-07-02T23:00:00Z"));
+        assertEquals(Arrays.asList(segundo.getId(), tercero.getId()), hospitalizados("2024-07-03T11:00:00Z"));
+
+        // La segunda instantánea se construye desde la primera; solo se conserva una
+        InstantaneaIngresos segunda = historialService.crearInstantanea(Instant.parse("2024-07-03T12:00:00Z")).get();
+        assertEquals(3, segunda.getIngresos());
+        assertEquals(Arrays.asList(segunda.getId()), instantaneaRepository.obtenerIdsDeMasRecienteAMasAntigua());
+
+        assertEquals(Arrays.asList(tercero.getId()), hospitalizados("2024-07-04T23:00:00Z"));
+        assertEquals(Arrays.asList(segundo.getId(), tercero.getId()), hospitalizados("2024-07-03T23:00:00Z"));
+        assertEquals(Arrays.asList(primero.getId(), segundo.getId()), hospitalizados("2024-07-02T23:00:00Z"));
+
+        // Sin eventos nuevos no hace falta otra instantánea
+        assertFalse(historialService.crearInstantanea(Instant.parse("2024-07-03T20:00:00Z")).isPresent());
+    }
+
+    @Test
+    public void testRegistrarEstadoActual_UnEventoPorIngresoConLaVersionNueva() {
+
+        List<Long> ids = Arrays.asList(primero.getId(), segundo.getId());
+        ingresoRepository.actualizarEstado(ids, Estado.HOSPITALIZACION);
+
+        assertEquals(2, historialService.registrarEstadoActual(ids));
+
+        List<EventoIngreso> eventos = eventoIngresoRepository.findByIngresoIdOrderByVersion(primero.getId());
+        assertEquals(1, eventos.size());
+        assertEquals(1L, eventos.get(0).getVersion());
+        assertEquals(Estado.HOSPITALIZACION, eventos.get(0).getEstado());
+        assertEquals(mascota.getId(), eventos.get(0).getMascotaId());
+        assertTrue(eventoIngresoRepository.findByIngresoIdOrderByVersion(tercero.getId()).isEmpty());
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.hospital.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import com.hospital.config.CacheConfig;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+import com.hospital.exception.MascotaNoEncontradaException;
+import com.hospital.services.IngresoServiceImpl;
+import com.hospital.services.MascotaServiceImpl;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class HistorialIngresosCacheTest {
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private MascotaServiceImpl mascotaService;
+
+    @Autowired
+    private IngresoServiceImpl ingresoService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics estadisticas;
+    private Mascota mascota;
+    // El código es único y cada test guarda su mascota (sin deshacerla al terminar)
+    private static int siguienteCodigo = 2101;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCache(CacheConfig.HISTORIAL_INGRESOS).clear();
+        cacheManager.getCache(CacheConfig.VERSIONES_HISTORIAL).clear();
+
+        mascota = new Mascota();
+        mascota.setEspecie("Gato");
+        mascota.setRaza("Siamés");
+        mascota.setEdad(2);
+        mascota.setCodigo(siguienteCodigo++);
+        mascota.setDniResponsable("12345678A");
+        mascota = mascotaRepository.save(mascota);
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private List<IngresoResumen> historial() {
+        return mascotaService.buscarIngresosPorMascotaId(mascota.getId());
+    }
+
+
+    // El historial y su ETag se leen de base de datos una sola vez, también cuando no hay ingresos
+
+    @Test
+    public void testHistorial_LecturasRepetidasDesdeCache() throws Exception {
+
+        estadisticas.clear();
+        for (int i = 0; i < 3; i++) {
+            assertThrows(MascotaNoEncontradaException.class, this::historial);
+            mascotaService.obtenerEtagIngresos(mascota.getId());
+        }
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+
+        ingresoService.crearIngreso(mascota.getId(), LocalDate.of(2024, 7, 1), "12345678A");
+        estadisticas.clear();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, historial().size());
+            mascotaService.obtenerEtagIngresos(mascota.getId());
+        }
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+    }
+
+    // Alta, actualización (aunque no cambie el estado) y anulación invalidan el historial y el ETag
+
+    @Test
+    public void testCambiosEnIngresos_InvalidanLaCache() throws Exception {
+
+        Ingreso ingreso = ingresoService.crearIngreso(mascota.getId(), LocalDate.of(2024, 7, 1), "12345678A");
+        assertEquals(Estado.ALTA, historial().get(0).getEstado());
+        String etag = mascotaService.obtenerEtagIngresos(mascota.getId()).get();
+
+        Ingreso cambio = new Ingreso();
+        cambio.setEstado(Estado.ALTA);
+        cambio.setFechaFinalizacion(LocalDate.of(2024, 7, 9));
+        ingresoService.actualizarIngreso(mascota.getId(), ingreso.getId(), cambio);
+        assertEquals(LocalDate.of(2024, 7, 9), historial().get(0).getFechaFinalizacion());
+        assertNotEquals(etag, mascotaService.obtenerEtagIngresos(mascota.getId()).get());
+
+        ingresoService.anularIngreso(ingreso.getId());
+        assertEquals(Estado.ANULADO, historial().get(0).getEstado());
+
+        ingresoService.crearIngreso(mascota.getId(), LocalDate.of(2024, 7, 10), "12345678A");
+        assertEquals(2, historial().size());
+    }
+
+}
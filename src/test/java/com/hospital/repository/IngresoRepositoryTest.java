@@ -0,0 +1,217 @@
+package com.hospital.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.VersionHistorial;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class IngresoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private IngresoRepository ingresoRepository;
+    
+    private Statistics estadisticas;
+    private Mascota primeraMascota;
+    
+    @BeforeEach
+    public void setUp() {
+        // Tres mascotas distintas con dos ingresos cada una
+        for (int i = 0; i < 3; i++) {
+            Mascota mascota = new Mascota();
+            mascota.setEspecie("Perro");
+            mascota.setRaza("Labrador");
+            mascota.setEdad(3);
+            mascota.setCodigo(1000 + i);
+            mascota.setDniResponsable("12345678A");
+            entityManager.persist(mascota);
+            if (primeraMascota == null) {
+                primeraMascota = mascota;
+            }
+
+            for (int j = 0; j < 2; j++) {
+                Ingreso ingreso = new Ingreso();
+                ingreso.setFechaAlta(LocalDate.of(2024, 7, 10 + j));
+                ingreso.setEstado(Estado.ALTA);
+                ingreso.setDniRegistrador("12345678A");
+                ingreso.setMascota(mascota);
+                entityManager.persist(ingreso);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+    
+    
+    // Cada listado debe resolverse con una única sentencia SQL, sin una consulta extra por mascota
+    
+    @Test
+    public void testListadoPaginado_UnaSentencia() {
+
+        List<IngresoResumen> ingresos = ingresoRepository.findResumenesDesde(0L, PageRequest.of(0, 10));
+
+        assertEquals(6, ingresos.size());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+    }
+    
+    @Test
+    public void testListadoPorMascota_UnaSentencia() {
+
+        List<IngresoResumen> ingresos = ingresoRepository.findResumenesByMascotaId(primeraMascota.getId());
+
+        assertEquals(2, ingresos.size());
+        assertTrue(ingresos.stream().allMatch(i -> primeraMascota.getId().equals(i.getMascotaId())));
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+    
+    @Test
+    public void testBuscarPorId_CargaMascotaEnLaMismaSentencia() {
+
+        Long idIngreso = ingresoRepository.findResumenesByMascotaId(primeraMascota.getId()).get(0).getId();
+        estadisticas.clear();
+
+        Ingreso ingreso = ingresoRepository.findById(idIngreso).get();
+
+        assertEquals("Labrador", ingreso.getMascota().getRaza());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+    
+    @Test
+    public void testActualizarEstado_UnaSentenciaParaTodosLosIds() {
+
+        List<Long> ids = Arrays.asList(
+                ingresoRepository.findResumenesDesde(0L, PageRequest.of(0, 10)).get(0).getId(),
+                ingresoRepository.findResumenesDesde(0L, PageRequest.of(0, 10)).get(1).getId(),
+                -1L);
+        estadisticas.clear();
+
+        int actualizados = ingresoRepository.actualizarEstado(ids, Estado.ANULADO);
+
+        assertEquals(2, actualizados);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(Estado.ANULADO, ingresoRepository.findById(ids.get(0)).get().getEstado());
+    }
+    
+    
+    // Búsqueda por criterios: una sentencia, y cada filtro habitual resuelto con un índice
+    
+    @Test
+    public void testBuscarResumenes_CombinaCriterios() {
+
+        Mascota gato = new Mascota();
+        gato.setEspecie("Gato");
+        gato.setRaza("Siamés");
+        gato.setEdad(5);
+        gato.setCodigo(2000);
+        gato.setDniResponsable("87654321B");
+        entityManager.persist(gato);
+
+        Ingreso finalizado = new Ingreso();
+        finalizado.setFechaAlta(LocalDate.of(2024, 7, 11));
+        finalizado.setFechaFinalizacion(LocalDate.of(2024, 7, 20));
+        finalizado.setEstado(Estado.FINALIZADO);
+        finalizado.setDniRegistrador("87654321B");
+        finalizado.setMascota(gato);
+        entityManager.persist(finalizado);
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+
+        FiltroIngresos porEspecie = new FiltroIngresos();
+        porEspecie.setEspecie("Gato");
+        porEspecie.setEstado(Estado.FINALIZADO);
+        List<IngresoResumen> gatos = ingresoRepository.buscarResumenes(porEspecie, null, 10);
+
+        assertEquals(1, gatos.size());
+        assertEquals(gato.getId(), gatos.get(0).getMascotaId());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+
+        FiltroIngresos porFechaAlta = new FiltroIngresos();
+        porFechaAlta.setFechaAltaDesde(LocalDate.of(2024, 7, 11));
+        porFechaAlta.setFechaAltaHasta(LocalDate.of(2024, 7, 11));
+        assertEquals(4, ingresoRepository.buscarResumenes(porFechaAlta, null, 10).size());
+
+        porFechaAlta.setDniRegistrador("12345678A");
+        List<IngresoResumen> primeraPagina = ingresoRepository.buscarResumenes(porFechaAlta, null, 2);
+        List<IngresoResumen> segundaPagina = ingresoRepository.buscarResumenes(porFechaAlta, primeraPagina.get(1).getId(), 2);
+        assertEquals(2, primeraPagina.size());
+        assertEquals(1, segundaPagina.size());
+        assertTrue(segundaPagina.get(0).getId() > primeraPagina.get(1).getId());
+
+        FiltroIngresos porFechaFinalizacion = new FiltroIngresos();
+        porFechaFinalizacion.setFechaFinalizacionDesde(LocalDate.of(2024, 7, 1));
+        porFechaFinalizacion.setFechaFinalizacionHasta(LocalDate.of(2024, 7, 31));
+        assertEquals(1, ingresoRepository.buscarResumenes(porFechaFinalizacion, null, 10).size());
+    }
+    
+    @Test
+    public void testBuscarResumenes_FiltrosHabitualesUsanIndice() {
+
+        String seleccion = "SELECT i.id FROM ingresos i ";
+        String orden = " ORDER BY i.id LIMIT 51";
+
+        assertUsaIndice(seleccion + "WHERE i.estado = 'ALTA'" + orden);
+        assertUsaIndice(seleccion + "WHERE i.estado = 'ALTA' AND i.fecha_alta BETWEEN DATE '2024-07-01' AND DATE '2024-07-31'" + orden);
+        assertUsaIndice(seleccion + "WHERE i.fecha_finalizacion BETWEEN DATE '2024-07-01' AND DATE '2024-07-31'" + orden);
+        assertUsaIndice(seleccion + "WHERE i.dni_registrador = '12345678A'" + orden);
+        assertUsaIndice(seleccion + "INNER JOIN mascotas m ON m.id = i.mascota_id WHERE m.especie = 'Perro'" + orden);
+    }
+    
+    // El plan de H2 indica el índice de acceso a cada tabla, o tableScan si la recorre entera
+    private void assertUsaIndice(String sql) {
+        String plan = String.valueOf(entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql).getSingleResult());
+        assertTrue(plan.contains("PUBLIC.IDX_"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+    
+    
+    // Versión del historial (ETag): cambia con cualquier modificación de los ingresos de la mascota
+    
+    @Test
+    public void testObtenerVersionHistorial_CambiaAlActualizar() {
+
+        VersionHistorial inicial = ingresoRepository.obtenerVersionHistorial(primeraMascota.getId());
+        assertEquals(2, inicial.getTotal());
+
+        Long idIngreso = ingresoRepository.findResumenesByMascotaId(primeraMascota.getId()).get(0).getId();
+        ingresoRepository.actualizarEstado(Arrays.asList(idIngreso), Estado.HOSPITALIZACION);
+
+        VersionHistorial actualizada = ingresoRepository.obtenerVersionHistorial(primeraMascota.getId());
+        assertEquals(2, actualizada.getTotal());
+        assertEquals(inicial.getSumaVersiones() + 1, actualizada.getSumaVersiones());
+        assertEquals(0, ingresoRepository.obtenerVersionHistorial(-1L).getTotal());
+    }
+    
+}
@@ -0,0 +1,154 @@
+package com.hospital.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.hospital.dto.MascotaIngresosAbiertos;
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class MascotaClavesSecundariasTest {
+
+    private static final String DNI = "99887766X";
+
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private MascotaRepository mascotaRepository;
+    
+    private Statistics estadisticas;
+    private Mascota conAlta;
+    private Mascota hospitalizada;
+    private Mascota sinIngresos;
+    
+    @BeforeEach
+    public void setUp() {
+        // Tres mascotas activas del mismo responsable, una dada de baja y una de otro responsable
+        conAlta = mascota(7001, DNI, true);
+        hospitalizada = mascota(7002, DNI, true);
+        sinIngresos = mascota(7003, DNI, true);
+        Mascota deBaja = mascota(7004, DNI, false);
+        Mascota deOtro = mascota(7005, "11111111H", true);
+
+        ingreso(conAlta, Estado.ALTA);
+        ingreso(conAlta, Estado.FINALIZADO);
+        ingreso(hospitalizada, Estado.HOSPITALIZACION);
+        ingreso(hospitalizada, Estado.ANULADO);
+        ingreso(hospitalizada, Estado.ALTA);
+        ingreso(deBaja, Estado.ALTA);
+        ingreso(deOtro, Estado.ALTA);
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+    
+    private Mascota mascota(int codigo, String dniResponsable, boolean activa) {
+        Mascota mascota = new Mascota();
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Beagle");
+        mascota.setEdad(4);
+        mascota.setCodigo(codigo);
+        mascota.setDniResponsable(dniResponsable);
+        mascota.setActiva(activa);
+        return entityManager.persist(mascota);
+    }
+    
+    private void ingreso(Mascota mascota, Estado estado) {
+        Ingreso ingreso = new Ingreso();
+        ingreso.setFechaAlta(LocalDate.of(2024, 8, 1));
+        ingreso.setEstado(estado);
+        ingreso.setDniRegistrador("12345678A");
+        ingreso.setMascota(mascota);
+        entityManager.persist(ingreso);
+    }
+    
+    
+    // Mascotas activas de un responsable con sus ingresos abiertos: una sentencia por página
+    
+    @Test
+    public void testBuscarActivasConIngresosAbiertos() {
+
+        List<MascotaIngresosAbiertos> primera = mascotaRepository.buscarActivasConIngresosAbiertos(DNI, null, 2);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(2, primera.size());
+        assertEquals(conAlta.getId(), primera.get(0).getMascota().getId());
+        assertEquals(1, primera.get(0).getIngresosAbiertos().size());
+        assertEquals(Estado.ALTA, primera.get(0).getIngresosAbiertos().get(0).getEstado());
+        assertEquals(hospitalizada.getId(), primera.get(1).getMascota().getId());
+        assertEquals(Estado.HOSPITALIZACION, primera.get(1).getIngresosAbiertos().get(0).getEstado());
+        assertEquals(Estado.ALTA, primera.get(1).getIngresosAbiertos().get(1).getEstado());
+        assertEquals(hospitalizada.getId(), primera.get(1).getIngresosAbiertos().get(0).getMascotaId());
+
+        List<MascotaIngresosAbiertos> segunda = mascotaRepository.buscarActivasConIngresosAbiertos(DNI, hospitalizada.getId(), 2);
+
+        assertEquals(1, segunda.size());
+        assertEquals(sinIngresos.getId(), segunda.get(0).getMascota().getId());
+        assertTrue(segunda.get(0).getIngresosAbiertos().isEmpty());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+    }
+    
+    // Por código: una sola mascota, activa o dada de baja, y el esquema no admite otra con el mismo
+    
+    @Test
+    public void testFindByCodigo() {
+
+        assertEquals(hospitalizada.getId(), mascotaRepository.findByCodigo(7002).get().getId());
+        assertFalse(mascotaRepository.findByCodigo(7004).get().isActiva());
+        assertFalse(mascotaRepository.findByCodigo(7999).isPresent());
+        assertEquals(Arrays.asList(7001, 7004), mascotaRepository.findCodigosExistentes(Arrays.asList(7001, 7004, 7999))
+                .stream().sorted().collect(Collectors.toList()));
+
+        // Tampoco se reutiliza el código de una mascota dada de baja
+        mascota(7004, "33333333P", true);
+        assertThrows(PersistenceException.class, () -> entityManager.flush());
+    }
+    
+    // Ambas búsquedas se resuelven con un índice, sin recorrer la tabla
+    
+    @Test
+    public void testBusquedasUsanIndice() {
+
+        assertUsaIndice("SELECT * FROM mascotas m WHERE m.codigo = 7001");
+        // La página sale ya ordenada del índice: se leen solo sus filas, no todas las del responsable
+        String pagina = assertUsaIndice("SELECT * FROM mascotas m WHERE m.dni_responsable = '" + DNI + "' AND m.activa = TRUE "
+                + "AND m.id > 0 ORDER BY m.dni_responsable, m.activa, m.id LIMIT 51");
+        assertTrue(pagina.contains("index sorted"), pagina);
+    }
+    
+    // El plan de H2 indica el índice de acceso a cada tabla, o tableScan si la recorre entera
+    private String assertUsaIndice(String sql) {
+        String plan = String.valueOf(entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql).getSingleResult());
+        assertTrue(plan.contains("PUBLIC.IDX_MASCOTAS_"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        return plan;
+    }
+    
+}
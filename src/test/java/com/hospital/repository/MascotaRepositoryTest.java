@@ -0,0 +1,103 @@
+package com.hospital.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.hospital.config.CacheConfig;
+import com.hospital.entity.Mascota;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class MascotaRepositoryTest {
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    private Statistics estadisticas;
+    private Mascota mascota;
+    // El código es único y cada test guarda su mascota (sin deshacerla al terminar)
+    private static int siguienteCodigo = 2001;
+    
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCache(CacheConfig.MASCOTAS).clear();
+
+        mascota = new Mascota();
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Labrador");
+        mascota.setEdad(3);
+        mascota.setCodigo(siguienteCodigo++);
+        mascota.setDniResponsable("12345678A");
+        mascota = mascotaRepository.save(mascota);
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+    
+    
+    // Las lecturas repetidas de una mascota se sirven desde la caché sin ir a base de datos
+    
+    @Test
+    public void testFindById_SegundaLecturaDesdeCache() {
+
+        mascotaRepository.findById(mascota.getId());
+        mascotaRepository.findById(mascota.getId());
+        mascotaRepository.findById(mascota.getId());
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+    
+    // Guardar la mascota invalida la entrada, y la siguiente lectura ve el cambio
+    
+    @Test
+    public void testSave_InvalidaLaCache() {
+
+        Mascota cacheada = mascotaRepository.findById(mascota.getId()).get();
+        cacheada.setActiva(false);
+        mascotaRepository.save(cacheada);
+        estadisticas.clear();
+
+        Mascota leida = mascotaRepository.findById(mascota.getId()).get();
+
+        assertFalse(leida.isActiva());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+    
+    // La caché guarda copias: modificar la mascota leída, o un save que falla, no cambia lo que leen los demás
+    
+    @Test
+    public void testFindById_ModificarLaLeidaNoCambiaLaCache() {
+
+        Mascota leida = mascotaRepository.findById(mascota.getId()).get();
+        leida.setActiva(false);
+        leida.setVersion(leida.getVersion() + 10);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> mascotaRepository.save(leida));
+        estadisticas.clear();
+
+        Mascota otra = mascotaRepository.findById(mascota.getId()).get();
+
+        assertNotSame(leida, otra);
+        assertTrue(otra.isActiva());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+    
+}
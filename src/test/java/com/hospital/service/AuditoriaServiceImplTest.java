@@ -0,0 +1,206 @@
+package com.hospital.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hospital.auditoria.RegistroAuditoria;
+import com.hospital.entity.Estado;
+import com.hospital.exception.IngresoNoEncontradoException;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.InstanciaRepository;
+import com.hospital.services.AuditoriaServiceImpl;
+
+public class AuditoriaServiceImplTest {
+
+    @TempDir
+    Path directorio;
+
+    private AuditoriaServiceImpl auditoriaService;
+
+    // Existen todos los ingresos salvo el 404
+    private final IngresoRepository ingresoRepository = mock(IngresoRepository.class);
+
+
+    private AuditoriaServiceImpl iniciar() throws Exception {
+        return iniciar("1b4e28ba-2fa1-11d2-883f-0016d3cca427");
+    }
+
+    // Buffer pequeño para que los productores lleguen a encontrarlo lleno
+    private AuditoriaServiceImpl iniciar(String instancia) throws Exception {
+        InstanciaRepository instanciaRepository = mock(InstanciaRepository.class);
+        when(instanciaRepository.obtenerIdentificador()).thenReturn(instancia);
+        when(ingresoRepository.existsById(anyLong())).thenAnswer(invocacion -> !Long.valueOf(404L).equals(invocacion.getArgument(0)));
+
+        AuditoriaServiceImpl servicio = new AuditoriaServiceImpl();
+        ReflectionTestUtils.setField(servicio, "instanciaRepository", instanciaRepository);
+        ReflectionTestUtils.setField(servicio, "ingresoRepository", ingresoRepository);
+        ReflectionTestUtils.setField(servicio, "directorio", directorio.toString());
+        ReflectionTestUtils.setField(servicio, "tamanoSegmento", 64 * 1024);
+        ReflectionTestUtils.setField(servicio, "capacidadBuffer", 64);
+        ReflectionTestUtils.setField(servicio, "maxLatenciaMs", 5L);
+        servicio.iniciar();
+        return servicio;
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (auditoriaService != null) {
+            auditoriaService.detener();
+        }
+    }
+
+
+	// Test 1. Historial de un ingreso en orden, también tras reiniciar
+
+    @Test
+    public void testHistorial_EnOrdenYTrasReiniciar() throws Exception {
+        auditoriaService = iniciar();
+        auditoriaService.registrarAlta(1L, "12345678A");
+        auditoriaService.registrarCambio(2L, null, Estado.ALTA, "87654321B");
+        auditoriaService.registrarCambio(1L, Estado.ALTA, Estado.HOSPITALIZACION, "12345678A");
+        auditoriaService.registrarCambio(1L, Estado.HOSPITALIZACION, Estado.ANULADO, "12345678A");
+        assertTrue(auditoriaService.esperarEscritura(5000));
+
+        List<RegistroAuditoria> historial = auditoriaService.obtenerHistorial(1L);
+        assertEquals(3, historial.size());
+        assertEquals(RegistroAuditoria.Tipo.ALTA, historial.get(0).getTipo());
+        assertNull(historial.get(0).getEstadoAnterior());
+        assertEquals(Estado.HOSPITALIZACION, historial.get(1).getEstadoNuevo());
+        assertEquals(RegistroAuditoria.Tipo.ANULACION, historial.get(2).getTipo());
+        assertEquals("12345678A", historial.get(2).getDni());
+        assertTrue(auditoriaService.obtenerHistorial(99L).isEmpty());
+
+        auditoriaService.detener();
+        auditoriaService = iniciar();
+
+        assertEquals(3, auditoriaService.obtenerHistorial(1L).size());
+        assertEquals(4L, auditoriaService.obtenerHistorial(1L).get(2).getSecuencia());
+    }
+
+	// Test 2. Varios hilos registrando a la vez con el buffer lleno: no se pierde ni se repite ningún cambio
+
+    @Test
+    public void testRegistrosConcurrentes_NingunoPerdido() throws Exception {
+        auditoriaService = iniciar();
+        int hilos = 8;
+        int porHilo = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            long ingresoId = h;
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                for (int i = 0; i < porHilo; i++) {
+                    auditoriaService.registrarCambio(ingresoId, Estado.ALTA, Estado.HOSPITALIZACION, "12345678A");
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+        assertTrue(auditoriaService.esperarEscritura(10000));
+
+        Set<Long> secuencias = new HashSet<>();
+        for (long h = 0; h < hilos; h++) {
+            List<RegistroAuditoria> historial = auditoriaService.obtenerHistorial(h);
+            assertEquals(porHilo, historial.size());
+            for (RegistroAuditoria registro : historial) {
+                secuencias.add(registro.getSecuencia());
+            }
+        }
+        assertEquals(hilos * porHilo, secuencias.size());
+    }
+    
+	// Test 3. Sin nada pendiente el escritor duerme sin plazo (no se despierta periódicamente) hasta el siguiente registro
+
+    @Test
+    public void testEscritorInactivo_DuermeHastaElSiguienteRegistro() throws Exception {
+        auditoriaService = iniciar();
+        auditoriaService.registrarAlta(1L, "12345678A");
+        assertTrue(auditoriaService.esperarEscritura(5000));
+
+        Thread escritor = (Thread) ReflectionTestUtils.getField(auditoriaService, "escritor");
+        long limite = System.currentTimeMillis() + 5000;
+        while (escritor.getState() != Thread.State.WAITING && System.currentTimeMillis() < limite) {
+            Thread.sleep(1);
+        }
+        // WAITING es park() sin plazo; con parkNanos sería TIMED_WAITING
+        assertEquals(Thread.State.WAITING, escritor.getState());
+
+        auditoriaService.registrarAlta(2L, null);
+        assertTrue(auditoriaService.esperarEscritura(5000));
+        assertEquals(1, auditoriaService.obtenerHistorial(2L).size());
+        assertNull(auditoriaService.obtenerHistorial(2L).get(0).getDni());
+    }
+
+	// Test 4. Un ingreso que no existe no tiene historial vacío: no se encuentra
+
+    @Test
+    public void testHistorial_IngresoInexistente() throws Exception {
+        auditoriaService = iniciar();
+
+        assertThrows(IngresoNoEncontradoException.class, () -> auditoriaService.obtenerHistorial(404L));
+    }
+
+	// Test 5. El log de otra base de datos (p. ej. la de memoria antes de reiniciar) se aparta y se empieza otro
+
+    @Test
+    public void testReinicio_ConOtraBaseDeDatos() throws Exception {
+        auditoriaService = iniciar("1b4e28ba-2fa1-11d2-883f-0016d3cca427");
+        auditoriaService.registrarAlta(1L, "12345678A");
+        assertTrue(auditoriaService.esperarEscritura(5000));
+        auditoriaService.detener();
+
+        // La misma base de datos recupera su log
+        auditoriaService = iniciar("1b4e28ba-2fa1-11d2-883f-0016d3cca427");
+        assertEquals(1, auditoriaService.obtenerHistorial(1L).size());
+        auditoriaService.detener();
+
+        // Con otra, el ingreso 1 es otro ingreso: no hereda el historial y la secuencia vuelve a empezar
+        auditoriaService = iniciar("6fa459ea-ee8a-3ca4-894e-db77e160355e");
+        assertTrue(auditoriaService.obtenerHistorial(1L).isEmpty());
+        auditoriaService.registrarAlta(1L, "87654321B");
+        assertTrue(auditoriaService.esperarEscritura(5000));
+        assertEquals(1L, auditoriaService.obtenerHistorial(1L).get(0).getSecuencia());
+        assertEquals("87654321B", auditoriaService.obtenerHistorial(1L).get(0).getDni());
+
+        // El log anterior no se borra
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            List<Path> apartados = ficheros.filter(f -> f.getFileName().toString().startsWith("anterior-")).collect(Collectors.toList());
+            assertEquals(1, apartados.size());
+            try (Stream<Path> segmentos = Files.list(apartados.get(0))) {
+                assertEquals(1, segmentos.count());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hospital.dto.PaginaMascotas;
+import com.hospital.entity.Mascota;
+import com.hospital.services.BuscadorMascotasServiceImpl;
+import com.hospital.services.MascotaServiceImpl;
+
+/**
+ *  El índice de búsqueda se carga al arrancar la aplicación y se mantiene con las altas y bajas de
+ *  MascotaServiceImpl. Las especies de estos tests no las usa ningún otro.
+ */
+@SpringBootTest
+public class BuscadorMascotasServiceImplTest {
+
+    @Autowired
+    private MascotaServiceImpl mascotaService;
+    
+    @Autowired
+    private BuscadorMascotasServiceImpl buscadorMascotasService;
+    
+    
+    private long crearMascota(String especie, String raza, int codigo) {
+        Mascota mascota = new Mascota();
+        mascota.setEspecie(especie);
+        mascota.setRaza(raza);
+        mascota.setEdad(2);
+        mascota.setCodigo(codigo);
+        mascota.setDniResponsable("12345678A");
+        return mascotaService.crearMascota(mascota).getId();
+    }
+    
+    
+    // Test 1. Las mascotas creadas se encuentran al momento y las dadas de baja dejan de encontrarse
+    
+    @Test
+    public void testCrearYDarDeBaja_ActualizanElIndice() {
+
+        long tortuga = crearMascota("Tortuga", "Mediterránea", 5101);
+        long otraTortuga = crearMascota("tortuga", "Mediterranea", 5102);
+        long iguana = crearMascota("Iguana", "Verde", 5103);
+
+        PaginaMascotas pagina = buscadorMascotasService.buscarMascotas("tort", "medite", null, null).get();
+        assertArrayEquals(new long[] { tortuga, otraTortuga }, pagina.getIds());
+        assertEquals(2, pagina.getTotal());
+        assertNull(pagina.getSiguienteCursor());
+
+        mascotaService.darDeBajaMascota(tortuga);
+
+        assertArrayEquals(new long[] { otraTortuga }, buscadorMascotasService.buscarMascotas("TORTUGA", null, null, null).get().getIds());
+        assertArrayEquals(new long[] { iguana }, buscadorMascotasService.buscarMascotas("Iguana", "v", null, null).get().getIds());
+    }
+    
+    // Test 2. Paginación por cursor
+    
+    @Test
+    public void testBuscar_Paginacion() {
+
+        long[] ids = new long[3];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = crearMascota("Chinchilla", "Estándar", 5201 + i);
+        }
+
+        PaginaMascotas primera = buscadorMascotasService.buscarMascotas("chinchilla", null, null, 2).get();
+        assertArrayEquals(new long[] { ids[0], ids[1] }, primera.getIds());
+        assertEquals(3, primera.getTotal());
+        assertEquals(ids[1], primera.getSiguienteCursor());
+
+        PaginaMascotas segunda = buscadorMascotasService.buscarMascotas("chinchilla", null, primera.getSiguienteCursor(), 2).get();
+        assertArrayEquals(new long[] { ids[2] }, segunda.getIds());
+        assertNull(segunda.getSiguienteCursor());
+    }
+    
+}
@@ -0,0 +1,122 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.IngresosMascota;
+import com.hospital.entity.Estado;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.MascotaRepository;
+import com.hospital.services.IndiceIngresosServiceImpl;
+
+public class IndiceIngresosServiceImplTest {
+
+    @Mock
+    private IngresoRepository ingresoRepository;
+    
+    @Mock
+    private MascotaRepository mascotaRepository;
+    
+    @InjectMocks
+    private IndiceIngresosServiceImpl indiceIngresosService;
+    
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(mascotaRepository.count()).thenReturn(2L);
+        when(ingresoRepository.count()).thenReturn(3L);
+        when(ingresoRepository.streamEstados()).thenReturn(Stream.of(
+                new EstadoIngreso(1L, Estado.FINALIZADO, "12345678A", 10L, 2L),
+                new EstadoIngreso(2L, Estado.HOSPITALIZACION, "12345678A", 10L, 1L),
+                new EstadoIngreso(3L, Estado.ALTA, "12345678A", 20L, 0L)));
+    }
+    
+    
+    // Test 1. Carga inicial y actualización con los eventos de IngresoServiceImpl
+    
+    @Test
+    public void testCargarIndice_YRegistrarCambios() {
+
+        indiceIngresosService.cargarIndice();
+
+        IngresosMascota ingresos = indiceIngresosService.obtenerIngresosMascota(10L);
+        assertArrayEquals(new long[] { 1L, 2L }, ingresos.getIngresos());
+        assertArrayEquals(new long[] { 2L }, ingresos.getHospitalizaciones());
+        assertFalse(indiceIngresosService.obtenerIngresosMascota(20L).isHospitalizada());
+
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.cambio(Estado.HOSPITALIZACION, Estado.FINALIZADO)
+                .deIngresos(Collections.singleton(new EstadoIngreso(2L, Estado.FINALIZADO, "12345678A", 10L, 2L))));
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.altas(1)
+                .deIngresos(Collections.singleton(new EstadoIngreso(4L, Estado.HOSPITALIZACION, "12345678A", 20L, 0L))));
+
+        assertFalse(indiceIngresosService.obtenerIngresosMascota(10L).isHospitalizada());
+        assertArrayEquals(new long[] { 3L, 4L }, indiceIngresosService.obtenerIngresosMascota(20L).getIngresos());
+        assertTrue(indiceIngresosService.obtenerIngresosMascota(20L).isHospitalizada());
+        verify(ingresoRepository, never()).findResumenesByMascotaId(10L);
+    }
+    
+    
+    // Test 2. Antes de la carga se usa el historial, y los cambios se aplican al terminarla
+    
+    @Test
+    public void testAntesDeLaCarga() {
+
+        when(ingresoRepository.findResumenesByMascotaId(10L)).thenReturn(Arrays.asList(
+                new IngresoResumen(1L, null, null, Estado.FINALIZADO, "12345678A", 10L),
+                new IngresoResumen(2L, null, null, Estado.HOSPITALIZACION, "12345678A", 10L)));
+
+        assertFalse(indiceIngresosService.isCargado());
+        assertArrayEquals(new long[] { 2L }, indiceIngresosService.obtenerIngresosMascota(10L).getHospitalizaciones());
+
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.altas(1)
+                .deIngresos(Collections.singleton(new EstadoIngreso(4L, Estado.ALTA, "12345678A", 10L, 0L))));
+        indiceIngresosService.cargarIndice();
+
+        assertTrue(indiceIngresosService.isCargado());
+        assertArrayEquals(new long[] { 1L, 2L, 4L }, indiceIngresosService.obtenerIngresosMascota(10L).getIngresos());
+    }
+    
+    
+    // Test 3. Un evento que llega después de otro más reciente del mismo ingreso no lo deshace
+    
+    @Test
+    public void testRegistrarCambio_DescartaEventosAnteriores() {
+
+        // Ingreso 2 en hospitalización con la versión 1: lo publicado antes de la carga ya está incluido en ella
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.altas(1)
+                .deIngresos(Collections.singleton(new EstadoIngreso(2L, Estado.ALTA, "12345678A", 10L, 0L))));
+        indiceIngresosService.cargarIndice();
+
+        assertArrayEquals(new long[] { 2L }, indiceIngresosService.obtenerIngresosMascota(10L).getHospitalizaciones());
+
+        // Dos transacciones sobre el ingreso 2: el evento de la segunda (versión 3) llega antes que el de la primera
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.cambio(Estado.FINALIZADO, Estado.ANULADO)
+                .deIngresos(Collections.singleton(new EstadoIngreso(2L, Estado.ANULADO, "12345678A", 10L, 3L))));
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.cambio(Estado.HOSPITALIZACION, Estado.FINALIZADO)
+                .deIngresos(Collections.singleton(new EstadoIngreso(2L, Estado.FINALIZADO, "12345678A", 10L, 2L))));
+        indiceIngresosService.registrarCambio(CambioEstadoIngresoEvento.cambio(Estado.ALTA, Estado.HOSPITALIZACION)
+                .deIngresos(Collections.singleton(new EstadoIngreso(2L, Estado.HOSPITALIZACION, "12345678A", 10L, 1L))));
+
+        assertFalse(indiceIngresosService.obtenerIngresosMascota(10L).isHospitalizada());
+        assertArrayEquals(new long[] { 1L, 2L }, indiceIngresosService.obtenerIngresosMascota(10L).getIngresos());
+    }
+    
+}
@@ -0,0 +1,171 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hospital.entity.Estado;
+import com.hospital.entity.Ingreso;
+import com.hospital.entity.Mascota;
+import com.hospital.exception.ConflictoConcurrenciaException;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.repository.MascotaRepository;
+import com.hospital.services.IngresoServiceImpl;
+
+/**
+ *  Prueba de estrés: varios hilos actualizan el mismo ingreso a la vez.
+ *  
+ *  Cada actualización cambia la fecha de finalización a un valor distinto, así que cada una que
+ *  termina bien debe incrementar la versión exactamente una vez: si la versión final ha avanzado
+ *  menos que el número de actualizaciones correctas, alguna se ha perdido.
+ */
+@SpringBootTest
+public class IngresoConcurrenciaTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IngresoConcurrenciaTest.class);
+
+    private static final int HILOS = 8;
+    private static final int ACTUALIZACIONES_POR_HILO = 25;
+    
+    @Autowired
+    private IngresoServiceImpl ingresoService;
+    
+    @Autowired
+    private IngresoRepository ingresoRepository;
+    
+    @Autowired
+    private MascotaRepository mascotaRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    
+    @Test
+    public void testActualizacionesConcurrentes_SinActualizacionesPerdidas() throws Exception {
+
+        Mascota mascota = new Mascota();
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Labrador");
+        mascota.setEdad(3);
+        mascota.setCodigo(3001);
+        mascota.setDniResponsable("12345678A");
+        mascota = mascotaRepository.save(mascota);
+
+        Ingreso ingreso = new Ingreso();
+        ingreso.setFechaAlta(LocalDate.of(2024, 1, 1));
+        ingreso.setEstado(Estado.ALTA);
+        ingreso.setDniRegistrador("12345678A");
+        ingreso.setMascota(mascota);
+        ingreso = ingresoRepository.save(ingreso);
+
+        Long mascotaId = mascota.getId();
+        Long ingresoId = ingreso.getId();
+        long versionInicial = ingreso.getVersion();
+
+        AtomicInteger dias = new AtomicInteger();
+        AtomicInteger correctas = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int h = 0; h < HILOS; h++) {
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < ACTUALIZACIONES_POR_HILO; i++) {
+                    Ingreso detalles = new Ingreso();
+                    detalles.setEstado(Estado.FINALIZADO);
+                    detalles.setFechaFinalizacion(LocalDate.of(2024, 1, 1).plusDays(dias.incrementAndGet()));
+                    try {
+                        ingresoService.actualizarIngreso(mascotaId, ingresoId, detalles);
+                        correctas.incrementAndGet();
+                    } catch (ConflictoConcurrenciaException e) {
+                        conflictos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        hilos.shutdown();
+
+        long versionFinal = ingresoRepository.findById(ingresoId).get().getVersion();
+        long perdidas = correctas.get() - (versionFinal - versionInicial);
+
+        log.info("{} actualizaciones en {} hilos: {} correctas, {} conflictos (409), {} perdidas, {} actualizaciones/s",
+                HILOS * ACTUALIZACIONES_POR_HILO, HILOS, correctas.get(), conflictos.get(), perdidas,
+                String.format("%.0f", correctas.get() / segundos));
+
+        assertEquals(HILOS * ACTUALIZACIONES_POR_HILO, correctas.get() + conflictos.get());
+        assertEquals(0, perdidas);
+    }
+    
+    // El estado anterior de un cambio masivo se lee con las filas bloqueadas: una actualización
+    // individual del mismo ingreso espera al commit en lugar de colarse entre la lectura y el UPDATE
+    
+    @Test
+    public void testCambioMasivo_BloqueaLasFilasLeidas() throws Exception {
+
+        Mascota mascota = new Mascota();
+        mascota.setEspecie("Gato");
+        mascota.setRaza("Persa");
+        mascota.setEdad(2);
+        mascota.setCodigo(3002);
+        mascota.setDniResponsable("12345678A");
+        mascota = mascotaRepository.save(mascota);
+
+        Ingreso ingreso = new Ingreso();
+        ingreso.setFechaAlta(LocalDate.of(2024, 1, 1));
+        ingreso.setEstado(Estado.ALTA);
+        ingreso.setDniRegistrador("12345678A");
+        ingreso.setMascota(mascota);
+        ingreso = ingresoRepository.save(ingreso);
+
+        Long mascotaId = mascota.getId();
+        Long ingresoId = ingreso.getId();
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> actualizacion = transactionTemplate.execute(transaccion -> {
+                ingresoRepository.obtenerEstados(Collections.singletonList(ingresoId));
+                Future<?> tarea = hilo.submit(() -> {
+                    Ingreso detalles = new Ingreso();
+                    detalles.setEstado(Estado.HOSPITALIZACION);
+                    return ingresoService.actualizarIngreso(mascotaId, ingresoId, detalles);
+                });
+                // Mientras la transacción siga abierta, la actualización no puede terminar
+                assertThrows(TimeoutException.class, () -> tarea.get(300, TimeUnit.MILLISECONDS));
+                return tarea;
+            });
+            actualizacion.get(10, TimeUnit.SECONDS);
+        } finally {
+            hilo.shutdown();
+        }
+
+        assertEquals(Estado.HOSPITALIZACION, ingresoRepository.findById(ingresoId).get().getEstado());
+    }
+    
+}
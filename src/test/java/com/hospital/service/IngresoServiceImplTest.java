@@ -2,36 +2,72 @@ package com.hospital.service;
 
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hospital.dto.EstadoIngreso;
+import com.hospital.dto.FiltroIngresos;
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.PaginaIngresos;
+import com.hospital.dto.ResultadoLote;
+import com.hospital.dto.ResultadoTransicion;
+import com.hospital.dto.TransicionIngresos;
 import com.hospital.entity.Estado;
 import com.hospital.entity.Ingreso;
 import com.hospital.entity.Mascota;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.exception.ConflictoConcurrenciaException;
 import com.hospital.exception.FechaFinalizacionRequeridaException;
 import com.hospital.exception.FechaFormatoInvalidoException;
 import com.hospital.exception.IngresoNoEncontradoException;
+import com.hospital.exception.LoteInvalidoException;
 import com.hospital.exception.MascotaException;
 import com.hospital.exception.RegistradorNoAutorizadoException;
 import com.hospital.repository.IngresoRepository;
 import com.hospital.repository.MascotaRepository;
+import com.hospital.services.AuditoriaServiceImpl;
+import com.hospital.services.HistorialIngresoServiceImpl;
 import com.hospital.services.IngresoServiceImpl;
 
 
@@ -43,6 +79,40 @@ public class IngresoServiceImplTest {
     @Mock
     private MascotaRepository mascotaRepository;
     
+    @Mock
+    private EntityManager entityManager;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private AuditoriaServiceImpl auditoriaService;
+    
+    @Mock
+    private HistorialIngresoServiceImpl historialService;
+    
+    // Ejecuta los callbacks sin transacción real
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    });
+    
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    
     @InjectMocks
     private IngresoServiceImpl ingresoService;
     
@@ -59,7 +129,7 @@ public class IngresoServiceImplTest {
 
         ingresoDetalles = new Ingreso();
         ingresoDetalles.setEstado(Estado.FINALIZADO);
-        ingresoDetalles.setFechaFinalizacion("2024-07-14");
+        ingresoDetalles.setFechaFinalizacion(LocalDate.of(2024, 7, 14));
     }
     
     
@@ -68,51 +138,55 @@ public class IngresoServiceImplTest {
     @Test
     public void testObtenerTodosIngresos() {
 
-        Mascota mascota1 = new Mascota();
-        mascota1.setId(1L);
-        mascota1.setEspecie("Perro");
-        mascota1.setRaza("Labrador");
-        mascota1.setEdad(5);
-        mascota1.setCodigo(1001);
-        mascota1.setDniResponsable("11111111A");
-        mascota1.setActiva(true);
-
-        Mascota mascota2 = new Mascota();
-        mascota2.setId(2L);
-        mascota2.setEspecie("Gato");
-        mascota2.setRaza("Siames");
-        mascota2.setEdad(3);
-        mascota2.setCodigo(1002);
-        mascota2.setDniResponsable("22222222B");
-        mascota2.setActiva(true);
-
-        Ingreso ingreso1 = new Ingreso();
-        ingreso1.setId(1L);
-        ingreso1.setFechaAlta(LocalDate.of(2023, 1, 15));
-        ingreso1.setFechaFinalizacion("2023-02-28");
-        ingreso1.setMascota(mascota1);  // Asociar la mascota 1
-        ingreso1.setEstado(Estado.ALTA);
-        ingreso1.setDniRegistrador("12345678A");
-
-        Ingreso ingreso2 = new Ingreso();
-        ingreso2.setId(2L);
-        ingreso2.setFechaAlta(LocalDate.of(2023, 3, 20));
-        ingreso2.setFechaFinalizacion("2023-04-30");
-        ingreso2.setMascota(mascota2);  // Asociar la mascota 2
-        ingreso2.setEstado(Estado.HOSPITALIZACION);
-        ingreso2.setDniRegistrador("98765432B");
-
-        List<Ingreso> listaIngresos = Arrays.asList(ingreso1, ingreso2);
-
-        when(ingresoRepository.findAll()).thenReturn(listaIngresos);
-
-        List<Ingreso> resultado = ingresoService.obtenerTodosIngresos();
-
-        verify(ingresoRepository).findAll();
-
-        assertEquals(2, resultado.size());  // Verificar que haya dos ingresos en la lista
-        assertEquals("12345678A", resultado.get(0).getDniRegistrador());  // Verificar el DNI del primer ingreso
-        assertEquals("98765432B", resultado.get(1).getDniRegistrador());  // Verificar el DNI del segundo ingreso
+        IngresoResumen ingreso1 = new IngresoResumen(1L, LocalDate.of(2023, 1, 15), LocalDate.of(2023, 2, 28),
+                Estado.ALTA, "12345678A", 1L);
+
+        IngresoResumen ingreso2 = new IngresoResumen(2L, LocalDate.of(2023, 3, 20), LocalDate.of(2023, 4, 30),
+                Estado.HOSPITALIZACION, "98765432B", 2L);
+
+        List<IngresoResumen> listaIngresos = Arrays.asList(ingreso1, ingreso2);
+
+        when(ingresoRepository.findResumenesDesde(0L, PageRequest.of(0, 51))).thenReturn(listaIngresos);
+
+        PaginaIngresos resultado = ingresoService.obtenerIngresos(null, null);
+
+        verify(ingresoRepository).findResumenesDesde(0L, PageRequest.of(0, 51));
+
+        assertEquals(2, resultado.getIngresos().size());  // Verificar que haya dos ingresos en la lista
+        assertEquals("12345678A", resultado.getIngresos().get(0).getDniRegistrador());  // Verificar el DNI del primer ingreso
+        assertEquals("98765432B", resultado.getIngresos().get(1).getDniRegistrador());  // Verificar el DNI del segundo ingreso
+        assertEquals(Long.valueOf(2L), resultado.getIngresos().get(1).getMascotaId());  // Solo se incluye el ID de la mascota
+        assertNull(resultado.getSiguienteCursor());  // No hay más páginas
+    }
+    
+    @Test
+    public void testObtenerIngresos_PaginaCompletaDevuelveCursor() {
+
+        IngresoResumen ingreso1 = new IngresoResumen();
+        ingreso1.setId(11L);
+        IngresoResumen ingreso2 = new IngresoResumen();
+        ingreso2.setId(12L);
+        IngresoResumen ingreso3 = new IngresoResumen();
+        ingreso3.setId(13L);
+
+        // Se piden limite + 1 filas para saber si existe una página siguiente
+        when(ingresoRepository.findResumenesDesde(10L, PageRequest.of(0, 3)))
+            .thenReturn(Arrays.asList(ingreso1, ingreso2, ingreso3));
+
+        PaginaIngresos resultado = ingresoService.obtenerIngresos(10L, 2);
+
+        assertEquals(2, resultado.getIngresos().size());
+        assertEquals(Long.valueOf(12L), resultado.getSiguienteCursor());
+    }
+    
+    @Test
+    public void testObtenerIngresos_LimiteAcotado() {
+
+        when(ingresoRepository.findResumenesDesde(0L, PageRequest.of(0, 501))).thenReturn(Arrays.asList());
+
+        ingresoService.obtenerIngresos(null, 100000);
+
+        verify(ingresoRepository).findResumenesDesde(0L, PageRequest.of(0, 501));
     }
     
     
@@ -143,6 +217,7 @@ public class IngresoServiceImplTest {
 
         verify(mascotaRepository, times(1)).findById(mascotaId);
         verify(ingresoRepository, times(1)).save(ArgumentMatchers.any(Ingreso.class));
+        verify(auditoriaService).registrarAlta(ingreso.getId(), dniRegistrador);
     }
     
     
@@ -207,12 +282,28 @@ public class IngresoServiceImplTest {
 
         assertNotNull(actualizado);
         assertEquals(Estado.FINALIZADO, actualizado.getEstado());
-        assertEquals("2024-07-14", actualizado.getFechaFinalizacion());
+        assertEquals(LocalDate.of(2024, 7, 14), actualizado.getFechaFinalizacion());
 
         verify(ingresoRepository, times(1)).findById(anyLong());
         verify(ingresoRepository, times(1)).save(ArgumentMatchers.any(Ingreso.class));
     }
     
+    @Test
+    public void testActualizarIngreso_ReintentaTrasConflictoDeVersion() throws Exception {
+
+        when(ingresoRepository.findById(anyLong())).thenReturn(Optional.of(ingreso));
+        when(ingresoRepository.save(ArgumentMatchers.any(Ingreso.class)))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Ingreso.class, 1L))
+            .thenReturn(ingreso);
+
+        Ingreso actualizado = ingresoService.actualizarIngreso(1L, 1L, ingresoDetalles);
+
+        // Se vuelve a leer el ingreso antes de aplicar de nuevo el cambio
+        assertEquals(Estado.FINALIZADO, actualizado.getEstado());
+        verify(ingresoRepository, times(2)).findById(anyLong());
+        verify(ingresoRepository, times(2)).save(ArgumentMatchers.any(Ingreso.class));
+    }
+    
     
     // Test 4. Anular ingreso
     
@@ -223,15 +314,30 @@ public class IngresoServiceImplTest {
         Ingreso ingresoExistente = new Ingreso();
         ingresoExistente.setId(idIngresoExistente);
         ingresoExistente.setEstado(Estado.ALTA);
+        ingresoExistente.setVersion(0L);
+        // save devuelve la entidad guardada, con la versión nueva
+        Ingreso ingresoGuardado = new Ingreso();
+        ingresoGuardado.setId(idIngresoExistente);
+        ingresoGuardado.setEstado(Estado.ANULADO);
+        ingresoGuardado.setVersion(1L);
 
         when(ingresoRepository.findById(idIngresoExistente))
             .thenReturn(Optional.of(ingresoExistente));
+        when(ingresoRepository.save(ingresoExistente)).thenReturn(ingresoGuardado);
 
         ingresoService.anularIngreso(idIngresoExistente);
 
         assertEquals(Estado.ANULADO, ingresoExistente.getEstado());
         verify(ingresoRepository, times(1)).findById(idIngresoExistente);
         verify(ingresoRepository, times(1)).save(ingresoExistente);
+
+        // La ocupación pasa un ingreso de ALTA a ANULADO
+        ArgumentCaptor<CambioEstadoIngresoEvento> evento = ArgumentCaptor.forClass(CambioEstadoIngresoEvento.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertEquals(Long.valueOf(-1L), evento.getValue().getVariaciones().get(Estado.ALTA));
+        assertEquals(Long.valueOf(1L), evento.getValue().getVariaciones().get(Estado.ANULADO));
+        // El índice de ingresos recibe la versión de la fila anulada, no la leída antes
+        assertEquals(Long.valueOf(1L), evento.getValue().getIngresos().get(0).getVersion());
     }
     
     @Test
@@ -249,9 +355,300 @@ public class IngresoServiceImplTest {
         verify(ingresoRepository, never()).save(ArgumentMatchers.any());
     }
     
+    @Test
+    public void testAnularIngreso_ConflictoPersistenteAgotaLosReintentos() {
+
+        Ingreso ingresoExistente = new Ingreso();
+        ingresoExistente.setId(1L);
+        ingresoExistente.setEstado(Estado.HOSPITALIZACION);
+
+        when(ingresoRepository.findById(1L)).thenReturn(Optional.of(ingresoExistente));
+        when(ingresoRepository.save(ingresoExistente))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Ingreso.class, 1L));
+
+        assertThrows(ConflictoConcurrenciaException.class, () -> ingresoService.anularIngreso(1L));
+        verify(ingresoRepository, times(IngresoServiceImpl.MAX_REINTENTOS + 1)).save(ingresoExistente);
+        verify(eventPublisher, never()).publishEvent(ArgumentMatchers.any(Object.class));
+    }
     
     
+    // Test 5. Exportación NDJSON
     
+    @Test
+    public void testExportarIngresos_UnaLineaPorIngreso() throws Exception {
+
+        IngresoResumen ingreso1 = new IngresoResumen(1L, LocalDate.of(2024, 7, 10), null, Estado.ALTA, "12345678A", 1L);
+        IngresoResumen ingreso2 = new IngresoResumen(2L, LocalDate.of(2024, 7, 11), null, Estado.HOSPITALIZACION, "12345678A", 1L);
+
+        when(ingresoRepository.streamResumenes()).thenReturn(Stream.of(ingreso1, ingreso2));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        long exportados = ingresoService.exportarIngresos(salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\\n");
+        assertEquals(2L, exportados);
+        assertEquals(2, lineas.length);
+        assertEquals(1L, objectMapper.readTree(lineas[0]).get("id").asLong());
+        assertEquals("2024-07-11", objectMapper.readTree(lineas[1]).get("fechaAlta").asText());
+        assertEquals(1L, objectMapper.readTree(lineas[1]).get("mascotaId").asLong());
+    }
     
     
+    // Test 6. Alta de ingresos en lote
+    
+    @Test
+    public void testCrearIngresosEnLote_ResultadoPorElemento() throws Exception {
+
+        Mascota mascota = new Mascota();
+        mascota.setId(1L);
+        mascota.setDniResponsable("12345678A");
+
+        when(mascotaRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(mascota));
+        when(ingresoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Ingreso> ingresos = invocation.getArgument(0);
+            long id = 100;
+            for (Ingreso nuevo : ingresos) {
+                nuevo.setId(id++);
+            }
+            return ingresos;
+        });
+
+        String lote = "[{\"mascotaId\":1,\"fechaAlta\":\"2024-07-10\",\"dniRegistrador\":\"12345678A\"},"
+                + "{\"mascotaId\":2,\"fechaAlta\":\"2024-07-10\",\"dniRegistrador\":\"12345678A\"},"
+                + "{\"mascotaId\":1,\"fechaAlta\":\"2024-07-11\",\"dniRegistrador\":\"87654321B\"},"
+                + "{\"mascotaId\":1,\"fechaAlta\":\"2024-07-12\",\"dniRegistrador\":\"12345678A\"}]";
+
+        ResultadoLote resultado = ingresoService.crearIngresosEnLote(
+                new ByteArrayInputStream(lote.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, resultado.getCreados());
+        assertEquals(2, resultado.getRechazados());
+        assertEquals(Long.valueOf(100L), resultado.getResultados().get(0).getIngresoId());
+        assertEquals("Mascota no encontrada", resultado.getResultados().get(1).getError());
+        assertEquals("El registrador no está autorizado para registrar esta mascota.", resultado.getResultados().get(2).getError());
+        assertEquals(Long.valueOf(101L), resultado.getResultados().get(3).getIngresoId());
+        assertEquals(3, resultado.getResultados().get(3).getIndice());
+
+        // Una consulta de mascotas y un saveAll por bloque, no uno por elemento
+        verify(mascotaRepository, times(1)).findAllById(anyCollection());
+        verify(ingresoRepository, times(1)).saveAll(anyList());
+        verify(mascotaRepository, never()).findById(anyLong());
+    }
+    
+    @Test
+    public void testCrearIngresosEnLote_NoEsArray() {
+
+        assertThrows(LoteInvalidoException.class, () -> ingresoService.crearIngresosEnLote(
+                new ByteArrayInputStream("{\"mascotaId\":1}".getBytes(StandardCharsets.UTF_8))));
+    }
+    
+    
+    @Test
+    public void testCrearIngresosEnLote_ElementoNoValidoSeRechaza() throws Exception {
+
+        Mascota mascota = new Mascota();
+        mascota.setId(1L);
+        mascota.setDniResponsable("12345678A");
+
+        when(mascotaRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(mascota));
+        when(ingresoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Ingreso> ingresos = invocation.getArgument(0);
+            long id = 100;
+            for (Ingreso nuevo : ingresos) {
+                nuevo.setId(id++);
+            }
+            return ingresos;
+        });
+
+        String lote = "[{\"mascotaId\":1,\"fechaAlta\":\"10/07/2024\",\"dniRegistrador\":\"12345678A\"},"
+                + "42,"
+                + "{\"mascotaId\":1,\"fechaAlta\":\"2024-07-12\",\"dniRegistrador\":\"12345678A\"}]";
+
+        ResultadoLote resultado = ingresoService.crearIngresosEnLote(
+                new ByteArrayInputStream(lote.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, resultado.getCreados());
+        assertEquals(2, resultado.getRechazados());
+        assertNull(resultado.getError());
+        assertEquals(Long.valueOf(1L), resultado.getResultados().get(0).getMascotaId());
+        assertTrue(resultado.getResultados().get(0).getError().startsWith("Elemento no válido"));
+        assertEquals("El elemento no es un objeto JSON.", resultado.getResultados().get(1).getError());
+        assertEquals(Long.valueOf(100L), resultado.getResultados().get(2).getIngresoId());
+        assertEquals(2, resultado.getResultados().get(2).getIndice());
+    }
+    
+    @Test
+    public void testCrearIngresosEnLote_JsonMalFormadoDevuelveLoProcesado() throws Exception {
+
+        Mascota mascota = new Mascota();
+        mascota.setId(1L);
+        mascota.setDniResponsable("12345678A");
+
+        when(mascotaRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(mascota));
+        when(ingresoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Ingreso> ingresos = invocation.getArgument(0);
+            long id = 100;
+            for (Ingreso nuevo : ingresos) {
+                nuevo.setId(id++);
+            }
+            return ingresos;
+        });
+
+        String lote = "[{\"mascotaId\":1,\"fechaAlta\":\"2024-07-10\",\"dniRegistrador\":\"12345678A\"},"
+                + "{\"mascotaId\":1,\"fechaAlta\":";
+
+        ResultadoLote resultado = ingresoService.crearIngresosEnLote(
+                new ByteArrayInputStream(lote.getBytes(StandardCharsets.UTF_8)));
+
+        // El elemento completo se crea y se informa de dónde se cortó el lote
+        assertEquals(1, resultado.getCreados());
+        assertEquals(Long.valueOf(100L), resultado.getResultados().get(0).getIngresoId());
+        assertTrue(resultado.getError().startsWith("JSON mal formado a partir de la posición 1"));
+    }
+    
+    
+    // Test 7. Cambio de estado masivo
+    
+    @Test
+    public void testTransicionarIngresos_AnularEnUnaSentencia() throws Exception {
+
+        List<Long> ids = Arrays.asList(1L, 2L, 3L, 2L);
+        when(ingresoRepository.actualizarEstado(Arrays.asList(1L, 2L, 3L), Estado.ANULADO)).thenReturn(3);
+
+        ResultadoTransicion resultado = ingresoService.transicionarIngresos(new TransicionIngresos(ids, Estado.ANULADO, null));
+
+        assertEquals(3, resultado.getSolicitados());
+        assertEquals(3, resultado.getActualizados());
+        verify(ingresoRepository, never()).findById(anyLong());
+        verify(ingresoRepository, never()).save(ArgumentMatchers.any());
+    }
+    
+    @Test
+    public void testTransicionarIngresos_FinalizadoRequiereFecha() {
+
+        TransicionIngresos transicion = new TransicionIngresos(Arrays.asList(1L, 2L), Estado.FINALIZADO, null);
+
+        assertThrows(FechaFinalizacionRequeridaException.class, () -> ingresoService.transicionarIngresos(transicion));
+        verify(ingresoRepository, never()).actualizarEstadoYFechaFinalizacion(anyList(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+    
+    @Test
+    public void testTransicionarIngresos_FinalizadoConFecha() throws Exception {
+
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(ingresoRepository.actualizarEstadoYFechaFinalizacion(ids, Estado.FINALIZADO, LocalDate.of(2024, 7, 14))).thenReturn(1);
+
+        ResultadoTransicion resultado = ingresoService.transicionarIngresos(new TransicionIngresos(ids, Estado.FINALIZADO, LocalDate.of(2024, 7, 14)));
+
+        // Uno de los IDs no existe
+        assertEquals(2, resultado.getSolicitados());
+        assertEquals(1, resultado.getActualizados());
+    }
+    
+    @Test
+    public void testTransicionarIngresos_PublicaVariacionPorEstadoAnterior() throws Exception {
+
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        when(ingresoRepository.obtenerEstados(ids)).thenReturn(Arrays.asList(new EstadoIngreso(1L, Estado.ALTA, "12345678A", 10L, 0L),
+                new EstadoIngreso(2L, Estado.ALTA, "12345678A", 10L, 4L), new EstadoIngreso(3L, Estado.ANULADO, "87654321B", 20L, 1L)));
+        when(ingresoRepository.actualizarEstado(ids, Estado.ANULADO)).thenReturn(3);
+
+        ingresoService.transicionarIngresos(new TransicionIngresos(ids, Estado.ANULADO, null));
+
+        // Los que ya estaban anulados no cambian la ocupación
+        ArgumentCaptor<CambioEstadoIngresoEvento> evento = ArgumentCaptor.forClass(CambioEstadoIngresoEvento.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertEquals(Long.valueOf(-2L), evento.getValue().getVariaciones().get(Estado.ALTA));
+        assertEquals(Long.valueOf(2L), evento.getValue().getVariaciones().get(Estado.ANULADO));
+        assertEquals(2, evento.getValue().getVariaciones().size());
+        // Se invalida el historial de todas las mascotas afectadas y se indica el estado nuevo de cada ingreso
+        assertEquals(new HashSet<>(Arrays.asList(10L, 20L)), evento.getValue().getIdsMascota());
+        assertEquals(3, evento.getValue().getIngresos().size());
+        assertEquals(Estado.ANULADO, evento.getValue().getIngresos().get(0).getEstado());
+        // Las filas están bloqueadas desde la lectura: el UPDATE incrementa en uno la versión leída
+        assertEquals(Long.valueOf(5L), evento.getValue().getIngresos().get(1).getVersion());
+        verify(ingresoRepository, times(1)).obtenerEstados(ids);
+    }
+    
+    
+    // Test 8. Búsqueda por criterios
+    
+    @Test
+    public void testBuscarIngresos_PideUnaFilaExtraYDevuelveCursor() {
+
+        FiltroIngresos filtro = new FiltroIngresos();
+        filtro.setEstado(Estado.HOSPITALIZACION);
+
+        IngresoResumen ingreso1 = new IngresoResumen();
+        ingreso1.setId(21L);
+        IngresoResumen ingreso2 = new IngresoResumen();
+        ingreso2.setId(22L);
+
+        when(ingresoRepository.buscarResumenes(filtro, 20L, 2)).thenReturn(Arrays.asList(ingreso1, ingreso2));
+
+        PaginaIngresos resultado = ingresoService.buscarIngresos(filtro, 20L, 1);
+
+        assertEquals(1, resultado.getIngresos().size());
+        assertEquals(Long.valueOf(21L), resultado.getSiguienteCursor());
+    }
+    
+    
+    // Test 9. Auditoría de los cambios
+    
+    @Test
+    public void testAuditoria_AnulacionYCambioMasivoConEstadoAnterior() throws Exception {
+
+        Ingreso ingresoExistente = new Ingreso();
+        ingresoExistente.setId(5L);
+        ingresoExistente.setEstado(Estado.HOSPITALIZACION);
+        ingresoExistente.setDniRegistrador("12345678A");
+        when(ingresoRepository.findById(5L)).thenReturn(Optional.of(ingresoExistente));
+        when(ingresoRepository.save(ingresoExistente)).thenReturn(ingresoExistente);
+
+        ingresoService.anularIngreso(5L);
+
+        verify(auditoriaService).registrarCambio(5L, Estado.HOSPITALIZACION, Estado.ANULADO, "12345678A");
+
+        // En el cambio masivo solo se auditan los ingresos que existen, cada uno con su estado anterior
+        List<Long> ids = Arrays.asList(6L, 7L, 8L);
+        when(ingresoRepository.obtenerEstados(ids)).thenReturn(Arrays.asList(
+                new EstadoIngreso(6L, Estado.ALTA, "12345678A", 10L, 0L), new EstadoIngreso(8L, Estado.FINALIZADO, "87654321B", 20L, 2L)));
+        when(ingresoRepository.actualizarEstado(ids, Estado.HOSPITALIZACION)).thenReturn(2);
+
+        ingresoService.transicionarIngresos(new TransicionIngresos(ids, Estado.HOSPITALIZACION, null));
+
+        verify(auditoriaService).registrarCambio(6L, Estado.ALTA, Estado.HOSPITALIZACION, "12345678A");
+        verify(auditoriaService).registrarCambio(8L, Estado.FINALIZADO, Estado.HOSPITALIZACION, "87654321B");
+        verify(auditoriaService, never()).registrarCambio(ArgumentMatchers.eq(7L), ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+    
+    
+    // Test 10. Eventos de los ingresos
+    
+    @Test
+    public void testEventos_ActualizacionYCambioMasivo() throws Exception {
+
+        Ingreso ingresoExistente = new Ingreso();
+        ingresoExistente.setId(5L);
+        ingresoExistente.setVersion(3L);
+        ingresoExistente.setEstado(Estado.HOSPITALIZACION);
+        ingresoExistente.setDniRegistrador("12345678A");
+        when(ingresoRepository.findById(5L)).thenReturn(Optional.of(ingresoExistente));
+        when(ingresoRepository.save(ingresoExistente)).thenReturn(ingresoExistente);
+        ingresoDetalles.setDniRegistrador("87654321B");
+
+        ingresoService.actualizarIngreso(1L, 5L, ingresoDetalles);
+
+        // El evento se registra con la versión anterior (para saber si ha cambiado) y el autor del cambio
+        verify(historialService).registrar(ingresoExistente, 3L, "87654321B");
+
+        List<Long> ids = Arrays.asList(6L, 7L);
+        when(ingresoRepository.actualizarEstado(ids, Estado.ANULADO)).thenReturn(2);
+
+        ingresoService.transicionarIngresos(new TransicionIngresos(ids, Estado.ANULADO, null));
+
+        verify(historialService).registrarEstadoActual(ids);
+    }
+    
 }
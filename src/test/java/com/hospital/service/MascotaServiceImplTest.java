@@ -5,28 +5,50 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.StringReader;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import org.junit.Before;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hospital.dto.IngresoResumen;
+import com.hospital.dto.ResultadoImportacion;
+import com.hospital.config.CacheConfig;
+import com.hospital.dto.VersionHistorial;
 import com.hospital.entity.Estado;
-import com.hospital.entity.Ingreso;
 import com.hospital.entity.Mascota;
+import com.hospital.event.CambioMascotaEvento;
+import com.hospital.exception.CodigoMascotaEnUsoException;
+import com.hospital.exception.ConflictoConcurrenciaException;
 import com.hospital.exception.MascotaNoEncontradaException;
 import com.hospital.repository.IngresoRepository;
 import com.hospital.repository.MascotaRepository;
@@ -42,6 +64,32 @@ public class MascotaServiceImplTest {
     
     @Mock
     private IngresoRepository ingresoRepository;
+    
+    // Ejecuta los callbacks sin transacción real
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    });
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private CacheManager cacheManager;
+    
+    @Mock
+    private Cache cacheMascotas;
 
     @InjectMocks
     private MascotaServiceImpl mascotaService;
@@ -84,6 +132,19 @@ public class MascotaServiceImplTest {
         assertEquals(mascotaMock.isActiva(), resultado.get().isActiva());
     }
     
+    @Test
+    public void testObtenerMascotaPorCodigo_TambienDadaDeBaja() {
+
+        Mascota deBaja = new Mascota();
+        deBaja.setId(3L);
+        deBaja.setCodigo(7001);
+        deBaja.setActiva(false);
+        when(mascotaRepository.findByCodigo(7001)).thenReturn(Optional.of(deBaja));
+
+        assertEquals(Long.valueOf(3L), mascotaService.obtenerMascotaPorCodigo(7001).get().getId());
+        assertFalse(mascotaService.obtenerMascotaPorCodigo(7002).isPresent());
+    }
+    
     
     // Test 2. Listado de todos los ingresos de una mascota
     
@@ -92,51 +153,41 @@ public class MascotaServiceImplTest {
     	
         Long idMascota = 1L;
 
-        Ingreso ingreso1 = new Ingreso();
-        ingreso1.setId(1L);
-        ingreso1.setFechaAlta(LocalDate.of(2024, 7, 10));
-        ingreso1.setFechaFinalizacion("2024-07-15");
-        ingreso1.setMascota(new Mascota());
-        ingreso1.getMascota().setId(idMascota);
-        ingreso1.setEstado(Estado.ALTA);
-        ingreso1.setDniRegistrador("12345678A");
-
-        Ingreso ingreso2 = new Ingreso();
-        ingreso2.setId(2L);
-        ingreso2.setFechaAlta(LocalDate.of(2024, 6, 15));
-        ingreso2.setFechaFinalizacion("2024-06-20");
-        ingreso2.setMascota(new Mascota());
-        ingreso2.getMascota().setId(idMascota);
-        ingreso2.setEstado(Estado.HOSPITALIZACION);
-        ingreso2.setDniRegistrador("98765432B");
-
-        List<Ingreso> ingresosMock = new ArrayList<>();
+        IngresoResumen ingreso1 = new IngresoResumen(1L, LocalDate.of(2024, 7, 10), LocalDate.of(2024, 7, 15),
+                Estado.ALTA, "12345678A", idMascota);
+
+        IngresoResumen ingreso2 = new IngresoResumen(2L, LocalDate.of(2024, 6, 15), LocalDate.of(2024, 6, 20),
+                Estado.HOSPITALIZACION, "98765432B", idMascota);
+
+        List<IngresoResumen> ingresosMock = new ArrayList<>();
         ingresosMock.add(ingreso1);
         ingresosMock.add(ingreso2);
 
-        when(ingresoRepository.findByMascotaId(idMascota)).thenReturn(ingresosMock);
+        when(ingresoRepository.findResumenesByMascotaId(idMascota)).thenReturn(ingresosMock);
 
-        List<Ingreso> resultados = mascotaService.buscarIngresosPorMascotaId(idMascota);
+        List<IngresoResumen> resultados = mascotaService.buscarIngresosPorMascotaId(idMascota);
 
         assertNotNull(resultados);
         assertFalse(resultados.isEmpty());
         assertEquals(2, resultados.size());
 
-        Ingreso resultado1 = resultados.get(0);
+        IngresoResumen resultado1 = resultados.get(0);
         assertEquals(ingreso1.getId(), resultado1.getId());
         assertEquals(ingreso1.getFechaAlta(), resultado1.getFechaAlta());
         assertEquals(ingreso1.getFechaFinalizacion(), resultado1.getFechaFinalizacion());
         assertEquals(ingreso1.getEstado(), resultado1.getEstado());
         assertEquals(ingreso1.getDniRegistrador(), resultado1.getDniRegistrador());
+        assertEquals(idMascota, resultado1.getMascotaId());
 
-        Ingreso resultado2 = resultados.get(1);
+        IngresoResumen resultado2 = resultados.get(1);
         assertEquals(ingreso2.getId(), resultado2.getId());
         assertEquals(ingreso2.getFechaAlta(), resultado2.getFechaAlta());
         assertEquals(ingreso2.getFechaFinalizacion(), resultado2.getFechaFinalizacion());
         assertEquals(ingreso2.getEstado(), resultado2.getEstado());
         assertEquals(ingreso2.getDniRegistrador(), resultado2.getDniRegistrador());
+        assertEquals(idMascota, resultado2.getMascotaId());
 
-        verify(ingresoRepository, times(1)).findByMascotaId(idMascota);
+        verify(ingresoRepository, times(1)).findResumenesByMascotaId(idMascota);
     }
     
     
@@ -147,7 +198,7 @@ public class MascotaServiceImplTest {
 
         Long idMascota = 2L;
 
-        when(ingresoRepository.findByMascotaId(idMascota)).thenReturn(new ArrayList<>());
+        when(ingresoRepository.findResumenesByMascotaId(idMascota)).thenReturn(new ArrayList<>());
 
         Exception exception = assertThrows(MascotaNoEncontradaException.class, () -> {
             mascotaService.buscarIngresosPorMascotaId(idMascota);
@@ -158,7 +209,7 @@ public class MascotaServiceImplTest {
 
         assertTrue(actualMessage.contains(expectedMessage));
 
-        verify(ingresoRepository, times(1)).findByMascotaId(idMascota);
+        verify(ingresoRepository, times(1)).findResumenesByMascotaId(idMascota);
     }
     
     
@@ -189,6 +240,25 @@ public class MascotaServiceImplTest {
         assertEquals("12345678A", resultado.getDniResponsable());
         assertTrue(resultado.isActiva());
     }
+    
+    @Test
+    void testCrearMascota_CodigoEnUso() {
+
+        Mascota existente = new Mascota();
+        existente.setId(8L);
+        existente.setCodigo(7001);
+        existente.setActiva(false);
+        when(mascotaRepository.findByCodigo(7001)).thenReturn(Optional.of(existente));
+
+        Mascota mascota = new Mascota();
+        mascota.setCodigo(7001);
+
+        // Aunque la otra esté dada de baja, el código sigue siendo suyo
+        CodigoMascotaEnUsoException conflicto = assertThrows(CodigoMascotaEnUsoException.class, () -> mascotaService.crearMascota(mascota));
+        assertEquals("Ya existe una mascota con el código 7001 (ID 8)", conflicto.getMessage());
+        verify(mascotaRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
 
 
     // Test 4. Dar de baja a una mascota
@@ -210,8 +280,167 @@ public class MascotaServiceImplTest {
         assertFalse(mascotaExistente.isActiva());
 
         verify(mascotaRepository, times(1)).save(mascotaExistente);
+
+        // La baja se notifica para que la mascota salga del índice de búsqueda
+        ArgumentCaptor<CambioMascotaEvento> evento = ArgumentCaptor.forClass(CambioMascotaEvento.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertEquals(idMascotaExistente, evento.getValue().getMascotas().get(0).getId());
+        assertFalse(evento.getValue().getMascotas().get(0).isActiva());
+    }
+    
+    @Test
+    void testDarDeBajaMascota_ReintentaSiOtraPeticionLaHaCambiado() {
+
+        Long idMascota = 1L;
+        Mascota copiaObsoleta = new Mascota();
+        copiaObsoleta.setId(idMascota);
+        copiaObsoleta.setActiva(true);
+        copiaObsoleta.setVersion(0L);
+        Mascota actual = new Mascota();
+        actual.setId(idMascota);
+        actual.setActiva(true);
+        actual.setVersion(1L);
+
+        when(mascotaRepository.findById(idMascota)).thenReturn(Optional.of(copiaObsoleta), Optional.of(actual));
+        when(mascotaRepository.save(copiaObsoleta)).thenThrow(new ObjectOptimisticLockingFailureException(Mascota.class, idMascota));
+        when(cacheManager.getCache(CacheConfig.MASCOTAS)).thenReturn(cacheMascotas);
+
+        assertTrue(mascotaService.darDeBajaMascota(idMascota));
+
+        // La copia obsoleta sale de la caché y la baja se aplica sobre la mascota releída
+        verify(cacheMascotas).evict(idMascota);
+        verify(mascotaRepository).save(actual);
+        assertFalse(actual.isActiva());
+        verify(eventPublisher, times(1)).publishEvent(any(CambioMascotaEvento.class));
     }
     
+    @Test
+    void testDarDeBajaMascota_YaDadaDeBaja() {
+
+        Long idMascota = 1L;
+        Mascota mascota = new Mascota();
+        mascota.setId(idMascota);
+        mascota.setActiva(false);
+
+        when(mascotaRepository.findById(idMascota)).thenReturn(Optional.of(mascota));
+
+        // Otra petición la dio de baja primero: no hay nada que guardar
+        assertTrue(mascotaService.darDeBajaMascota(idMascota));
+        verify(mascotaRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
     
+    @Test
+    void testDarDeBajaMascota_ConflictoTrasLosReintentos() {
+
+        Long idMascota = 1L;
+        when(mascotaRepository.findById(idMascota)).thenAnswer(invocacion -> {
+            Mascota mascota = new Mascota();
+            mascota.setId(idMascota);
+            mascota.setActiva(true);
+            return Optional.of(mascota);
+        });
+        when(mascotaRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Mascota.class, idMascota));
+        when(cacheManager.getCache(CacheConfig.MASCOTAS)).thenReturn(cacheMascotas);
+
+        assertThrows(ConflictoConcurrenciaException.class, () -> mascotaService.darDeBajaMascota(idMascota));
+        verify(mascotaRepository, times(IngresoServiceImpl.MAX_REINTENTOS + 1)).save(any());
+    }
+    
+    
+    // Test 5. Importación de mascotas desde CSV
+    
+    @Test
+    void testImportarMascotas_LotesYLineasRechazadas() throws Exception {
+
+        String csv = "especie,raza,edad,codigo,dniResponsable,activa\n"
+                + "Perro,Labrador,3,1001,12345678A,true\n"
+                + "Gato,Siames,dos,1002,22222222B\n"
+                + "Gato,Persa,4,1003,22222222B\n"
+                + "Perro,,1,1004,33333333C\n"
+                + "Loro,Gris,10,1005,44444444D,false\n";
+
+        when(mascotaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResultadoImportacion resultado = mascotaService.importarMascotas(new StringReader(csv), 2);
+
+        assertEquals(5, resultado.getLineasLeidas());
+        assertEquals(3, resultado.getImportadas());
+        assertEquals(2, resultado.getRechazadas());
+        assertEquals(3, resultado.getDetalleRechazadas().get(0).getNumeroLinea());
+        assertEquals(5, resultado.getDetalleRechazadas().get(1).getNumeroLinea());
+
+        // Tres mascotas válidas en lotes de dos: un lote completo y uno parcial, cada uno en su transacción
+        verify(mascotaRepository, times(2)).saveAll(anyList());
+        verify(transactionTemplate, times(2)).execute(ArgumentMatchers.any());
+    }
+    
+    @Test
+    void testImportarMascotas_RechazaCamposEntreComillas() throws Exception {
+
+        // Partida por las comas, la raza entre comillas desplazaría el resto de columnas
+        String csv = "Perro,\"Pastor, alemán\",3,1001,12345678A\n"
+                + "Gato,Persa,4,1003,22222222B\n"
+                + "\"Loro\",Gris,10,1005,44444444D\n";
+
+        when(mascotaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResultadoImportacion resultado = mascotaService.importarMascotas(new StringReader(csv), 10);
+
+        assertEquals(3, resultado.getLineasLeidas());
+        assertEquals(1, resultado.getImportadas());
+        assertEquals(2, resultado.getRechazadas());
+        assertEquals(1, resultado.getDetalleRechazadas().get(0).getNumeroLinea());
+        assertEquals("Los campos entre comillas no están admitidos", resultado.getDetalleRechazadas().get(0).getMotivo());
+        assertEquals(3, resultado.getDetalleRechazadas().get(1).getNumeroLinea());
+    }
+    
+    @Test
+    void testImportarMascotas_RechazaCodigosEnUso() throws Exception {
+
+        // 1001 ya es de otra mascota y 1002 aparece dos veces en el fichero: sin rechazarlas fallaría el lote entero
+        String csv = "Perro,Labrador,3,1001,12345678A\n"
+                + "Gato,Persa,4,1002,22222222B\n"
+                + "Gato,Siames,2,1002,22222222B\n"
+                + "Loro,Gris,10,1003,44444444D\n";
+
+        when(mascotaRepository.findCodigosExistentes(ArgumentMatchers.anyCollection())).thenReturn(Arrays.asList(1001));
+        // El lote se vacía después de guardarlo: se anotan los códigos al recibirlo
+        List<Integer> guardadas = new ArrayList<>();
+        when(mascotaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Mascota> lote = invocation.getArgument(0);
+            lote.forEach(mascota -> guardadas.add(mascota.getCodigo()));
+            return lote;
+        });
+
+        ResultadoImportacion resultado = mascotaService.importarMascotas(new StringReader(csv), 10);
+
+        assertEquals(2, resultado.getImportadas());
+        assertEquals(2, resultado.getRechazadas());
+        assertEquals(1, resultado.getDetalleRechazadas().get(0).getNumeroLinea());
+        assertEquals("Ya existe una mascota con el código 1001", resultado.getDetalleRechazadas().get(0).getMotivo());
+        assertEquals(3, resultado.getDetalleRechazadas().get(1).getNumeroLinea());
+        assertEquals(Arrays.asList(1002, 1003), guardadas);
+    }
+    
+    
+    // ETags a partir de las versiones
+    
+    @Test
+    public void testObtenerEtags() {
+
+        Mascota mascota = new Mascota();
+        mascota.setId(1L);
+        mascota.setVersion(4L);
+        when(mascotaRepository.findById(1L)).thenReturn(Optional.of(mascota));
+        when(ingresoRepository.obtenerVersionHistorial(1L)).thenReturn(new VersionHistorial(3L, 7L));
+        when(ingresoRepository.obtenerVersionHistorial(2L)).thenReturn(new VersionHistorial(0L, null));
+
+        assertEquals(Optional.of("\"mascota-1-4\""), mascotaService.obtenerEtagMascota(1L));
+        assertEquals(Optional.of("\"ingresos-1-3-7\""), mascotaService.obtenerEtagIngresos(1L));
+
+        // Sin historial no hay ETag (la petición devolverá 404)
+        assertFalse(mascotaService.obtenerEtagIngresos(2L).isPresent());
+    }
     
 }
@@ -0,0 +1,92 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hospital.dto.RecuentoEstado;
+import com.hospital.entity.Estado;
+import com.hospital.event.CambioEstadoIngresoEvento;
+import com.hospital.repository.IngresoRepository;
+import com.hospital.services.OcupacionServiceImpl;
+
+public class OcupacionServiceImplTest {
+
+    @Mock
+    private IngresoRepository ingresoRepository;
+    
+    @InjectMocks
+    private OcupacionServiceImpl ocupacionService;
+    
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(ingresoRepository.contarPorEstado()).thenReturn(Arrays.asList(
+                new RecuentoEstado(Estado.ALTA, 10L), new RecuentoEstado(Estado.HOSPITALIZACION, 4L)));
+        ocupacionService.cargarContadores();
+    }
+    
+    
+    // Test 1. Carga inicial desde la base de datos
+    
+    @Test
+    public void testCargarContadores() {
+
+        Map<Estado, Long> ocupacion = ocupacionService.obtenerOcupacion();
+
+        assertEquals(10L, ocupacion.get(Estado.ALTA));
+        assertEquals(4L, ocupacion.get(Estado.HOSPITALIZACION));
+        assertEquals(0L, ocupacion.get(Estado.FINALIZADO));
+        assertEquals(0L, ocupacion.get(Estado.ANULADO));
+    }
+    
+    
+    // Test 2. Actualización con los eventos de IngresoServiceImpl
+    
+    @Test
+    public void testRegistrarCambio() {
+
+        ocupacionService.registrarCambio(CambioEstadoIngresoEvento.altas(3));
+        ocupacionService.registrarCambio(CambioEstadoIngresoEvento.cambio(Estado.HOSPITALIZACION, Estado.FINALIZADO));
+
+        Map<Estado, Long> anteriores = new EnumMap<>(Estado.class);
+        anteriores.put(Estado.ALTA, 2L);
+        ocupacionService.registrarCambio(CambioEstadoIngresoEvento.transicion(anteriores, Estado.ANULADO));
+
+        Map<Estado, Long> ocupacion = ocupacionService.obtenerOcupacion();
+        assertEquals(11L, ocupacion.get(Estado.ALTA));
+        assertEquals(3L, ocupacion.get(Estado.HOSPITALIZACION));
+        assertEquals(1L, ocupacion.get(Estado.FINALIZADO));
+        assertEquals(2L, ocupacion.get(Estado.ANULADO));
+    }
+    
+    
+    // Test 3. Reconciliación
+    
+    @Test
+    public void testReconciliar_CorrigeDesviaciones() {
+
+        // Un cambio que no llegó a registrarse
+        when(ingresoRepository.contarPorEstado()).thenReturn(Arrays.asList(
+                new RecuentoEstado(Estado.ALTA, 9L), new RecuentoEstado(Estado.HOSPITALIZACION, 4L),
+                new RecuentoEstado(Estado.ANULADO, 1L)));
+
+        assertEquals(2, ocupacionService.reconciliar());
+        assertEquals(9L, ocupacionService.obtenerOcupacion().get(Estado.ALTA));
+        assertEquals(1L, ocupacionService.obtenerOcupacion().get(Estado.ANULADO));
+
+        // Sin desviaciones no se corrige nada
+        assertEquals(0, ocupacionService.reconciliar());
+    }
+    
+}
@@ -0,0 +1,130 @@
+package db.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MigracionFechaFinalizacionTest {
+
+    private Connection conexion;
+    private Context contexto;
+
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        conexion = DriverManager.getConnection("jdbc:h2:mem:v3_" + System.nanoTime());
+        contexto = new Context() {
+            @Override
+            public Configuration getConfiguration() {
+                return null;
+            }
+
+            @Override
+            public Connection getConnection() {
+                return conexion;
+            }
+        };
+        // La columna como estaba en V1, con una fecha no válida y una vacía
+        ejecutar("CREATE TABLE ingresos (id BIGINT PRIMARY KEY, fecha_finalizacion VARCHAR(255))");
+        ejecutar("INSERT INTO ingresos VALUES (1, '2024-07-01'), (2, 'ayer'), (3, NULL), (4, '2024-07-04'), (5, '')");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        conexion.close();
+    }
+
+
+    // Test 1. Convierte la columna a DATE y la indexa
+
+    @Test
+    public void testMigrar_ConvierteLaColumna() throws Exception {
+
+        new V3__fecha_finalizacion_como_fecha().migrate(contexto);
+
+        comprobarConvertida(LocalDate.of(2024, 7, 1));
+    }
+
+
+    // Test 2. Tras un fallo a medias se reanuda sin volver a copiar lo ya confirmado
+
+    @Test
+    public void testMigrar_ReanudaTrasCopiaParcial() throws Exception {
+
+        // Falló después de confirmar el bloque con el ingreso 1 (una fecha distinta muestra que no se vuelve a copiar)
+        ejecutar("ALTER TABLE ingresos ADD COLUMN fecha_finalizacion_fecha DATE");
+        ejecutar("UPDATE ingresos SET fecha_finalizacion_fecha = DATE '2000-01-01' WHERE id = 1");
+
+        new V3__fecha_finalizacion_como_fecha().migrate(contexto);
+
+        comprobarConvertida(LocalDate.of(2000, 1, 1));
+    }
+
+    @Test
+    public void testMigrar_ReanudaTrasBorrarOCambiarDeNombre() throws Exception {
+
+        // Falló después de borrar la columna antigua
+        ejecutar("ALTER TABLE ingresos ADD COLUMN fecha_finalizacion_fecha DATE");
+        ejecutar("UPDATE ingresos SET fecha_finalizacion_fecha = DATE '2024-07-01' WHERE id = 1");
+        ejecutar("UPDATE ingresos SET fecha_finalizacion_fecha = DATE '2024-07-04' WHERE id = 4");
+        ejecutar("ALTER TABLE ingresos DROP COLUMN fecha_finalizacion");
+
+        new V3__fecha_finalizacion_como_fecha().migrate(contexto);
+        comprobarConvertida(LocalDate.of(2024, 7, 1));
+
+        // Volver a ejecutarla entera (falló al crear el índice) no cambia nada
+        new V3__fecha_finalizacion_como_fecha().migrate(contexto);
+        comprobarConvertida(LocalDate.of(2024, 7, 1));
+    }
+
+
+    private void comprobarConvertida(LocalDate fechaIngreso1) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            try (ResultSet columnas = sentencia.executeQuery("SELECT column_name, data_type FROM information_schema.columns "
+                    + "WHERE table_name = 'INGRESOS' AND column_name LIKE 'FECHA_FINALIZACION%'")) {
+                assertTrue(columnas.next());
+                assertEquals("FECHA_FINALIZACION", columnas.getString(1));
+                assertEquals("DATE", columnas.getString(2));
+                assertFalse(columnas.next());
+            }
+            try (ResultSet filas = sentencia.executeQuery("SELECT fecha_finalizacion FROM ingresos ORDER BY id")) {
+                filas.next();
+                assertEquals(fechaIngreso1, filas.getObject(1, LocalDate.class));
+                filas.next();
+                assertNull(filas.getObject(1, LocalDate.class));
+                filas.next();
+                assertNull(filas.getObject(1, LocalDate.class));
+                filas.next();
+                assertEquals(LocalDate.of(2024, 7, 4), filas.getObject(1, LocalDate.class));
+                filas.next();
+                assertNull(filas.getObject(1, LocalDate.class));
+            }
+            try (ResultSet indices = sentencia.executeQuery("SELECT COUNT(*) FROM information_schema.indexes "
+                    + "WHERE index_name = 'IDX_INGRESOS_FECHA_FINALIZACION'")) {
+                indices.next();
+                assertEquals(1, indices.getInt(1));
+            }
+        }
+    }
+
+    private void ejecutar(String sql) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+}